@@ -0,0 +1,483 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Sekundärindizes für die Transaktionen eines Kontos.
+ * Wird von {@link PrivateBank} bei jedem Hinzufügen und Entfernen mitgeführt, damit Abfragen
+ * nicht jedes Mal die ganze Transaktionsliste durchlaufen oder sortieren müssen.
+ * Voraussetzung: die Transaktionen sind eingefroren, ihr berechneter Betrag ändert sich also nicht.
+ * <p>
+ * Jede Transaktion bekommt beim Hinzufügen eine fortlaufende Sequenznummer. Sie steht parallel zur
+ * Transaktionsliste in {@link #sequences} und identifiziert die Transaktion in allen Bäumen.
+ * <p>
+ * Dazu kommen Tages- und Monatssummen ({@link Rollup}), die bei jedem Hinzufügen und Entfernen
+ * nachgezogen werden, damit Auswertungen nicht über alle Transaktionen laufen.
+ */
+class AccountIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Die Transaktionsliste des Kontos (wird von {@link PrivateBank} gepflegt, hier nur gelesen).
+     */
+    private final List<Transaction> transactions;
+
+    /**
+     * Sequenznummern in gleicher Reihenfolge wie {@link #transactions}, damit aufsteigend sortiert.
+     */
+    private int[] sequences = new int[INITIAL_CAPACITY];
+    private int size;
+    private int nextSequence;
+
+    /**
+     * Transaktionen sortiert nach berechnetem Betrag.
+     */
+    private final TransactionTree byAmount = new TransactionTree(Transaction::calculate);
+
+    /**
+     * Transaktionen sortiert nach Datum (JJJJMMTT), mit Teilsummen für Kontostände zu einem Stichtag.
+     * Transaktionen mit ungültigem Datum haben den Schlüssel {@link DateKey#INVALID} und stehen ganz vorne.
+     */
+    private final TransactionTree byDate = new TransactionTree(transaction -> DateKey.of(transaction.getDate()));
+
+    /**
+     * Sequenznummern der Transaktionen mit berechnetem Betrag >= 0 bzw. < 0. Jede Transaktion steht in genau
+     * einer Liste. Payments sind hier schon mit den Zinsen der Bank gespeichert und eingefroren; da die Zinsen
+     * zwischen 0 und 1 liegen, hat der berechnete Betrag immer das Vorzeichen von amount.
+     */
+    private final Postings positives = new Postings();
+    private final Postings negatives = new Postings();
+
+    /**
+     * Kennzahlen pro Tag (JJJJMMTT) und Monat (JJJJMM), ohne Transaktionen mit ungültigem Datum.
+     */
+    private final Rollup daily = new Rollup();
+    private final Rollup monthly = new Rollup();
+
+    /**
+     * Baut den Index für bereits vorhandene Transaktionen auf (z.B. nach dem Laden).
+     *
+     * @param transactions die Transaktionsliste des Kontos, Hinzufügen und Entfernen darin
+     *                     müssen über {@link #add} und {@link #remove} nachgezogen werden
+     */
+    AccountIndex(List<Transaction> transactions) {
+        this.transactions = transactions;
+        ensureCapacity(transactions.size());
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+    }
+
+    /**
+     * Reserviert Platz für weitere Transaktionen, damit das Einfügen danach nichts mehr allokiert.
+     *
+     * @param additional Anzahl der erwarteten zusätzlichen Transaktionen
+     */
+    void ensureCapacity(int additional) {
+        if (size + additional > sequences.length) sequences = Arrays.copyOf(sequences, size + additional);
+        byAmount.ensureCapacity(additional);
+        byDate.ensureCapacity(additional);
+    }
+
+    /**
+     * Nimmt eine neu gespeicherte Transaktion in den Index auf, sie steht in der Liste hinten.
+     *
+     * @return die vergebene Sequenznummer
+     */
+    int add(Transaction transaction) {
+        if (size == sequences.length) sequences = Arrays.copyOf(sequences, size * 2);
+        int sequence = nextSequence++;
+        sequences[size++] = sequence;
+        byAmount.add(transaction, sequence);
+        byDate.add(transaction, sequence);
+        double amount = transaction.calculate();
+        (amount >= 0 ? positives : negatives).add(sequence);
+        int day = DateKey.of(transaction.getDate());
+        if (day != DateKey.INVALID) {
+            daily.add(day, amount);
+            monthly.add(DateKey.month(day), amount);
+        }
+        return sequence;
+    }
+
+    /**
+     * Entfernt eine Transaktion aus dem Index.
+     *
+     * @param position    Position, an der sie in der Transaktionsliste stand
+     * @param transaction die entfernte Transaktion
+     * @return die Sequenznummer, die sie hatte
+     */
+    int remove(int position, Transaction transaction) {
+        int sequence = sequences[position];
+        System.arraycopy(sequences, position + 1, sequences, position, size - position - 1);
+        size--;
+        byAmount.remove(transaction, sequence);
+        byDate.remove(transaction, sequence);
+        double amount = transaction.calculate();
+        (amount >= 0 ? positives : negatives).remove(sequence);
+        int day = DateKey.of(transaction.getDate());
+        if (day != DateKey.INVALID) {
+            daily.remove(day, amount);
+            monthly.remove(DateKey.month(day), amount);
+        }
+        return sequence;
+    }
+
+    /**
+     * @return die Transaktionsliste des Kontos (nicht kopiert)
+     */
+    List<Transaction> transactions() {
+        return transactions;
+    }
+
+    /**
+     * @return Sequenznummer der Transaktion an der Position der Transaktionsliste
+     */
+    int sequenceAt(int position) {
+        return sequences[position];
+    }
+
+    /**
+     * Sucht die Transaktionen zu Sequenznummern (z.B. Treffer aus dem {@link DescriptionIndex}).
+     *
+     * @param hits aufsteigend sortierte Sequenznummern
+     * @return neue Liste in Einfügereihenfolge, nicht mehr enthaltene Nummern werden übersprungen
+     */
+    List<Transaction> resolve(int[] hits) {
+        List<Transaction> result = new ArrayList<>(hits.length);
+        int position = 0;
+        for (int sequence : hits) {
+            position = firstAfter(sequence - 1, position);
+            if (position < size && sequences[position] == sequence) result.add(transactions.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * @return Anzahl der Transaktionen im Index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Liest die Transaktionen in sortierter Reihenfolge aus, ohne zu sortieren.
+     * Bei gleichen Beträgen bleibt die Einfügereihenfolge erhalten (wie bei einer stabilen Sortierung).
+     *
+     * @param asc   aufsteigend oder absteigend nach berechnetem Betrag
+     * @param limit maximale Anzahl (z.B. Top-N), negative Werte für alle
+     * @return neue Liste mit höchstens limit Transaktionen
+     */
+    List<Transaction> sorted(boolean asc, int limit) {
+        List<Transaction> result = new ArrayList<>(limit < 0 ? size() : Math.min(limit, size()));
+        byAmount.collect(asc, limit, result);
+        return result;
+    }
+
+    /**
+     * Liest die Transaktionen zwischen zwei Stichtagen (beide inklusive) nach Datum sortiert aus.
+     * Bei gleichem Datum bleibt die Einfügereihenfolge erhalten.
+     *
+     * @param fromDay erster Tag als JJJJMMTT
+     * @param toDay   letzter Tag als JJJJMMTT
+     * @return neue Liste mit den Transaktionen im Zeitraum
+     */
+    List<Transaction> between(int fromDay, int toDay) {
+        List<Transaction> result = new ArrayList<>();
+        byDate.collectRange(Math.max(fromDay, 0), toDay, result);
+        return result;
+    }
+
+    /**
+     * Summe der berechneten Beträge aller Transaktionen bis einschließlich day, in O(log n).
+     * Transaktionen mit ungültigem Datum zählen nicht mit.
+     *
+     * @param day Stichtag als JJJJMMTT
+     * @return Kontostand zum Ende des Stichtags
+     */
+    double balanceUntil(int day) {
+        return byDate.sumUpTo(day) - byDate.sumUpTo(DateKey.INVALID);
+    }
+
+    /**
+     * Liest die positiven oder negativen Transaktionen aus der mitgeführten Aufteilung, ohne Beträge zu berechnen.
+     * Die Positionen werden mit fortschreitender binärer Suche aufgelöst, der Aufwand hängt also
+     * von der Größe des Ergebnisses ab (O(r log n)), nicht von der des Kontos.
+     *
+     * @param positive true für berechnete Beträge >= 0, false für < 0
+     * @return neue Liste in Einfügereihenfolge
+     */
+    List<Transaction> byType(boolean positive) {
+        return resolve((positive ? positives : negatives).toArray());
+    }
+
+    /**
+     * Kennzahlen über alle Transaktionen, aus den Summen und Rändern des Betragsbaums in O(log n).
+     */
+    AccountStatistics statistics() {
+        if (size == 0) return AccountStatistics.EMPTY;
+        double totalOut = byAmount.sumUpTo(Math.nextDown(0.0));
+        return new AccountStatistics(size, byAmount.sum() - totalOut, totalOut,
+                byAmount.extremeKey(true), byAmount.extremeKey(false));
+    }
+
+    /**
+     * @return Summe der berechneten Beträge aus dem Betragsbaum, in O(1)
+     */
+    double balance() {
+        return byAmount.sum();
+    }
+
+    /**
+     * Zählt die Beträge pro Histogramm-Fach über die Anzahlen im Betragsbaum, in O(Fächer * log n).
+     *
+     * @param bounds streng aufsteigende Grenzen, Fach i ist [bounds[i - 1], bounds[i])
+     * @param counts bounds.length + 1 Zähler, die Anzahlen werden addiert
+     */
+    void countAmounts(double[] bounds, int[] counts) {
+        int below = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            int next = byAmount.countBelow(bounds[i]);
+            counts[i] += next - below;
+            below = next;
+        }
+        counts[bounds.length] += size - below;
+    }
+
+    /**
+     * @param day Tag als JJJJMMTT
+     * @return Kennzahlen des Tages, {@link AccountStatistics#EMPTY} ohne Transaktionen
+     */
+    AccountStatistics dailyStatistics(int day) {
+        int index = daily.find(day);
+        if (index < 0) return AccountStatistics.EMPTY;
+        return bucket(daily, index, day, day);
+    }
+
+    /**
+     * @param month Monat als JJJJMM
+     * @return Kennzahlen des Monats, {@link AccountStatistics#EMPTY} ohne Transaktionen
+     */
+    AccountStatistics monthlyStatistics(int month) {
+        int index = monthly.find(month);
+        if (index < 0) return AccountStatistics.EMPTY;
+        return bucket(monthly, index, month * 100, month * 100 + 99);
+    }
+
+    /**
+     * @return Kennzahlen aller Monate mit Transaktionen, nach Monat (JJJJMM) sortiert
+     */
+    SortedMap<Integer, AccountStatistics> monthlyStatistics() {
+        for (int i = 0; i < monthly.size(); i++) {
+            int month = monthly.keyAt(i);
+            bucket(monthly, i, month * 100, month * 100 + 99);
+        }
+        return monthly.toMap();
+    }
+
+    /**
+     * Liest einen Abschnitt aus. Wurde sein Minimum oder Maximum entfernt, werden beide einmal über
+     * den Datumsbereich des Abschnitts im Datumsbaum neu bestimmt. Das ist der einzige Lesezugriff,
+     * der den Index verändert, deshalb wird er auf dem Abschnitt synchronisiert.
+     */
+    private AccountStatistics bucket(Rollup rollup, int index, int fromDay, int toDay) {
+        synchronized (rollup) { // mehrere Leser dürfen gleichzeitig hier sein
+            if (rollup.hasStaleExtremes(index)) {
+                double[] extremes = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+                byDate.visitRange(fromDay, toDay, true, (transaction, sequence) -> {
+                    double amount = transaction.calculate();
+                    extremes[0] = Math.min(extremes[0], amount);
+                    extremes[1] = Math.max(extremes[1], amount);
+                    return true;
+                });
+                rollup.setExtremes(index, extremes[0], extremes[1]);
+            }
+            return rollup.get(index);
+        }
+    }
+
+    /**
+     * Führt eine {@link TransactionQuery} aus. Als Zugriffspfad wird der mit den wenigsten Kandidaten gewählt:
+     * die Kandidaten aus den bankweiten Indizes, der Datums- oder Betragsbereich über die Bäume oder die ganze
+     * Liste. Liefert der Pfad schon die gewünschte Reihenfolge, endet der Durchlauf beim Limit, sonst werden nur
+     * die Treffer sortiert. Alle Bedingungen werden pro Kandidat in einem Schritt geprüft.
+     *
+     * @param query      die Abfrage
+     * @param candidates aufsteigende Sequenznummern aus Beschreibungs- und Gegenseiten-Index, null wenn keine
+     * @return neue Liste mit den Treffern
+     */
+    List<Transaction> execute(TransactionQuery query, int[] candidates) {
+        TransactionOrder order = query.getOrder();
+        boolean asc = query.isAsc();
+        int limit = query.getLimit();
+
+        int byCandidates = candidates == null ? Integer.MAX_VALUE : candidates.length;
+        int inDateRange = query.hasDateRange() ? byDate.countBetween(query.getFromDay(), query.getToDay()) : size;
+        int inAmountRange = query.hasAmountRange() ? byAmount.countBetween(query.getMinAmount(), query.getMaxAmount()) : size;
+        int cheapest = Math.min(byCandidates, Math.min(inDateRange, inAmountRange));
+
+        // ein Pfad in der gewünschten Reihenfolge darf etwas teurer sein, weil er beim Limit aufhören kann
+        // und das Sortieren spart
+        int orderedCost = order == TransactionOrder.DATE ? inDateRange
+                : order == TransactionOrder.AMOUNT ? inAmountRange : Math.min(byCandidates, size);
+        boolean ordered = orderedCost <= 2L * cheapest;
+        TransactionOrder path;
+        if (ordered) path = order;
+        else if (cheapest == byCandidates) path = TransactionOrder.INSERTION;
+        else path = cheapest == inDateRange ? TransactionOrder.DATE : TransactionOrder.AMOUNT;
+        boolean useCandidates = path == TransactionOrder.INSERTION && candidates != null;
+
+        Hits hits = new Hits(ordered ? limit : -1);
+        TransactionTree.Visitor collect = (transaction, sequence) -> hits.offer(query, transaction, (int) sequence, useCandidates);
+        boolean walkAsc = !ordered || asc;
+        if (path == TransactionOrder.DATE) {
+            int from = query.hasDateRange() ? query.getFromDay() : DateKey.INVALID;
+            int to = query.hasDateRange() ? query.getToDay() : Integer.MAX_VALUE;
+            byDate.visitRange(from, to, walkAsc, collect);
+        } else if (path == TransactionOrder.AMOUNT) {
+            byAmount.visitRange(query.getMinAmount(), query.getMaxAmount(), walkAsc, collect);
+        } else if (useCandidates) {
+            for (int i = 0; i < candidates.length; i++) {
+                int sequence = candidates[walkAsc ? i : candidates.length - 1 - i];
+                int position = firstAfter(sequence - 1);
+                if (position < size && sequences[position] == sequence
+                        && !collect.visit(transactions.get(position), sequence)) break;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                int position = walkAsc ? i : size - 1 - i;
+                if (!collect.visit(transactions.get(position), sequences[position])) break;
+            }
+        }
+        return ordered ? hits.toList() : hits.sorted(query);
+    }
+
+    /**
+     * Treffer einer Abfrage mit ihren Sequenznummern (für die Sortierung bei Gleichstand).
+     */
+    private static final class Hits {
+        private final int limit;
+        private Transaction[] transactions = new Transaction[16];
+        private int[] sequences = new int[16];
+        private int size;
+
+        Hits(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * @return false sobald das Limit erreicht ist
+         */
+        boolean offer(TransactionQuery query, Transaction transaction, int sequence, boolean indexed) {
+            if (limit >= 0 && size >= limit) return false;
+            if (!query.matches(transaction, indexed)) return true;
+            if (size == transactions.length) {
+                transactions = Arrays.copyOf(transactions, size * 2);
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            transactions[size] = transaction;
+            sequences[size++] = sequence;
+            return limit < 0 || size < limit;
+        }
+
+        List<Transaction> toList() {
+            return new ArrayList<>(Arrays.asList(transactions).subList(0, size));
+        }
+
+        /**
+         * Sortiert nach (Schlüssel, Sequenznummer), absteigend komplett umgedreht, und schneidet auf das Limit ab.
+         */
+        List<Transaction> sorted(TransactionQuery query) {
+            Integer[] order = new Integer[size];
+            double[] keys = new double[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+                keys[i] = query.sortKey(transactions[i]);
+            }
+            Comparator<Integer> byKey = (a, b) -> {
+                int cmp = Double.compare(keys[a], keys[b]);
+                return cmp != 0 ? cmp : Integer.compare(sequences[a], sequences[b]);
+            };
+            Arrays.sort(order, query.isAsc() ? byKey : byKey.reversed());
+
+            int count = query.getLimit() < 0 ? size : Math.min(query.getLimit(), size);
+            List<Transaction> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) result.add(transactions[order[i]]);
+            return result;
+        }
+    }
+
+    /**
+     * Liest eine Seite ab dem Cursor. Kopiert werden nur die Transaktionen der Seite.
+     *
+     * @param order    Reihenfolge
+     * @param asc      aufsteigend oder absteigend
+     * @param cursor   Cursor der vorherigen Seite, null für den Anfang
+     * @param pageSize maximale Anzahl Transaktionen der Seite
+     * @return die Seite mit dem Cursor für die nächste
+     */
+    TransactionPage page(TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        PageCursor.checkPageSize(pageSize);
+        PageCursor after = PageCursor.decode(cursor, order, asc);
+        if (order == TransactionOrder.INSERTION) return insertionPage(asc, after, pageSize);
+
+        TransactionTree tree = order == TransactionOrder.DATE ? byDate : byAmount;
+        List<Transaction> result = new ArrayList<>(Math.min(pageSize, size));
+        int last = after == null
+                ? tree.collectAfter(asc, true, 0, 0, pageSize, result)
+                : tree.collectAfter(asc, false, after.key, after.sequence, pageSize, result);
+        if (last < 0) return new TransactionPage(result, null);
+
+        double key = tree.keyAt(last);
+        long sequence = tree.sequenceAt(last);
+        String next = tree.hasAfter(asc, key, sequence) ? new PageCursor(order, asc, key, sequence).encode() : null;
+        return new TransactionPage(result, next);
+    }
+
+    /**
+     * Seite in Einfügereihenfolge: die Startposition wird per binärer Suche über die Sequenznummern gefunden.
+     */
+    private TransactionPage insertionPage(boolean asc, PageCursor after, int pageSize) {
+        List<Transaction> result = new ArrayList<>(Math.min(pageSize, size));
+        int position;
+        if (asc) {
+            position = after == null ? 0 : firstAfter((int) after.sequence);
+            while (position < size && result.size() < pageSize) result.add(transactions.get(position++));
+        } else {
+            position = (after == null ? size : firstAfter((int) after.sequence - 1)) - 1;
+            while (position >= 0 && result.size() < pageSize) result.add(transactions.get(position--));
+            position++;
+        }
+        if (result.isEmpty()) return new TransactionPage(result, null);
+
+        int lastPosition = asc ? position - 1 : position;
+        boolean more = asc ? position < size : position > 0;
+        String next = more ? new PageCursor(TransactionOrder.INSERTION, asc, 0, sequences[lastPosition]).encode() : null;
+        return new TransactionPage(result, next);
+    }
+
+    /**
+     * @return erste Position, deren Sequenznummer größer als sequence ist
+     */
+    private int firstAfter(int sequence) {
+        return firstAfter(sequence, 0);
+    }
+
+    /**
+     * @return erste Position ab from, deren Sequenznummer größer als sequence ist
+     */
+    private int firstAfter(int sequence, int from) {
+        int low = from, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sequences[mid] <= sequence) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,129 @@
+package bank;
+
+/**
+ * Ergebnis von {@link Bank#getStatistics} und den Tages-/Monatsauswertungen: Kennzahlen über die
+ * berechneten Beträge ({@link Transaction#calculate()}) einer Menge von Transaktionen.
+ * Eingänge sind Beträge >= 0, Ausgänge Beträge < 0 (wie bei {@link Bank#getTransactionsByType}).
+ */
+public class AccountStatistics {
+
+    /**
+     * Kennzahlen einer leeren Menge.
+     */
+    static final AccountStatistics EMPTY = new AccountStatistics(0, 0.0, 0.0, 0.0, 0.0);
+
+    private final int count;
+    private final double totalIn;
+    private final double totalOut;
+    private final double min;
+    private final double max;
+
+    /**
+     * @param count    Anzahl der Transaktionen
+     * @param totalIn  Summe der Eingänge
+     * @param totalOut Summe der Ausgänge (negativ)
+     * @param min      kleinster Betrag, 0 wenn count == 0
+     * @param max      größter Betrag, 0 wenn count == 0
+     */
+    public AccountStatistics(int count, double totalIn, double totalOut, double min, double max) {
+        this.count = count;
+        this.totalIn = totalIn;
+        this.totalOut = totalOut;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Fasst die Kennzahlen zweier disjunkter Mengen zusammen (z.B. zweier Konten).
+     */
+    static AccountStatistics combine(AccountStatistics a, AccountStatistics b) {
+        if (a.count == 0) return b;
+        if (b.count == 0) return a;
+        return new AccountStatistics(a.count + b.count, a.totalIn + b.totalIn, a.totalOut + b.totalOut,
+                Math.min(a.min, b.min), Math.max(a.max, b.max));
+    }
+
+    /**
+     * Prüft die Grenzen eines Histogramms, siehe {@link Bank#getAmountHistogram}.
+     *
+     * @throws IllegalArgumentException wenn die Grenzen nicht streng aufsteigend sind
+     */
+    static void checkBounds(double[] bounds) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (Double.isNaN(bounds[i]) || (i > 0 && bounds[i - 1] >= bounds[i]))
+                throw new IllegalArgumentException("Grenzen müssen streng aufsteigend sein");
+        }
+    }
+
+    /**
+     * @return das Histogramm-Fach eines Betrags: die Anzahl der Grenzen <= amount
+     */
+    static int bucketOf(double[] bounds, double amount) {
+        int low = 0, high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid] <= amount) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getTotalIn() {
+        return totalIn;
+    }
+
+    public double getTotalOut() {
+        return totalOut;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return Eingänge plus Ausgänge
+     */
+    public double getBalance() {
+        return totalIn + totalOut;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AccountStatistics other)) return false;
+        return count == other.count
+                && Double.compare(totalIn, other.totalIn) == 0
+                && Double.compare(totalOut, other.totalOut) == 0
+                && Double.compare(min, other.min) == 0
+                && Double.compare(max, other.max) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = count;
+        result = 31 * result + Double.hashCode(totalIn);
+        result = 31 * result + Double.hashCode(totalOut);
+        result = 31 * result + Double.hashCode(min);
+        result = 31 * result + Double.hashCode(max);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountStatistics[" +
+                "count=" + count +
+                ", totalIn=" + totalIn +
+                ", totalOut=" + totalOut +
+                ", min=" + min +
+                ", max=" + max +
+                ']';
+    }
+}
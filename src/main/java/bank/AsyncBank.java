@@ -0,0 +1,324 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchrone Fassade über eine {@link Bank}, z.B. eine {@link PrivateBank}: jede Operation gibt sofort ein
+ * {@link CompletableFuture} zurück und läuft auf einem Executor, der aufrufende Thread (z.B. der JavaFX-Thread)
+ * wartet nicht auf Dateizugriffe. Exceptions der Bank (auch geprüfte wie {@link java.io.IOException}) schließen
+ * das Future mit genau dieser Exception ab.
+ * <p>
+ * Operationen auf verschiedenen Konten laufen gleichzeitig, ihre Dateizugriffe überlappen sich also.
+ * Operationen auf demselben Konto laufen in der Reihenfolge des Aufrufs nacheinander, eine Abfrage nach einer
+ * Buchung sieht die Buchung also; eine Überweisung wartet auf beide Konten. Bankweite Abfragen
+ * (z.B. {@link #getTopAccounts}) warten auf nichts und sehen den Stand, zu dem sie laufen.
+ */
+public class AsyncBank implements AutoCloseable {
+
+    /**
+     * Eine Operation der Bank, darf geprüfte Exceptions werfen.
+     */
+    @FunctionalInterface
+    private interface BankCall<T> {
+        T call() throws Exception;
+    }
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Bank bank;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+
+    /**
+     * Das jeweils letzte Future pro Konto, nachfolgende Operationen auf dem Konto starten erst danach.
+     * Fertige Einträge entfernen sich selbst.
+     */
+    private final Map<String, CompletableFuture<?>> tails = new HashMap<>();
+
+    /**
+     * Fassade mit eigenem Executor: virtuelle Threads, wenn die Laufzeitumgebung sie kennt, sonst ein
+     * mitwachsender Pool. Der Executor wird mit {@link #close()} beendet.
+     *
+     * @param bank die Bank, auf die zugegriffen wird
+     */
+    public AsyncBank(Bank bank) {
+        this(bank, defaultExecutor(), true);
+    }
+
+    /**
+     * Fassade über einen vorhandenen Executor, der beim {@link #close()} nicht beendet wird.
+     *
+     * @param bank     die Bank, auf die zugegriffen wird
+     * @param executor führt die Operationen aus
+     */
+    public AsyncBank(Bank bank, Executor executor) {
+        this(bank, executor, false);
+    }
+
+    private AsyncBank(Bank bank, Executor executor, boolean ownsExecutor) {
+        this.bank = bank;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * @return ein Executor mit einem virtuellen Thread pro Aufgabe (ab Java 21), sonst ein Cached-Thread-Pool
+     * mit Daemon-Threads
+     */
+    static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "async-bank");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return die Bank hinter der Fassade
+     */
+    public Bank getBank() {
+        return bank;
+    }
+
+    public CompletableFuture<Void> createAccount(String account) {
+        return inOrder(account, () -> {
+            bank.createAccount(account);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> createAccount(String account, List<Transaction> transactions) {
+        return inOrder(account, () -> {
+            bank.createAccount(account, transactions);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addTransaction(String account, Transaction transaction) {
+        return inOrder(account, () -> {
+            bank.addTransaction(account, transaction);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addTransactions(String account, Collection<Transaction> transactions) {
+        return inOrder(account, () -> {
+            bank.addTransactions(account, transactions);
+            return null;
+        });
+    }
+
+    /**
+     * Bucht einen Stapel über mehrere Konten, nach allen vorher angenommenen Operationen auf diesen Konten.
+     */
+    public CompletableFuture<Void> addTransactions(Map<String, ? extends Collection<Transaction>> transactions) {
+        return inOrder(transactions.keySet().toArray(new String[0]), () -> {
+            bank.addTransactions(transactions);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> transfer(String sender, String recipient, double amount, String date, String description) {
+        return inOrder(sender, recipient, () -> {
+            bank.transfer(sender, recipient, amount, date, description);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeTransaction(String account, Transaction transaction) {
+        return inOrder(account, () -> {
+            bank.removeTransaction(account, transaction);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAccount(String account) {
+        return inOrder(account, () -> {
+            bank.deleteAccount(account);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> containsTransaction(String account, Transaction transaction) {
+        return inOrder(account, () -> bank.containsTransaction(account, transaction));
+    }
+
+    public CompletableFuture<Double> getAccountBalance(String account) {
+        return inOrder(account, () -> bank.getAccountBalance(account));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactions(String account) {
+        return inOrder(account, () -> bank.getTransactions(account));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionsSorted(String account, boolean asc) {
+        return inOrder(account, () -> bank.getTransactionsSorted(account, asc));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionsSorted(String account, boolean asc, int limit) {
+        return inOrder(account, () -> bank.getTransactionsSorted(account, asc, limit));
+    }
+
+    public CompletableFuture<TransactionPage> getTransactionsPage(String account, TransactionOrder order, boolean asc,
+                                                                  String cursor, int pageSize) {
+        return inOrder(account, () -> bank.getTransactionsPage(account, order, asc, cursor, pageSize));
+    }
+
+    public CompletableFuture<Map<String, List<Transaction>>> searchTransactions(String query) {
+        return submit(() -> bank.searchTransactions(query));
+    }
+
+    public CompletableFuture<List<Transaction>> searchTransactions(String account, String query) {
+        return inOrder(account, () -> bank.searchTransactions(account, query));
+    }
+
+    /**
+     * Führt eine mit {@link Bank#query(String)} gebaute Abfrage aus, in Reihenfolge mit den Operationen auf ihrem Konto.
+     *
+     * @param query die Abfrage
+     * @return die Treffer
+     */
+    public CompletableFuture<List<Transaction>> list(TransactionQuery query) {
+        return inOrder(query.getAccount(), query::list);
+    }
+
+    public CompletableFuture<List<Transaction>> getTransfersBetween(String first, String second) {
+        return submit(() -> bank.getTransfersBetween(first, second));
+    }
+
+    public CompletableFuture<List<Counterparty>> getTopCounterparties(String account, int limit) {
+        return submit(() -> bank.getTopCounterparties(account, limit));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionsBetween(String account, String from, String to) {
+        return inOrder(account, () -> bank.getTransactionsBetween(account, from, to));
+    }
+
+    public CompletableFuture<Double> getAccountBalance(String account, String date) {
+        return inOrder(account, () -> bank.getAccountBalance(account, date));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionsByType(String account, boolean positive) {
+        return inOrder(account, () -> bank.getTransactionsByType(account, positive));
+    }
+
+    public CompletableFuture<AccountStatistics> getStatistics(String account) {
+        return inOrder(account, () -> bank.getStatistics(account));
+    }
+
+    public CompletableFuture<AccountStatistics> getDailyStatistics(String account, String date) {
+        return inOrder(account, () -> bank.getDailyStatistics(account, date));
+    }
+
+    public CompletableFuture<SortedMap<Integer, AccountStatistics>> getMonthlyStatistics(String account) {
+        return inOrder(account, () -> bank.getMonthlyStatistics(account));
+    }
+
+    public CompletableFuture<Map<String, Double>> getTopAccounts(int limit) {
+        return submit(() -> bank.getTopAccounts(limit));
+    }
+
+    public CompletableFuture<List<Transaction>> getLargestTransactions(int limit) {
+        return submit(() -> bank.getLargestTransactions(limit));
+    }
+
+    public CompletableFuture<AccountStatistics> getBankStatistics() {
+        return submit(bank::getBankStatistics);
+    }
+
+    public CompletableFuture<int[]> getAmountHistogram(double... bounds) {
+        return submit(() -> bank.getAmountHistogram(bounds));
+    }
+
+    public CompletableFuture<Bank> snapshot() {
+        return submit(bank::snapshot);
+    }
+
+    public CompletableFuture<List<String>> getAllAccounts() {
+        return submit(bank::getAllAccounts);
+    }
+
+    /**
+     * Startet eine Operation ohne Reihenfolge.
+     */
+    private <T> CompletableFuture<T> submit(BankCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(call, result);
+        return result;
+    }
+
+    /**
+     * Startet eine Operation, sobald alle vorher angenommenen Operationen auf dem Konto fertig sind.
+     */
+    private <T> CompletableFuture<T> inOrder(String account, BankCall<T> call) {
+        return inOrder(new String[]{account}, call);
+    }
+
+    private <T> CompletableFuture<T> inOrder(String first, String second, BankCall<T> call) {
+        return inOrder(new String[]{first, second}, call);
+    }
+
+    private <T> CompletableFuture<T> inOrder(String[] accounts, BankCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<?>> predecessors = new ArrayList<>(accounts.length);
+        synchronized (tails) {
+            for (String account : accounts) {
+                CompletableFuture<?> tail = tails.put(account, result);
+                if (tail != null && tail != result) predecessors.add(tail);
+            }
+        }
+        result.whenComplete((value, error) -> {
+            synchronized (tails) {
+                for (String account : accounts) tails.remove(account, result);
+            }
+        });
+
+        CompletableFuture<?> start = predecessors.isEmpty() ? DONE
+                : CompletableFuture.allOf(predecessors.toArray(new CompletableFuture<?>[0]));
+        // Fehler der Vorgänger sind deren Sache, gestartet wird trotzdem
+        start.whenComplete((value, error) -> execute(call, result));
+        return result;
+    }
+
+    /**
+     * Übergibt eine Operation an den Executor. Lehnt er sie ab (z.B. nach {@link #close()}), wird das Future mit
+     * dessen {@link RejectedExecutionException} abgeschlossen, statt nie fertig zu werden.
+     */
+    private <T> void execute(BankCall<T> call, CompletableFuture<T> result) {
+        try {
+            executor.execute(() -> run(call, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static <T> void run(BankCall<T> call, CompletableFuture<T> result) {
+        try {
+            result.complete(call.call());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Beendet den eigenen Executor nach den laufenden Operationen; ein übergebener Executor bleibt unberührt.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor && executor instanceof ExecutorService service) service.shutdown();
+    }
+}
@@ -3,11 +3,24 @@ package bank;
 import bank.exceptions.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Interface for a generic bank. Provides multiple methods to handle the interaction between
  * accounts and transactions.
+ * <p>
+ * Only the account and transaction basics are abstract. Optional capabilities have default implementations
+ * that scan {@link #getTransactions(String)} of every account; implementations override them with indexed
+ * versions.
  */
 public interface Bank {
 
@@ -44,6 +57,71 @@ public interface Bank {
     void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException,IOException;
 
+    /**
+     * Adds several transactions to an account at once: either all of them are added or none.
+     * Duplicates are also detected within the collection. The account is persisted once.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions to be added
+     * @throws TransactionAlreadyExistException if one of the transactions already exists or is contained twice
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if the validation check for one of the transactions fails
+     */
+    default void addTransactions(String account, Collection<Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        addTransactions(Collections.singletonMap(account, transactions));
+    }
+
+    /**
+     * Like {@link #addTransactions(String, Collection)} for several accounts: either all transactions of all
+     * accounts are added or none. Each touched account is persisted once.
+     * The default adds the transactions one by one and removes the added ones again if one of them fails,
+     * so it persists an account once per transaction. If such a removal fails too, that failure is attached
+     * to the original exception as suppressed.
+     *
+     * @param transactions the transactions to be added per account
+     * @throws TransactionAlreadyExistException if one of the transactions already exists or is contained twice
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAttributeException    if the validation check for one of the transactions fails
+     */
+    default void addTransactions(Map<String, ? extends Collection<Transaction>> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        List<Map.Entry<String, Transaction>> added = new ArrayList<>();
+        try {
+            for (Map.Entry<String, ? extends Collection<Transaction>> entry : transactions.entrySet()) {
+                for (Transaction transaction : entry.getValue()) {
+                    addTransaction(entry.getKey(), transaction);
+                    added.add(Map.entry(entry.getKey(), transaction));
+                }
+            }
+        } catch (Throwable e) {
+            for (int i = added.size() - 1; i >= 0; i--) {
+                try {
+                    removeTransaction(added.get(i).getKey(), added.get(i).getValue());
+                } catch (Throwable rollback) {
+                    e.addSuppressed(rollback);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Books a transfer on both sides at once: an outgoing transfer on the sender's account and an incoming
+     * transfer on the recipient's account. Either both sides are stored and persisted or neither is.
+     *
+     * @param sender      the account the money is taken from
+     * @param recipient   the account the money is sent to
+     * @param amount      the transferred amount, must be positive
+     * @param date        the date of the transfer
+     * @param description the description of the transfer
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAlreadyExistException if the transfer already exists on one of the accounts
+     * @throws TransactionAttributeException    if the amount is not positive or sender and recipient are equal
+     */
+    void transfer(String sender, String recipient, double amount, String date, String description)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, IOException;
+
     /**
      * Removes a transaction from an account. If the transaction does not exist, an exception is
      * thrown.
@@ -82,7 +160,7 @@ public interface Bank {
 
     /**
      * Returns a sorted list (-> calculated amounts) of transactions for a specific account. Sorts the list either in ascending or descending order
-     * (or empty).
+     * (or empty). The order returned by {@link #getTransactions(String)} is not changed.
      *
      * @param account the selected account
      * @param asc     selects if the transaction list is sorted in ascending or descending order
@@ -90,6 +168,160 @@ public interface Bank {
      */
     List<Transaction> getTransactionsSorted(String account, boolean asc);
 
+    /**
+     * Returns at most {@code limit} transactions of an account sorted by calculated amount
+     * (e.g. the ten largest expenses). The stored order of the account is not changed.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param limit   maximum number of transactions, negative for all
+     * @return the first {@code limit} transactions in sorted order
+     */
+    default List<Transaction> getTransactionsSorted(String account, boolean asc, int limit) {
+        List<Transaction> sorted = getTransactionsSorted(account, asc);
+        return limit < 0 || limit >= sorted.size() ? sorted : new ArrayList<>(sorted.subList(0, limit));
+    }
+
+    /**
+     * Returns one page of the transactions of an account. Only the transactions of the requested page are
+     * copied. The returned cursor points behind the last transaction of the page rather than at a position,
+     * so paging stays consistent while transactions are added or removed in between: no transaction is
+     * returned twice and transactions that existed during the whole paging are not skipped.
+     * Within equal sort keys the insertion order decides; descending order reverses it completely.
+     *
+     * @param account  the selected account
+     * @param order    the order of the transactions
+     * @param asc      selects ascending or descending order
+     * @param cursor   the cursor of the previous page, {@code null} for the first page
+     * @param pageSize maximum number of transactions on the page, must be positive
+     * @return the page and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor does not belong to this order or pageSize is not positive
+     */
+    TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize);
+
+    /**
+     * Searches the descriptions of the transactions of all accounts. The query is split into words
+     * (case-insensitive, letters and digits); a transaction matches if its description contains every word.
+     * A word ending in {@code *} matches every description word starting with it, e.g. {@code "amaz*"}.
+     *
+     * @param query the search words
+     * @return the matching transactions per account in stored order, accounts without matches are omitted
+     */
+    default Map<String, List<Transaction>> searchTransactions(String query) {
+        Map<String, List<Transaction>> result = new HashMap<>();
+        for (String account : getAllAccounts()) {
+            List<Transaction> found = searchTransactions(account, query);
+            if (!found.isEmpty()) result.put(account, found);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #searchTransactions(String)}, restricted to one account.
+     *
+     * @param account the selected account
+     * @param query   the search words
+     * @return the matching transactions in stored order
+     */
+    default List<Transaction> searchTransactions(String account, String query) {
+        List<Transaction> result = new ArrayList<>();
+        DescriptionIndex.Query parsed = DescriptionIndex.Query.parse(query);
+        if (parsed.isEmpty()) return result;
+        for (Transaction transaction : getTransactions(account)) {
+            if (parsed.matches(transaction.getDescription())) result.add(transaction);
+        }
+        return result;
+    }
+
+    /**
+     * Starts a composable query over the transactions of an account, e.g. type, sign, amount and date range,
+     * counterparty, description, order and limit. The query is executed by {@link TransactionQuery#list()}.
+     *
+     * @param account the selected account
+     * @return an empty query for the account
+     */
+    default TransactionQuery query(String account) {
+        return new TransactionQuery(account, query -> {
+            List<Transaction> matches = new ArrayList<>();
+            for (Transaction transaction : getTransactions(query.getAccount())) {
+                if (query.matches(transaction, false)) matches.add(transaction);
+            }
+            return query.finish(matches);
+        });
+    }
+
+    /**
+     * Returns all stored transfers between two names, in either direction and from all accounts
+     * (a transfer booked in both accounts is returned once per account).
+     *
+     * @param first  sender or recipient
+     * @param second the other side
+     * @return the transfers ordered by account name, then in stored order
+     */
+    default List<Transaction> getTransfersBetween(String first, String second) {
+        List<Transaction> result = new ArrayList<>();
+        for (String account : new TreeSet<>(getAllAccounts())) {
+            for (Transaction transaction : getTransactions(account)) {
+                if (transaction instanceof Transfer t
+                        && ((first.equals(t.getSender()) && second.equals(t.getRecipient()))
+                        || (second.equals(t.getSender()) && first.equals(t.getRecipient())))) {
+                    result.add(t);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the counterparties of an account ranked by transferred volume, largest first.
+     * Transfers in both directions are counted. A transfer between two accounts of this bank is booked in both
+     * accounts but counts once: per direction only the sender's bookings or only the other bookings are counted,
+     * whichever are more.
+     *
+     * @param account the sender or recipient name, does not need to be an account of this bank
+     * @param limit   maximum number of counterparties, negative for all
+     * @return the counterparties with transfer count and volume
+     */
+    default List<Counterparty> getTopCounterparties(String account, int limit) {
+        Map<String, CounterpartyIndex.Flows> flows = new HashMap<>();
+        for (String owner : getAllAccounts()) {
+            for (Transaction transaction : getTransactions(owner)) {
+                if (!(transaction instanceof Transfer t) || t.getSender() == null || t.getRecipient() == null) continue;
+                String counterpart;
+                if (account.equals(t.getSender())) counterpart = t.getRecipient();
+                else if (account.equals(t.getRecipient())) counterpart = t.getSender();
+                else continue;
+                flows.computeIfAbsent(counterpart, k -> new CounterpartyIndex.Flows())
+                        .add(account.equals(t.getSender()), owner.equals(t.getSender()), 1, t.getAmount());
+            }
+        }
+        return CounterpartyIndex.rank(flows, limit);
+    }
+
+    /**
+     * Returns all transactions of an account dated between {@code from} and {@code to} (both inclusive),
+     * ordered by date. Transactions with a date in neither supported format are not included.
+     * Dates are accepted as "DD.MM.YYYY" or "YYYY-MM-DD".
+     *
+     * @param account the selected account
+     * @param from    first day of the range
+     * @param to      last day of the range
+     * @return the transactions in the range, ordered by date
+     * @throws IllegalArgumentException if {@code from} or {@code to} is not a valid date
+     */
+    List<Transaction> getTransactionsBetween(String account, String from, String to);
+
+    /**
+     * Calculates the balance of an account at the end of the given day, i.e. the sum of the calculated
+     * amounts of all transactions dated on or before {@code date}.
+     *
+     * @param account the selected account
+     * @param date    the reference day ("DD.MM.YYYY" or "YYYY-MM-DD")
+     * @return the balance as of that day
+     * @throws IllegalArgumentException if {@code date} is not a valid date
+     */
+    double getAccountBalance(String account, String date);
+
     /**
      * Returns a list of either positive or negative transactions (-> calculated amounts).
      *
@@ -99,6 +331,143 @@ public interface Bank {
      */
     List<Transaction> getTransactionsByType(String account, boolean positive);
 
+    /**
+     * Returns count, total in, total out, min and max of the calculated amounts of an account.
+     *
+     * @param account the selected account
+     * @return the statistics, all zero for an empty account
+     */
+    default AccountStatistics getStatistics(String account) {
+        Rollup all = new Rollup();
+        for (Transaction transaction : getTransactions(account)) all.add(0, transaction.calculate());
+        return all.size() == 0 ? AccountStatistics.EMPTY : all.get(0);
+    }
+
+    /**
+     * Returns the statistics of all transactions of an account on one day.
+     *
+     * @param account the selected account
+     * @param date    the day in the same formats as transaction dates
+     * @return the statistics of that day, all zero if there are no transactions
+     * @throws IllegalArgumentException if {@code date} is not a valid date
+     */
+    default AccountStatistics getDailyStatistics(String account, String date) {
+        int day = DateKey.parse(date);
+        Rollup rollup = new Rollup();
+        for (Transaction transaction : getTransactions(account)) {
+            if (DateKey.of(transaction.getDate()) == day) rollup.add(day, transaction.calculate());
+        }
+        return rollup.size() == 0 ? AccountStatistics.EMPTY : rollup.get(0);
+    }
+
+    /**
+     * Returns the statistics of an account per month. Transactions with an invalid date are not included.
+     *
+     * @param account the selected account
+     * @return statistics per month, keyed and sorted by month as YYYYMM (e.g. 202503)
+     */
+    default SortedMap<Integer, AccountStatistics> getMonthlyStatistics(String account) {
+        Rollup rollup = new Rollup();
+        for (Transaction transaction : getTransactions(account)) {
+            int day = DateKey.of(transaction.getDate());
+            if (day != DateKey.INVALID) rollup.add(DateKey.month(day), transaction.calculate());
+        }
+        return rollup.toMap();
+    }
+
+    /**
+     * Returns the accounts with the highest balance, computed in parallel over all accounts.
+     *
+     * @param limit maximum number of accounts, negative for all
+     * @return account names with their balance, highest first (ties by name)
+     */
+    default Map<String, Double> getTopAccounts(int limit) {
+        return TopK.toRanking(getAllAccounts().parallelStream()
+                .map(account -> Map.entry(account, getAccountBalance(account)))
+                .collect(() -> new TopK<>(limit, TopK.ACCOUNTS_BY_BALANCE), TopK::offer, TopK::merge));
+    }
+
+    /**
+     * Returns the transactions with the largest calculated amount across all accounts, computed in parallel.
+     *
+     * @param limit maximum number of transactions, negative for all
+     * @return the transactions, largest first
+     */
+    default List<Transaction> getLargestTransactions(int limit) {
+        return streamTransactions().parallel()
+                .collect(() -> new TopK<>(limit, TopK.BY_AMOUNT), TopK::offer, TopK::merge)
+                .toList();
+    }
+
+    /**
+     * Returns count, total deposits (in), total withdrawals (out), min and max over all accounts of the bank.
+     *
+     * @return the bank-wide statistics
+     */
+    default AccountStatistics getBankStatistics() {
+        return getAllAccounts().parallelStream()
+                .map(this::getStatistics)
+                .reduce(AccountStatistics.EMPTY, AccountStatistics::combine);
+    }
+
+    /**
+     * Counts the calculated amounts of all transactions of the bank per bucket.
+     * Bucket 0 holds amounts below {@code bounds[0]}, bucket i holds amounts in {@code [bounds[i - 1], bounds[i])}
+     * and the last bucket holds amounts from {@code bounds[bounds.length - 1]} upwards.
+     *
+     * @param bounds strictly ascending bucket bounds
+     * @return {@code bounds.length + 1} counts
+     * @throws IllegalArgumentException if the bounds are not strictly ascending
+     */
+    default int[] getAmountHistogram(double... bounds) {
+        AccountStatistics.checkBounds(bounds);
+        int[] counts = new int[bounds.length + 1];
+        streamTransactions().forEach(transaction -> counts[AccountStatistics.bucketOf(bounds, transaction.calculate())]++);
+        return counts;
+    }
+
+    /**
+     * Returns a stream over the transactions of an account in stored order, without copying them.
+     * The stream splits evenly and may be used with {@link Stream#parallel()}.
+     * The account must not be modified while the stream is evaluated.
+     *
+     * @param account the selected account
+     * @return a sized stream of the account's transactions
+     */
+    default Stream<Transaction> streamTransactions(String account) {
+        return StreamSupport.stream(new TransactionSpliterator(List.of(getTransactions(account))), false);
+    }
+
+    /**
+     * Returns a stream over the transactions of all accounts, account by account, without copying them.
+     * The stream splits evenly across account boundaries and may be used with {@link Stream#parallel()}.
+     * The bank must not be modified while the stream is evaluated.
+     *
+     * @return a sized stream of all transactions in the bank
+     */
+    default Stream<Transaction> streamTransactions() {
+        List<List<Transaction>> segments = new ArrayList<>();
+        for (String account : getAllAccounts()) segments.add(getTransactions(account));
+        return StreamSupport.stream(new TransactionSpliterator(segments), false);
+    }
+
+    /**
+     * Returns a read-only view of the whole bank frozen at the current state, e.g. for reports that
+     * query several accounts and need consistent totals. Later changes to the bank are not visible in the
+     * snapshot, and a transfer is either visible on both sides or on neither. All mutating methods of the
+     * snapshot throw {@link UnsupportedOperationException}.
+     * The default copies the transactions of every account, which costs O(n) and is only consistent if the bank
+     * is not modified during the copy.
+     *
+     * @return the snapshot
+     */
+    default Bank snapshot() {
+        Map<String, TransactionStore> frozen = new HashMap<>();
+        for (String account : getAllAccounts()) {
+            frozen.put(account, new FrozenTransactions(List.copyOf(getTransactions(account))));
+        }
+        return new BankSnapshot(new CompactBank("Snapshot", 0, 0, frozen));
+    }
 
     List<String> getAllAccounts();
 
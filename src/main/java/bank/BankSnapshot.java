@@ -0,0 +1,235 @@
+package bank;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Schreibgeschützte Sicht auf eine Bank zu einer festen Version, siehe {@link Bank#snapshot()}.
+ * <p>
+ * Beim Erzeugen wird nur die Version gelesen und der Snapshot bei der {@link VersionClock} registriert.
+ * Beim ersten Zugriff hält er die Transaktionslisten aller Konten zu dieser Version in einer
+ * {@link CompactBank} über {@link FrozenTransactions} fest und meldet sich wieder ab; alle Abfragen laufen
+ * danach über diese Listen. Änderungen werfen eine {@link UnsupportedOperationException}.
+ */
+final class BankSnapshot implements Bank {
+
+    private final VersionClock clock;
+    private final long version;
+    private LongFunction<CompactBank> materializer;
+    private volatile CompactBank view;
+
+    /**
+     * @param clock        die Versionen der Bank
+     * @param materializer hält die Konten zu einer Version fest
+     */
+    BankSnapshot(VersionClock clock, LongFunction<CompactBank> materializer) {
+        this.clock = clock;
+        this.materializer = materializer;
+        this.version = clock.open(this);
+    }
+
+    /**
+     * Snapshot über schon festgehaltene Konten.
+     */
+    BankSnapshot(CompactBank view) {
+        this.clock = null;
+        this.version = 0;
+        this.view = view;
+    }
+
+    private CompactBank view() {
+        CompactBank result = view;
+        if (result == null) {
+            synchronized (this) {
+                result = view;
+                if (result == null) {
+                    view = result = materializer.apply(version);
+                    materializer = null;
+                    clock.close(this); // die alten Stände werden nicht mehr gebraucht
+                }
+            }
+        }
+        return result;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Snapshot ist schreibgeschützt");
+    }
+
+    @Override
+    public void createAccount(String account) {
+        throw readOnly();
+    }
+
+    @Override
+    public void createAccount(String account, List<Transaction> transactions) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTransactions(String account, Collection<Transaction> transactions) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTransactions(Map<String, ? extends Collection<Transaction>> transactions) {
+        throw readOnly();
+    }
+
+    @Override
+    public void transfer(String sender, String recipient, double amount, String date, String description) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteAccount(String account) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        return view().containsTransaction(account, transaction);
+    }
+
+    @Override
+    public double getAccountBalance(String account) {
+        return view().getAccountBalance(account);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        return view().getTransactions(account);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return view().getTransactionsSorted(account, asc);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int limit) {
+        return view().getTransactionsSorted(account, asc, limit);
+    }
+
+    @Override
+    public TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        return view().getTransactionsPage(account, order, asc, cursor, pageSize);
+    }
+
+    @Override
+    public Map<String, List<Transaction>> searchTransactions(String query) {
+        return view().searchTransactions(query);
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String account, String query) {
+        return view().searchTransactions(account, query);
+    }
+
+    @Override
+    public TransactionQuery query(String account) {
+        return view().query(account);
+    }
+
+    @Override
+    public List<Transaction> getTransfersBetween(String first, String second) {
+        return view().getTransfersBetween(first, second);
+    }
+
+    @Override
+    public List<Counterparty> getTopCounterparties(String account, int limit) {
+        return view().getTopCounterparties(account, limit);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) {
+        return view().getTransactionsBetween(account, from, to);
+    }
+
+    @Override
+    public double getAccountBalance(String account, String date) {
+        return view().getAccountBalance(account, date);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        return view().getTransactionsByType(account, positive);
+    }
+
+    @Override
+    public AccountStatistics getStatistics(String account) {
+        return view().getStatistics(account);
+    }
+
+    @Override
+    public AccountStatistics getDailyStatistics(String account, String date) {
+        return view().getDailyStatistics(account, date);
+    }
+
+    @Override
+    public SortedMap<Integer, AccountStatistics> getMonthlyStatistics(String account) {
+        return view().getMonthlyStatistics(account);
+    }
+
+    @Override
+    public Map<String, Double> getTopAccounts(int limit) {
+        return view().getTopAccounts(limit);
+    }
+
+    @Override
+    public List<Transaction> getLargestTransactions(int limit) {
+        return view().getLargestTransactions(limit);
+    }
+
+    @Override
+    public AccountStatistics getBankStatistics() {
+        return view().getBankStatistics();
+    }
+
+    @Override
+    public int[] getAmountHistogram(double... bounds) {
+        return view().getAmountHistogram(bounds);
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactions(String account) {
+        return view().streamTransactions(account);
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactions() {
+        return view().streamTransactions();
+    }
+
+    /**
+     * Ein Snapshot ändert sich nicht, er ist sein eigener Snapshot.
+     */
+    @Override
+    public Bank snapshot() {
+        return this;
+    }
+
+    @Override
+    public List<String> getAllAccounts() {
+        return view().getAllAccounts();
+    }
+
+    @Override
+    public String toString() {
+        return "BankSnapshot[version=" + version + ']';
+    }
+}
@@ -0,0 +1,179 @@
+package bank;
+
+import java.util.Arrays;
+
+/**
+ * Speichert die Transaktionen eines Kontos spaltenweise (struct-of-arrays) in primitiven Arrays.
+ * Statt einem Objekt pro Transaktion gibt es ein Array pro Attribut, Strings werden über ein
+ * {@link StringDictionary} als int-IDs abgelegt. {@link Transaction}-Objekte werden erst erzeugt,
+ * wenn sie wirklich gebraucht werden (z.B. für die Anzeige).
+ */
+public class ColumnarTransactions implements TransactionStore {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final StringDictionary dictionary;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int[] descriptions = new int[INITIAL_CAPACITY];
+    private double[] incomingInterests = new double[INITIAL_CAPACITY];
+    private double[] outgoingInterests = new double[INITIAL_CAPACITY];
+    private int[] senders = new int[INITIAL_CAPACITY];
+    private int[] recipients = new int[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private int size;
+    private long nextSequence;
+
+    /**
+     * @param dictionary das (bankweite) Wörterbuch für Datum, Beschreibung, Sender und Empfänger
+     */
+    public ColumnarTransactions(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Transaction transaction) {
+        if (size == types.length) grow();
+
+        types[size] = TransactionStore.typeOf(transaction);
+        sequences[size] = nextSequence++;
+        amounts[size] = transaction.getAmount();
+        dates[size] = dictionary.encode(transaction.getDate());
+        descriptions[size] = dictionary.encode(transaction.getDescription());
+
+        incomingInterests[size] = 0;
+        outgoingInterests[size] = 0;
+        senders[size] = StringDictionary.NONE;
+        recipients[size] = StringDictionary.NONE;
+
+        if (transaction instanceof Payment p) {
+            incomingInterests[size] = p.getIncomingInterest();
+            outgoingInterests[size] = p.getOutgoingInterest();
+        } else if (transaction instanceof Transfer t) {
+            senders[size] = dictionary.encode(t.getSender());
+            recipients[size] = dictionary.encode(t.getRecipient());
+        }
+        size++;
+    }
+
+    @Override
+    public void remove(int index) {
+        checkIndex(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(types, index + 1, types, index, moved);
+            System.arraycopy(amounts, index + 1, amounts, index, moved);
+            System.arraycopy(dates, index + 1, dates, index, moved);
+            System.arraycopy(descriptions, index + 1, descriptions, index, moved);
+            System.arraycopy(incomingInterests, index + 1, incomingInterests, index, moved);
+            System.arraycopy(outgoingInterests, index + 1, outgoingInterests, index, moved);
+            System.arraycopy(senders, index + 1, senders, index, moved);
+            System.arraycopy(recipients, index + 1, recipients, index, moved);
+            System.arraycopy(sequences, index + 1, sequences, index, moved);
+        }
+        size--;
+    }
+
+    @Override
+    public int indexOf(Transaction transaction) {
+        if (transaction == null) return -1;
+
+        byte type = TransactionStore.typeOf(transaction);
+        int date = dictionary.find(transaction.getDate());
+        int description = dictionary.find(transaction.getDescription());
+        if (date == StringDictionary.MISSING || description == StringDictionary.MISSING) return -1;
+
+        double amount = transaction.getAmount();
+        double in = 0, out = 0;
+        int sender = StringDictionary.NONE, recipient = StringDictionary.NONE;
+        if (transaction instanceof Payment p) {
+            in = p.getIncomingInterest();
+            out = p.getOutgoingInterest();
+        } else if (transaction instanceof Transfer t) {
+            sender = dictionary.find(t.getSender());
+            recipient = dictionary.find(t.getRecipient());
+            if (sender == StringDictionary.MISSING || recipient == StringDictionary.MISSING) return -1;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type && amounts[i] == amount && dates[i] == date && descriptions[i] == description
+                    && incomingInterests[i] == in && outgoingInterests[i] == out
+                    && senders[i] == sender && recipients[i] == recipient) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long sequence(int index) {
+        checkIndex(index);
+        return sequences[index];
+    }
+
+    @Override
+    public double calculate(int index) {
+        checkIndex(index);
+        return calculateRow(index);
+    }
+
+    private double calculateRow(int i) {
+        return TransactionStore.calculate(types[i], amounts[i], incomingInterests[i], outgoingInterests[i]);
+    }
+
+    /**
+     * Summiert direkt über die Spalten, ohne Bereichsprüfung pro Zeile.
+     */
+    @Override
+    public double balance() {
+        double balance = 0.0;
+        for (int i = 0; i < size; i++) {
+            balance += calculateRow(i);
+        }
+        return balance;
+    }
+
+    @Override
+    public String getDate(int index) {
+        checkIndex(index);
+        return dictionary.decode(dates[index]);
+    }
+
+    @Override
+    public String getDescription(int index) {
+        checkIndex(index);
+        return dictionary.decode(descriptions[index]);
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        return TransactionStore.materialize(types[index], dictionary.decode(dates[index]), amounts[index],
+                dictionary.decode(descriptions[index]), incomingInterests[index], outgoingInterests[index],
+                dictionary.decode(senders[index]), dictionary.decode(recipients[index]));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", Größe " + size);
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        incomingInterests = Arrays.copyOf(incomingInterests, capacity);
+        outgoingInterests = Arrays.copyOf(outgoingInterests, capacity);
+        senders = Arrays.copyOf(senders, capacity);
+        recipients = Arrays.copyOf(recipients, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+}
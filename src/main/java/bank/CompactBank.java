@@ -0,0 +1,440 @@
+package bank;
+
+import bank.exceptions.*;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Bank mit dem gleichen Verhalten wie {@link PrivateBank}, die die Transaktionen aber nicht als
+ * Objekte in {@code ArrayList}s hält, sondern kodiert in einem {@link TransactionStore}
+ * (spaltenweise auf dem Heap oder als Datensätze außerhalb des Heaps, siehe {@link StorageMode}).
+ * Alle Konten teilen sich ein {@link StringDictionary}. Bei {@link StorageMode#COLUMNAR} werden dadurch Datum,
+ * Beschreibung, Sender und Empfänger nur einmal gespeichert, bei {@link StorageMode#OFF_HEAP} steht dort nur das
+ * Datum und der übrige Text liegt außerhalb des Heaps.
+ * Zurückgegebene Transaktionen sind Kopien, die beim Zugriff aus dem Speicher erzeugt werden.
+ */
+public class CompactBank implements Bank {
+
+    private final Map<String, TransactionStore> accounts = new HashMap<>();
+    private final StringDictionary dictionary = new StringDictionary();
+    private final String name;
+    private final double incomingInterest;
+    private final double outgoingInterest;
+    private final String directoryName;
+    private final StorageMode storageMode;
+
+    /**
+     * Erstellt die Bank mit spaltenweiser Speicherung und liest vorhandene Konten aus dem Verzeichnis ein.
+     *
+     * @param name             Name der Bank
+     * @param incomingInterest Einzahlungszins
+     * @param outgoingInterest Auszahlungszins
+     * @param directoryName    Verzeichnis für die JSON-Dateien
+     */
+    public CompactBank(String name, double incomingInterest, double outgoingInterest, String directoryName) throws IOException {
+        this(name, incomingInterest, outgoingInterest, directoryName, StorageMode.COLUMNAR);
+    }
+
+    /**
+     * Erstellt die Bank mit der angegebenen Speicherart und liest vorhandene Konten aus dem Verzeichnis ein.
+     *
+     * @param name             Name der Bank
+     * @param incomingInterest Einzahlungszins
+     * @param outgoingInterest Auszahlungszins
+     * @param directoryName    Verzeichnis für die JSON-Dateien
+     * @param storageMode      wo und wie die Transaktionen gespeichert werden
+     */
+    public CompactBank(String name, double incomingInterest, double outgoingInterest, String directoryName,
+                       StorageMode storageMode) throws IOException {
+        this.name = name;
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+        this.directoryName = directoryName;
+        this.storageMode = storageMode;
+
+        readAccounts();
+    }
+
+    /**
+     * Schreibgeschützte Bank über schon festgehaltene Konten, für {@link BankSnapshot}.
+     * Es gibt kein Verzeichnis, Änderungen werfen über {@link FrozenTransactions} eine Exception.
+     *
+     * @param accounts die Konten, werden nicht kopiert
+     */
+    CompactBank(String name, double incomingInterest, double outgoingInterest, Map<String, TransactionStore> accounts) {
+        this.name = name;
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+        this.directoryName = null;
+        this.storageMode = null;
+        this.accounts.putAll(accounts);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getIncomingInterest() {
+        return incomingInterest;
+    }
+
+    public double getOutgoingInterest() {
+        return outgoingInterest;
+    }
+
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * @return das bankweite Wörterbuch (z.B. um die Anzahl verschiedener Strings zu sehen)
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Liest alle Konten ein und kodiert die Transaktionen direkt in den Speicher.
+     */
+    private void readAccounts() {
+        File[] files = new File(directoryName).listFiles();
+        if (files == null) return;
+
+        Type type = new TypeToken<List<Transaction>>() {}.getType();
+        for (File file : files) {
+            if (!file.getName().endsWith(".json")) continue;
+            String account = file.getName().substring(0, file.getName().length() - 5);
+
+            try {
+                List<Transaction> transactions = PrivateBank.gson.fromJson(Files.readString(file.toPath()), type);
+                if (transactions == null) continue;
+
+                TransactionStore store = newStore();
+                for (Transaction transaction : transactions) store.add(transaction);
+                accounts.put(account, store);
+            } catch (Exception e) {
+                System.out.println("Fehler beim Lesen von " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Speichert ein Konto im gleichen JSON-Format wie {@link PrivateBank}.
+     * Die Transaktionen werden beim Serialisieren einzeln materialisiert.
+     */
+    private void writeAccount(String account) throws IOException {
+        TransactionStore store = accounts.get(account);
+        if (store == null) return;
+
+        Path path = Paths.get(directoryName, account + ".json");
+        if (!Files.exists(path.getParent())) Files.createDirectories(path.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            PrivateBank.gson.toJson(store.asList(), writer);
+        }
+    }
+
+    private TransactionStore newStore() {
+        if (storageMode == StorageMode.OFF_HEAP) return new OffHeapTransactions(dictionary);
+        return new ColumnarTransactions(dictionary);
+    }
+
+    private TransactionStore store(String account) {
+        TransactionStore store = accounts.get(account);
+        if (store == null) throw new AccountDoesNotExistException("Konto existiert nicht!");
+        return store;
+    }
+
+    /**
+     * Bringt eine Transaktion in die Form, in der sie gespeichert wird: Payments bekommen die
+     * Zinsen der Bank, Transfers werden je nach Konto zu Incoming- oder OutgoingTransfer.
+     * Anders als {@link PrivateBank} wird das übergebene Objekt dabei nicht verändert.
+     */
+    private Transaction normalize(String account, Transaction transaction) {
+        if (transaction instanceof Payment p) {
+            Payment copy = new Payment(p);
+            copy.setIncomingInterest(incomingInterest);
+            copy.setOutgoingInterest(outgoingInterest);
+            return copy;
+        }
+        if (transaction instanceof Transfer t) {
+            if (account.equals(t.getSender())) return new OutgoingTransfer(t);
+            if (account.equals(t.getRecipient())) return new IncomingTransfer(t);
+        }
+        return transaction;
+    }
+
+    /**
+     * Sucht die Transaktion so wie übergeben und, falls nicht gefunden, in gespeicherter Form.
+     */
+    private int find(String account, TransactionStore store, Transaction transaction) {
+        int index = store.indexOf(transaction);
+        if (index < 0 && transaction != null) index = store.indexOf(normalize(account, transaction));
+        return index;
+    }
+
+    public void attributeValidation(Transaction transaction) throws TransactionAttributeException {
+        PrivateBank.validateAttributes(transaction);
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException, IOException {
+        if (accounts.containsKey(account)) {
+            throw new AccountAlreadyExistsException("Konto '" + account + "' existiert bereits.");
+        }
+        accounts.put(account, newStore());
+        writeAccount(account);
+    }
+
+    @Override
+    public void createAccount(String account, List<Transaction> transactions)
+            throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+        createAccount(account);
+        for (Transaction transaction : transactions) {
+            addTransaction(account, transaction);
+        }
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        TransactionStore store = store(account);
+        Transaction stored = normalize(account, transaction);
+        if (store.indexOf(stored) >= 0)
+            throw new TransactionAlreadyExistException("Transaction exestiert bereits");
+        attributeValidation(transaction);
+
+        store.add(stored);
+        writeAccount(account);
+    }
+
+    /**
+     * Alle Transaktionen werden vor dem ersten Hinzufügen geprüft, jedes Konto wird danach einmal gespeichert.
+     */
+    @Override
+    public void addTransactions(Map<String, ? extends Collection<Transaction>> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        Map<String, List<Transaction>> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<Transaction>> entry : transactions.entrySet()) {
+            String account = entry.getKey();
+            TransactionStore store = store(account);
+            Set<Transaction> added = new HashSet<>();
+            List<Transaction> stored = new ArrayList<>(entry.getValue().size());
+            for (Transaction transaction : entry.getValue()) {
+                Transaction normalized = normalize(account, transaction);
+                if (store.indexOf(normalized) >= 0 || !added.add(normalized))
+                    throw new TransactionAlreadyExistException("Transaction exestiert bereits");
+                attributeValidation(transaction);
+                stored.add(normalized);
+            }
+            batch.put(account, stored);
+        }
+
+        for (Map.Entry<String, List<Transaction>> entry : batch.entrySet()) {
+            TransactionStore store = store(entry.getKey());
+            for (Transaction transaction : entry.getValue()) store.add(transaction);
+            writeAccount(entry.getKey());
+        }
+    }
+
+    /**
+     * Beide Seiten werden vor dem Speichern geprüft, damit nie nur eine Seite gebucht wird.
+     */
+    @Override
+    public void transfer(String sender, String recipient, double amount, String date, String description)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+        if (Objects.equals(sender, recipient))
+            throw new TransactionAttributeException("Sender und Empfänger müssen verschieden sein!");
+        Transfer transfer = new Transfer(date, amount, description, sender, recipient);
+        attributeValidation(transfer);
+        TransactionStore from = store(sender);
+        TransactionStore to = store(recipient);
+        Transaction outgoing = normalize(sender, transfer);
+        Transaction incoming = normalize(recipient, transfer);
+        if (from.indexOf(outgoing) >= 0 || to.indexOf(incoming) >= 0)
+            throw new TransactionAlreadyExistException("Transaction exestiert bereits");
+
+        from.add(outgoing);
+        to.add(incoming);
+        writeAccount(sender);
+        writeAccount(recipient);
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction)
+            throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
+        TransactionStore store = store(account);
+        int index = find(account, store, transaction);
+        if (index < 0)
+            throw new TransactionDoesNotExistException("Transaktion exestiert nicht");
+
+        store.remove(index);
+        writeAccount(account);
+    }
+
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        TransactionStore store = accounts.get(account);
+        return store != null && find(account, store, transaction) >= 0;
+    }
+
+    @Override
+    public double getAccountBalance(String account) {
+        return store(account).balance();
+    }
+
+    /**
+     * @return schreibgeschützte Sicht, die Transaktionen erst beim Zugriff erzeugt
+     */
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        return store(account).asList();
+    }
+
+    /**
+     * Sortiert nur Zeilennummern, die gespeicherte Reihenfolge bleibt unverändert.
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return store(account).sorted(asc);
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String account, String query) {
+        return store(account).search(query);
+    }
+
+    /**
+     * Ohne Indizes: die Transaktionen des Kontos werden einmal durchlaufen, Betrag und Datum werden vor dem
+     * Materialisieren direkt im Speicher geprüft.
+     */
+    @Override
+    public TransactionQuery query(String account) {
+        return new TransactionQuery(account, query -> {
+            TransactionStore store = store(query.getAccount());
+            List<Transaction> matches = new ArrayList<>();
+            for (int i = 0; i < store.size(); i++) {
+                double amount = store.calculate(i);
+                if (amount < query.getMinAmount() || amount > query.getMaxAmount()) continue;
+                if (query.hasDateRange()) {
+                    int day = DateKey.of(store.getDate(i));
+                    if (day < query.getFromDay() || day > query.getToDay()) continue;
+                }
+                Transaction transaction = store.get(i);
+                if (query.matches(transaction, false)) matches.add(transaction);
+            }
+            return query.finish(matches);
+        });
+    }
+
+    @Override
+    public TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        return store(account).page(order, asc, cursor, pageSize);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) {
+        return store(account).between(DateKey.parse(from), DateKey.parse(to));
+    }
+
+    @Override
+    public double getAccountBalance(String account, String date) {
+        return store(account).balanceUntil(DateKey.parse(date));
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        return store(account).byType(positive);
+    }
+
+    /**
+     * Ohne mitgeführte Summen: die Beträge werden direkt im Speicher durchlaufen, ohne Objekte zu erzeugen.
+     */
+    @Override
+    public AccountStatistics getStatistics(String account) {
+        TransactionStore store = store(account);
+        Rollup all = new Rollup();
+        for (int i = 0; i < store.size(); i++) all.add(0, store.calculate(i));
+        return all.size() == 0 ? AccountStatistics.EMPTY : all.get(0);
+    }
+
+    @Override
+    public AccountStatistics getDailyStatistics(String account, String date) {
+        int day = DateKey.parse(date);
+        TransactionStore store = store(account);
+        Rollup rollup = new Rollup();
+        for (int i = 0; i < store.size(); i++) {
+            if (DateKey.of(store.getDate(i)) == day) rollup.add(day, store.calculate(i));
+        }
+        return rollup.size() == 0 ? AccountStatistics.EMPTY : rollup.get(0);
+    }
+
+    @Override
+    public SortedMap<Integer, AccountStatistics> getMonthlyStatistics(String account) {
+        TransactionStore store = store(account);
+        Rollup rollup = new Rollup();
+        for (int i = 0; i < store.size(); i++) {
+            int day = DateKey.of(store.getDate(i));
+            if (day != DateKey.INVALID) rollup.add(DateKey.month(day), store.calculate(i));
+        }
+        return rollup.toMap();
+    }
+
+    @Override
+    public int[] getAmountHistogram(double... bounds) {
+        AccountStatistics.checkBounds(bounds);
+        return accounts.values().parallelStream().collect(() -> new int[bounds.length + 1], (counts, store) -> {
+            for (int i = 0; i < store.size(); i++) counts[AccountStatistics.bucketOf(bounds, store.calculate(i))]++;
+        }, (counts, other) -> {
+            for (int i = 0; i < counts.length; i++) counts[i] += other[i];
+        });
+    }
+
+    /**
+     * Ohne Versionen: die Transaktionen aller Konten werden materialisiert und kopiert, das kostet O(n).
+     */
+    @Override
+    public Bank snapshot() {
+        Map<String, TransactionStore> frozen = new HashMap<>();
+        for (Map.Entry<String, TransactionStore> entry : accounts.entrySet()) {
+            frozen.put(entry.getKey(), new FrozenTransactions(List.copyOf(entry.getValue().asList())));
+        }
+        return new BankSnapshot(new CompactBank(name, incomingInterest, outgoingInterest, frozen));
+    }
+
+    @Override
+    public List<String> getAllAccounts() {
+        return new ArrayList<>(accounts.keySet());
+    }
+
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        if (accounts.remove(account) == null) {
+            throw new AccountDoesNotExistException("Account '" + account + "' existiert nicht.");
+        }
+        Files.deleteIfExists(Paths.get(directoryName, account + ".json"));
+    }
+
+    @Override
+    public String toString() {
+        return "CompactBank[" +
+                "name='" + name +
+                ", incomingInterest=" + incomingInterest +
+                ", outgoingInterest=" + outgoingInterest +
+                ", storageMode=" + storageMode +
+                ", numAccounts=" + accounts.size() +
+                ']';
+    }
+}
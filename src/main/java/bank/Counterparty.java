@@ -0,0 +1,54 @@
+package bank;
+
+import java.util.Comparator;
+
+/**
+ * Ergebnis von {@link Bank#getTopCounterparties}: eine Gegenseite eines Kontos mit Anzahl und Summe
+ * der Überweisungen zwischen beiden (in beide Richtungen). Eine Überweisung, die beim Sender und beim Empfänger
+ * gebucht ist, zählt einmal.
+ */
+public class Counterparty {
+
+    /**
+     * Sortierung nach Volumen absteigend, bei Gleichstand nach Anzahl absteigend und dann nach Namen.
+     */
+    static final Comparator<Counterparty> BY_VOLUME = Comparator.comparingDouble(Counterparty::getVolume).reversed()
+            .thenComparing(Comparator.comparingInt(Counterparty::getTransferCount).reversed())
+            .thenComparing(Counterparty::getName);
+
+    private final String name;
+    private final int transferCount;
+    private final double volume;
+
+    /**
+     * @param name          Name der Gegenseite
+     * @param transferCount Anzahl der Überweisungen
+     * @param volume        Summe der überwiesenen Beträge
+     */
+    public Counterparty(String name, int transferCount, double volume) {
+        this.name = name;
+        this.transferCount = transferCount;
+        this.volume = volume;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTransferCount() {
+        return transferCount;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    @Override
+    public String toString() {
+        return "Counterparty[" +
+                "name='" + name + '\'' +
+                ", transferCount=" + transferCount +
+                ", volume=" + volume +
+                ']';
+    }
+}
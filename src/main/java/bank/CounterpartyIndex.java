@@ -0,0 +1,309 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bankweiter Index von Namen (Sender oder Empfänger) auf die Überweisungen, in denen sie vorkommen.
+ * Pro Paar von Namen gibt es eine {@link Link}. Sie zählt Anzahl und Volumen als {@link Flows} mit und hält pro
+ * Konto, in dem die Überweisungen gespeichert sind, deren Sequenznummern aus dem {@link AccountIndex}. Abfragen
+ * müssen dadurch weder Konten noch Transaktionen durchlaufen.
+ * <p>
+ * Der Index ist threadsicher und pro Paar partitioniert: jede Verbindung wird nur kurz gesperrt. Angelegt und
+ * entfernt werden Verbindungen über {@link ConcurrentHashMap#compute} auf dem kleineren der beiden Namen, das
+ * Einfügen in eine vorhandene Verbindung kommt ohne compute und ohne Allokation aus.
+ */
+class CounterpartyIndex {
+
+    /**
+     * Kleinerer Name -> größerer Name -> Verbindung.
+     */
+    private final ConcurrentHashMap<String, Map<String, Link>> links = new ConcurrentHashMap<>();
+
+    /**
+     * Name -> Gegenseiten, mit denen es eine Verbindung gibt. Geändert nur innerhalb von compute in {@link #links}.
+     */
+    private final ConcurrentHashMap<String, Set<String>> counterparts = new ConcurrentHashMap<>();
+
+    /**
+     * Alle Überweisungen zwischen zwei Namen, die Flows aus Sicht von {@link #first}. Eine leere Verbindung wird
+     * stillgelegt und nimmt danach nichts mehr auf, so kann compute sie entfernen, ohne dass ein gleichzeitiges
+     * Einfügen verloren geht.
+     */
+    private static final class Link {
+        final String first;
+        private final Flows flows = new Flows();
+        private final Map<String, Postings> byAccount = new HashMap<>(4);
+        private boolean retired;
+
+        Link(String first) {
+            this.first = first;
+        }
+
+        /**
+         * @return false wenn die Verbindung stillgelegt ist
+         */
+        synchronized boolean add(String account, Transfer transfer, int sequence) {
+            if (retired) return false;
+            byAccount.computeIfAbsent(account, k -> new Postings()).add(sequence);
+            flows.add(transfer.getSender().equals(first), account.equals(transfer.getSender()), 1, transfer.getAmount());
+            return true;
+        }
+
+        /**
+         * Entfernt eine Überweisung und legt die Verbindung still, wenn danach keine mehr übrig ist.
+         *
+         * @return true wenn die Verbindung stillgelegt wurde
+         */
+        synchronized boolean remove(String account, Transfer transfer, int sequence) {
+            Postings postings = byAccount.get(account);
+            if (postings == null || !postings.remove(sequence)) return false;
+            if (postings.size() == 0) byAccount.remove(account);
+            flows.add(transfer.getSender().equals(first), account.equals(transfer.getSender()), -1, -transfer.getAmount());
+            if (flows.bookings() == 0) retired = true;
+            return retired;
+        }
+
+        /**
+         * @return eine Kopie der Flows aus Sicht von name
+         */
+        synchronized Flows flowsOf(String name) {
+            Flows copy = new Flows();
+            copy.addAll(flows, !name.equals(first));
+            return copy;
+        }
+
+        /**
+         * @return die Sequenznummern im Konto, null wenn es dort keine gibt
+         */
+        synchronized int[] postingsOf(String account) {
+            Postings postings = byAccount.get(account);
+            return postings == null ? null : postings.toArray();
+        }
+
+        synchronized void collect(Map<String, int[]> result) {
+            for (Map.Entry<String, Postings> entry : byAccount.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toArray());
+            }
+        }
+    }
+
+    /**
+     * Anzahl und Volumen der Buchungen zwischen einem Namen und einer Gegenseite, getrennt nach Richtung und danach,
+     * ob die Buchung im Konto des Senders oder in einem anderen Konto (meist dem des Empfängers) gespeichert ist.
+     * Eine Überweisung zwischen zwei Konten der Bank ist auf beiden Seiten gebucht. Damit sie nur einmal zählt,
+     * wird pro Richtung nur die Seite mit mehr Buchungen gezählt, bei Gleichstand die des Senders.
+     */
+    static final class Flows {
+        private static final int OUTGOING = 0, INCOMING = 1, SENDER_SIDE = 0, OTHER_SIDE = 1;
+
+        /**
+         * [Richtung][Seite]
+         */
+        private final int[][] counts = new int[2][2];
+        private final double[][] volumes = new double[2][2];
+
+        /**
+         * @param outgoing   ob der Name der Sender ist
+         * @param senderSide ob die Buchung im Konto des Senders gespeichert ist
+         * @param count      +1 beim Hinzufügen, -1 beim Entfernen
+         */
+        void add(boolean outgoing, boolean senderSide, int count, double volume) {
+            int direction = outgoing ? OUTGOING : INCOMING, side = senderSide ? SENDER_SIDE : OTHER_SIDE;
+            counts[direction][side] += count;
+            volumes[direction][side] += volume;
+        }
+
+        /**
+         * Addiert andere Flows, z.B. die Teilergebnisse mehrerer Shards.
+         */
+        void addAll(Flows other) {
+            addAll(other, false);
+        }
+
+        private void addAll(Flows other, boolean reversed) {
+            for (int direction = 0; direction < 2; direction++) {
+                int target = reversed ? 1 - direction : direction;
+                for (int side = 0; side < 2; side++) {
+                    counts[target][side] += other.counts[direction][side];
+                    volumes[target][side] += other.volumes[direction][side];
+                }
+            }
+        }
+
+        /**
+         * @return Anzahl aller gespeicherten Buchungen, egal auf welcher Seite
+         */
+        int bookings() {
+            return counts[0][0] + counts[0][1] + counts[1][0] + counts[1][1];
+        }
+
+        Counterparty toCounterparty(String name) {
+            int count = 0;
+            double volume = 0;
+            for (int direction = 0; direction < 2; direction++) {
+                int side = counts[direction][SENDER_SIDE] >= counts[direction][OTHER_SIDE] ? SENDER_SIDE : OTHER_SIDE;
+                count += counts[direction][side];
+                volume += volumes[direction][side];
+            }
+            return new Counterparty(name, count, volume);
+        }
+    }
+
+    /**
+     * Nimmt eine gespeicherte Überweisung auf.
+     *
+     * @param account  Konto, in dem sie gespeichert ist
+     * @param sequence Sequenznummer aus dem {@link AccountIndex}, größer als alle bisherigen des Kontos
+     */
+    void add(String account, Transfer transfer, int sequence) {
+        String sender = transfer.getSender(), recipient = transfer.getRecipient();
+        if (sender == null || recipient == null) return;
+
+        Link link = linkOf(sender, recipient);
+        if (link != null && link.add(account, transfer, sequence)) return;
+
+        boolean senderFirst = sender.compareTo(recipient) <= 0;
+        String first = senderFirst ? sender : recipient, second = senderFirst ? recipient : sender;
+        links.compute(first, (key, seconds) -> { // neue oder gerade stillgelegte Verbindung
+            if (seconds == null) seconds = new ConcurrentHashMap<>();
+            Link current = seconds.get(second);
+            if (current == null) {
+                current = new Link(first);
+                seconds.put(second, current);
+                addCounterpart(sender, recipient);
+                addCounterpart(recipient, sender);
+            }
+            current.add(account, transfer, sequence);
+            return seconds;
+        });
+    }
+
+    /**
+     * Entfernt eine gespeicherte Überweisung, leere Verbindungen werden mit entfernt.
+     */
+    void remove(String account, Transfer transfer, int sequence) {
+        String sender = transfer.getSender(), recipient = transfer.getRecipient();
+        if (sender == null || recipient == null) return;
+
+        boolean senderFirst = sender.compareTo(recipient) <= 0;
+        String first = senderFirst ? sender : recipient, second = senderFirst ? recipient : sender;
+        links.computeIfPresent(first, (key, seconds) -> {
+            Link link = seconds.get(second);
+            if (link != null && link.remove(account, transfer, sequence)) {
+                seconds.remove(second);
+                removeCounterpart(sender, recipient);
+                removeCounterpart(recipient, sender);
+            }
+            return seconds.isEmpty() ? null : seconds;
+        });
+    }
+
+    /**
+     * Sucht alle Überweisungen zwischen zwei Namen, egal in welche Richtung.
+     *
+     * @return pro Konto (nach Namen sortiert) die aufsteigenden Sequenznummern
+     */
+    Map<String, int[]> between(String first, String second) {
+        Map<String, int[]> result = new TreeMap<>();
+        Link link = linkOf(first, second);
+        if (link != null) link.collect(result);
+        return result;
+    }
+
+    /**
+     * Sucht alle Überweisungen eines Kontos, bei denen name Sender oder Empfänger ist.
+     *
+     * @return aufsteigende Sequenznummern aus dem {@link AccountIndex} des Kontos
+     */
+    int[] involving(String name, String account) {
+        int[] result = new int[0];
+        for (String counterpart : counterparts.getOrDefault(name, Set.of())) {
+            Link link = linkOf(name, counterpart); // null, wenn sie inzwischen entfernt wurde
+            int[] postings = link == null ? null : link.postingsOf(account);
+            if (postings != null) result = Postings.union(result, postings);
+        }
+        return result;
+    }
+
+    /**
+     * Die wichtigsten Gegenseiten eines Namens nach Volumen. Durchlaufen werden nur seine Verbindungen.
+     *
+     * @param name  Sender oder Empfänger
+     * @param limit maximale Anzahl, negativ für alle
+     * @return neue Liste nach {@link Counterparty#BY_VOLUME} sortiert
+     */
+    List<Counterparty> top(String name, int limit) {
+        return rank(flows(name), limit);
+    }
+
+    /**
+     * Die Flows eines Namens zu allen seinen Gegenseiten.
+     *
+     * @return Gegenseite -> Kopie der Flows aus Sicht von name
+     */
+    Map<String, Flows> flows(String name) {
+        Map<String, Flows> result = new HashMap<>();
+        for (String counterpart : counterparts.getOrDefault(name, Set.of())) {
+            Link link = linkOf(name, counterpart);
+            if (link != null) result.put(counterpart, link.flowsOf(name));
+        }
+        return result;
+    }
+
+    /**
+     * Zählt die Flows pro Gegenseite, sortiert nach {@link Counterparty#BY_VOLUME} und schneidet auf limit ab.
+     */
+    static List<Counterparty> rank(Map<String, Flows> flows, int limit) {
+        List<Counterparty> result = new ArrayList<>();
+        for (Map.Entry<String, Flows> entry : flows.entrySet()) {
+            result.add(entry.getValue().toCounterparty(entry.getKey()));
+        }
+        return rank(result, limit);
+    }
+
+    /**
+     * Sortiert nach {@link Counterparty#BY_VOLUME} und schneidet auf limit ab.
+     */
+    static List<Counterparty> rank(List<Counterparty> counterparties, int limit) {
+        counterparties.sort(Counterparty.BY_VOLUME);
+        if (limit >= 0 && limit < counterparties.size()) return new ArrayList<>(counterparties.subList(0, limit));
+        return counterparties;
+    }
+
+    /**
+     * Liest ohne Sperre; die inneren Maps werden nur innerhalb von compute geändert und sind daher
+     * als {@link ConcurrentHashMap} angelegt.
+     */
+    private Link linkOf(String a, String b) {
+        boolean ordered = a.compareTo(b) <= 0;
+        Map<String, Link> seconds = links.get(ordered ? a : b);
+        return seconds == null ? null : seconds.get(ordered ? b : a);
+    }
+
+    /**
+     * Aufgerufen innerhalb von compute in {@link #links}.
+     */
+    private void addCounterpart(String name, String counterpart) {
+        counterparts.compute(name, (key, names) -> {
+            if (names == null) names = ConcurrentHashMap.newKeySet();
+            names.add(counterpart);
+            return names;
+        });
+    }
+
+    /**
+     * Aufgerufen innerhalb von compute in {@link #links}, leere Mengen werden entfernt.
+     */
+    private void removeCounterpart(String name, String counterpart) {
+        counterparts.computeIfPresent(name, (key, names) -> {
+            names.remove(counterpart);
+            return names.isEmpty() ? null : names;
+        });
+    }
+}
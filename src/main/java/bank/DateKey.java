@@ -0,0 +1,73 @@
+package bank;
+
+/**
+ * Wandelt das Datum einer Transaktion in eine sortierbare Zahl JJJJMMTT um (z.B. 20250103).
+ * Unterstützt werden "TT.MM.JJJJ" (auch einstellig wie "1.1.2000") und "JJJJ-MM-TT".
+ * Das Parsen läuft Zeichen für Zeichen und erzeugt keine Objekte, damit es beim Einfügen
+ * in die Indizes nichts kostet.
+ */
+public final class DateKey {
+
+    /**
+     * Ergebnis für Daten, die keinem der beiden Formate entsprechen.
+     */
+    public static final int INVALID = -1;
+
+    private DateKey() {
+    }
+
+    /**
+     * @param date das Datum als String (darf null sein)
+     * @return JJJJMMTT oder {@link #INVALID}
+     */
+    public static int of(String date) {
+        if (date == null) return INVALID;
+        int length = date.length();
+        if (length == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            return key(digits(date, 0, 4), digits(date, 5, 7), digits(date, 8, 10));
+        }
+
+        int firstDot = date.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : date.indexOf('.', firstDot + 1);
+        if (firstDot < 1 || firstDot > 2 || secondDot - firstDot < 2 || secondDot - firstDot > 3 || length - secondDot != 5) {
+            return INVALID;
+        }
+        return key(digits(date, secondDot + 1, length), digits(date, firstDot + 1, secondDot), digits(date, 0, firstDot));
+    }
+
+    /**
+     * Wie {@link #of(String)}, wirft aber bei ungültigem Datum eine Exception (für Abfrageparameter).
+     *
+     * @throws IllegalArgumentException wenn das Datum keinem der Formate entspricht
+     */
+    public static int parse(String date) {
+        int key = of(date);
+        if (key == INVALID) throw new IllegalArgumentException("Ungültiges Datum: " + date);
+        return key;
+    }
+
+    /**
+     * @return der Monat als JJJJMM, z.B. für monatliche Auswertungen
+     */
+    public static int month(int key) {
+        return key / 100;
+    }
+
+    private static int key(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) return INVALID;
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * @return die Zahl aus den Ziffern von from (inklusive) bis to (exklusive), -1 bei anderen Zeichen
+     */
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,299 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Invertierter Index über die Beschreibungen aller Transaktionen einer Bank.
+ * Beschreibungen werden in Wörter zerlegt (Buchstaben und Ziffern, klein geschrieben). Pro Wort und Konto
+ * stehen die Sequenznummern der Transaktionen aus dem {@link AccountIndex} in einer {@link Postings}-Liste.
+ * Die Wörter liegen zusätzlich sortiert in einer {@link ConcurrentSkipListSet}, damit auch Präfixabfragen ("amaz*")
+ * nur die passenden Wörter ansehen.
+ * <p>
+ * Der Index ist threadsicher und pro Wort partitioniert: jedes Wort hat einen eigenen Eintrag, der nur kurz
+ * gesperrt wird. Angelegt und entfernt werden Einträge über {@link ConcurrentHashMap#compute} auf dem Wort,
+ * das Einfügen in einen vorhandenen Eintrag kommt ohne compute und ohne Allokation aus.
+ * <p>
+ * Die Zerlegung wird pro Beschreibung zwischengespeichert. Da sich Beschreibungen wie "Miete" oder "Strom"
+ * ständig wiederholen, kostet das Einfügen dann nur ein paar Map-Zugriffe und einen Eintrag in der Trefferliste.
+ */
+class DescriptionIndex {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    /**
+     * Wort -> Konto -> Sequenznummern der Transaktionen mit diesem Wort.
+     */
+    private final ConcurrentHashMap<String, TokenPostings> postingsByToken = new ConcurrentHashMap<>();
+
+    /**
+     * Die Wörter aus {@link #postingsByToken} sortiert, geändert nur innerhalb von compute auf dem Wort.
+     */
+    private final NavigableSet<String> tokens = new ConcurrentSkipListSet<>();
+
+    /**
+     * Zerlegte Beschreibungen, höchstens {@link StringPool#DEFAULT_LIMIT} Einträge.
+     */
+    private final Map<String, String[]> tokenCache = new ConcurrentHashMap<>();
+
+    /**
+     * Die Trefferlisten eines Worts pro Konto. Ein leerer Eintrag wird stillgelegt und nimmt danach nichts mehr
+     * auf, so kann ihn compute entfernen, ohne dass ein gleichzeitiges Einfügen verloren geht.
+     */
+    private static final class TokenPostings {
+        private final Map<String, Postings> byAccount = new HashMap<>(4);
+        private boolean retired;
+
+        /**
+         * @return false wenn der Eintrag stillgelegt ist
+         */
+        synchronized boolean add(String account, int sequence) {
+            if (retired) return false;
+            byAccount.computeIfAbsent(account, k -> new Postings()).add(sequence);
+            return true;
+        }
+
+        synchronized void remove(String account, int sequence) {
+            Postings postings = byAccount.get(account);
+            if (postings != null && postings.remove(sequence) && postings.size() == 0) byAccount.remove(account);
+        }
+
+        synchronized void removeAccount(String account) {
+            byAccount.remove(account);
+        }
+
+        /**
+         * Legt den Eintrag still, wenn kein Konto mehr eine Trefferliste hat.
+         *
+         * @return true wenn er stillgelegt wurde
+         */
+        synchronized boolean retireIfEmpty() {
+            if (byAccount.isEmpty()) retired = true;
+            return retired;
+        }
+
+        /**
+         * Vereinigt die Listen (nur von account, falls nicht null) mit den bisherigen Treffern.
+         */
+        synchronized void collect(String account, Map<String, int[]> hits) {
+            if (account != null) {
+                Postings postings = byAccount.get(account);
+                if (postings != null) hits.merge(account, postings.toArray(), Postings::union);
+                return;
+            }
+            for (Map.Entry<String, Postings> entry : byAccount.entrySet()) {
+                hits.merge(entry.getKey(), entry.getValue().toArray(), Postings::union);
+            }
+        }
+    }
+
+    /**
+     * Nimmt eine Transaktion auf.
+     *
+     * @param sequence Sequenznummer aus dem {@link AccountIndex}, größer als alle bisherigen des Kontos
+     */
+    void add(String account, String description, int sequence) {
+        for (String token : tokensOf(description)) {
+            TokenPostings postings = postingsByToken.get(token);
+            if (postings != null && postings.add(account, sequence)) continue;
+
+            postingsByToken.compute(token, (key, current) -> { // neues oder gerade stillgelegtes Wort
+                if (current == null) {
+                    current = new TokenPostings();
+                    tokens.add(key);
+                }
+                current.add(account, sequence);
+                return current;
+            });
+        }
+    }
+
+    /**
+     * Entfernt eine Transaktion, leere Listen und Wörter werden mit entfernt.
+     */
+    void remove(String account, String description, int sequence) {
+        for (String token : tokensOf(description)) {
+            postingsByToken.computeIfPresent(token, (key, postings) -> {
+                postings.remove(account, sequence);
+                return removeIfEmpty(key, postings);
+            });
+        }
+    }
+
+    /**
+     * Entfernt alle Einträge eines gelöschten Kontos.
+     */
+    void removeAccount(String account) {
+        for (String token : postingsByToken.keySet()) {
+            postingsByToken.computeIfPresent(token, (key, postings) -> {
+                postings.removeAccount(account);
+                return removeIfEmpty(key, postings);
+            });
+        }
+    }
+
+    /**
+     * Aufgerufen innerhalb von compute auf dem Wort.
+     *
+     * @return null (Wort entfernen), wenn kein Konto mehr eine Trefferliste hat
+     */
+    private TokenPostings removeIfEmpty(String token, TokenPostings postings) {
+        if (!postings.retireIfEmpty()) return postings;
+        tokens.remove(token);
+        return null;
+    }
+
+    /**
+     * Sucht alle Transaktionen, deren Beschreibung alle Begriffe der Abfrage enthält.
+     *
+     * @param query   die Abfrage
+     * @param account nur in diesem Konto suchen, null für alle Konten
+     * @return pro Konto die aufsteigend sortierten Sequenznummern der Treffer, Konten ohne Treffer fehlen
+     */
+    Map<String, int[]> search(Query query, String account) {
+        Map<String, int[]> result = null;
+        for (int i = 0; i < query.terms.length && (result == null || !result.isEmpty()); i++) {
+            Map<String, int[]> hits = termHits(query.terms[i], query.prefix[i], account);
+            if (result == null) {
+                result = hits;
+                continue;
+            }
+            Iterator<Map.Entry<String, int[]>> iterator = result.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, int[]> entry = iterator.next();
+                int[] other = hits.get(entry.getKey());
+                int[] both = other == null ? null : Postings.intersect(entry.getValue(), other);
+                if (both == null || both.length == 0) iterator.remove();
+                else entry.setValue(both);
+            }
+        }
+        return result == null ? new HashMap<>() : result;
+    }
+
+    /**
+     * Treffer für einen einzelnen Begriff. Bei Präfixen werden die Listen aller passenden Wörter vereinigt.
+     */
+    private Map<String, int[]> termHits(String term, boolean prefix, String account) {
+        Map<String, int[]> hits = new HashMap<>();
+        if (!prefix) {
+            TokenPostings postings = postingsByToken.get(term);
+            if (postings != null) postings.collect(account, hits);
+            return hits;
+        }
+        for (String token : tokens.subSet(term, true, term + Character.MAX_VALUE, true)) {
+            TokenPostings postings = postingsByToken.get(token); // null, wenn das Wort inzwischen entfernt wurde
+            if (postings != null) postings.collect(account, hits);
+        }
+        return hits;
+    }
+
+    /**
+     * @return die zwischengespeicherte Zerlegung der Beschreibung
+     */
+    private String[] tokensOf(String description) {
+        if (description == null) return NO_TOKENS;
+        String[] tokens = tokenCache.get(description);
+        if (tokens == null) {
+            tokens = tokenize(description);
+            if (tokenCache.size() < StringPool.DEFAULT_LIMIT) tokenCache.put(description, tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Zerlegt einen Text in verschiedene, klein geschriebene Wörter aus Buchstaben und Ziffern.
+     */
+    static String[] tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!tokens.contains(token)) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    /**
+     * Eine Suchanfrage: alle Begriffe müssen vorkommen, ein Begriff mit '*' am Ende ist ein Präfix.
+     * Beispiel: "strom rech*" findet "Stromrechnung Mai" nicht, "Strom Rechnung Mai" aber schon.
+     */
+    static final class Query {
+
+        final String[] terms;
+        final boolean[] prefix;
+
+        private Query(String[] terms, boolean[] prefix) {
+            this.terms = terms;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Zerlegt die Suchanfrage wie eine Beschreibung. Steht '*' direkt hinter einem Wort, wird es zum Präfix.
+         *
+         * @param text die Suchanfrage
+         * @return die Anfrage, ohne Begriffe wenn text keine Wörter enthält
+         */
+        static Query parse(String text) {
+            List<String> terms = new ArrayList<>();
+            List<Boolean> prefix = new ArrayList<>();
+            if (text != null) {
+                for (String word : text.trim().split("\\s+")) {
+                    String[] tokens = tokenize(word);
+                    for (int i = 0; i < tokens.length; i++) {
+                        boolean isPrefix = i == tokens.length - 1 && word.endsWith("*");
+                        int existing = terms.indexOf(tokens[i]);
+                        if (existing >= 0) {
+                            prefix.set(existing, prefix.get(existing) && isPrefix);
+                        } else {
+                            terms.add(tokens[i]);
+                            prefix.add(isPrefix);
+                        }
+                    }
+                }
+            }
+            boolean[] prefixes = new boolean[prefix.size()];
+            for (int i = 0; i < prefixes.length; i++) prefixes[i] = prefix.get(i);
+            return new Query(terms.toArray(NO_TOKENS), prefixes);
+        }
+
+        /**
+         * @return true wenn die Anfrage keine Begriffe hat (und damit nichts findet)
+         */
+        boolean isEmpty() {
+            return terms.length == 0;
+        }
+
+        /**
+         * Prüft eine einzelne Beschreibung ohne Index (für Banken ohne {@link DescriptionIndex}).
+         */
+        boolean matches(String description) {
+            if (description == null || isEmpty()) return false;
+            String[] tokens = tokenize(description);
+            for (int i = 0; i < terms.length; i++) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (prefix[i] ? token.startsWith(terms[i]) : token.equals(terms[i])) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) return false;
+            }
+            return true;
+        }
+    }
+}
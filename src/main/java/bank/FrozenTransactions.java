@@ -0,0 +1,84 @@
+package bank;
+
+import java.util.List;
+
+/**
+ * {@link TransactionStore} über eine unveränderliche Liste schon eingefrorener Transaktionen, z.B. den Stand
+ * eines Kontos in einem {@link BankSnapshot}. Die Transaktionen werden ohne Kopie zurückgegeben,
+ * Ändern ist nicht möglich.
+ */
+final class FrozenTransactions implements TransactionStore {
+
+    private final List<Transaction> transactions;
+    private final double balance;
+
+    /**
+     * @param transactions die Transaktionen, dürfen sich nicht mehr ändern
+     */
+    FrozenTransactions(List<Transaction> transactions) {
+        this(transactions, sum(transactions));
+    }
+
+    /**
+     * @param transactions die Transaktionen, dürfen sich nicht mehr ändern
+     * @param balance      ihre schon bekannte Summe
+     */
+    FrozenTransactions(List<Transaction> transactions, double balance) {
+        this.transactions = transactions;
+        this.balance = balance;
+    }
+
+    private static double sum(List<Transaction> transactions) {
+        double sum = 0.0;
+        for (Transaction transaction : transactions) sum += transaction.calculate();
+        return sum;
+    }
+
+    @Override
+    public int size() {
+        return transactions.size();
+    }
+
+    @Override
+    public void add(Transaction transaction) {
+        throw new UnsupportedOperationException("Snapshot ist schreibgeschützt");
+    }
+
+    @Override
+    public void remove(int index) {
+        throw new UnsupportedOperationException("Snapshot ist schreibgeschützt");
+    }
+
+    @Override
+    public int indexOf(Transaction transaction) {
+        return transactions.indexOf(transaction);
+    }
+
+    /**
+     * Der Stand ändert sich nicht mehr, die Position taugt daher als Sequenznummer.
+     */
+    @Override
+    public long sequence(int index) {
+        return index;
+    }
+
+    @Override
+    public double calculate(int index) {
+        return transactions.get(index).calculate();
+    }
+
+    @Override
+    public Transaction get(int index) {
+        return transactions.get(index);
+    }
+
+    @Override
+    public double balance() {
+        return balance;
+    }
+
+    @Override
+    public List<Transaction> asList() {
+        return transactions;
+    }
+}
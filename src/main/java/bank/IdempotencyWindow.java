@@ -0,0 +1,173 @@
+package bank;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Zuletzt gesehene Idempotenzschlüssel einer Bank, siehe {@link PrivateBank#addTransaction(String, Transaction, String)}.
+ * Die Schlüssel liegen in Einfügereihenfolge in einer Hash-Map: Nachschlagen und Eintragen kosten O(1), die ältesten
+ * Schlüssel stehen vorne und fallen heraus, sobald sie älter als das Zeitfenster sind oder mehr als die Höchstzahl
+ * gespeichert ist.
+ * <p>
+ * Jeder eingetragene Schlüssel wird mit Zeitstempel an eine Datei im Verzeichnis der Bank angehängt und beim nächsten
+ * Start von dort gelesen. Ist die Datei deutlich länger als die Map, wird sie aus der Map neu geschrieben.
+ */
+final class IdempotencyWindow {
+
+    /**
+     * Dateiname im Verzeichnis der Bank, endet bewusst nicht auf .json.
+     */
+    static final String FILE_NAME = "idempotency-keys.log";
+
+    /**
+     * Standard-Zeitfenster: ein Tag.
+     */
+    static final long DEFAULT_WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Standard-Höchstzahl der gemerkten Schlüssel.
+     */
+    static final int DEFAULT_MAX_KEYS = 100_000;
+
+    private final Path file;
+    private final Map<String, Long> keys = new LinkedHashMap<>();
+
+    /**
+     * Reservierte Schlüssel, deren Buchung noch läuft. Sie kommen erst mit {@link #confirm} in die Map und die Datei.
+     */
+    private final Set<String> pending = new HashSet<>();
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private int maxKeys = DEFAULT_MAX_KEYS;
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * Zeilen in der Datei, für die Entscheidung, wann neu geschrieben wird.
+     */
+    private int lines;
+
+    /**
+     * Liest die Schlüssel aus der Datei, abgelaufene werden dabei verworfen.
+     *
+     * @param file die Datei, muss nicht existieren
+     */
+    IdempotencyWindow(Path file) throws IOException {
+        this.file = file;
+        if (!Files.exists(file)) return;
+        List<String> read = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : read) {
+            int space = line.indexOf(' ');
+            if (space < 0) continue;
+            try {
+                keys.put(line.substring(space + 1), Long.parseLong(line.substring(0, space)));
+            } catch (NumberFormatException e) {
+                System.out.println("Fehler beim Lesen von " + file.getFileName()); // z.B. abgebrochene letzte Zeile
+            }
+        }
+        lines = read.size();
+        evict();
+    }
+
+    /**
+     * @param windowMillis wie lange ein Schlüssel gemerkt wird
+     * @param maxKeys      wie viele Schlüssel höchstens gemerkt werden
+     */
+    synchronized void setLimits(long windowMillis, int maxKeys) {
+        if (windowMillis <= 0 || maxKeys < 1) throw new IllegalArgumentException("Zeitfenster und Anzahl müssen positiv sein");
+        this.windowMillis = windowMillis;
+        this.maxKeys = maxKeys;
+        evict();
+    }
+
+    /**
+     * Für Tests: Zeitquelle in Millisekunden.
+     */
+    synchronized void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Reserviert einen Schlüssel. Der Aufrufer bucht danach und ruft {@link #confirm} oder {@link #release} auf.
+     *
+     * @return false, wenn der Schlüssel im Zeitfenster schon gesehen oder gerade reserviert wurde
+     */
+    synchronized boolean claim(String key) {
+        evict();
+        return !keys.containsKey(key) && pending.add(key);
+    }
+
+    /**
+     * Gibt einen reservierten Schlüssel wieder frei, die Buchung wurde abgelehnt.
+     */
+    synchronized void release(String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Merkt sich einen reservierten Schlüssel und hängt ihn an die Datei an, nachdem die Buchung gespeichert ist.
+     */
+    synchronized void confirm(String key) throws IOException {
+        if (!pending.remove(key)) return;
+        long seen = clock.getAsLong();
+        keys.put(key, seen);
+        evict();
+        if (lines > 2 * keys.size() + 1024) {
+            rewrite();
+            return;
+        }
+        if (!Files.exists(file.getParent())) Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(seen + " " + key);
+            writer.newLine();
+        }
+        lines++;
+    }
+
+    /**
+     * @return Anzahl der gemerkten Schlüssel im Zeitfenster
+     */
+    synchronized int size() {
+        evict();
+        return keys.size();
+    }
+
+    /**
+     * Entfernt abgelaufene Schlüssel und, über der Höchstzahl, die ältesten. Beides steht vorne in der Map.
+     */
+    private void evict() {
+        long oldest = clock.getAsLong() - windowMillis;
+        Iterator<Long> seen = keys.values().iterator();
+        while (seen.hasNext()) {
+            long time = seen.next();
+            if (time > oldest && keys.size() <= maxKeys) break;
+            seen.remove();
+        }
+    }
+
+    /**
+     * Schreibt die Datei aus der Map neu, über eine temporäre Datei.
+     */
+    private void rewrite() throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : keys.entrySet()) {
+                writer.write(entry.getValue() + " " + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        lines = keys.size();
+    }
+}
@@ -20,7 +20,7 @@ public class IncomingTransfer extends Transfer{
      * @return Der positive Betrag der Transaktion.
      */
     @Override
-    public double calculate() {
+    protected double computeCalculation() {
         // Gibt den positiven Betrag zurück
         return this.getAmount();
     }
@@ -0,0 +1,243 @@
+package bank;
+
+import bank.exceptions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Einspielen über einen einzelnen Schreib-Thread: Produzenten legen Befehle (Konto anlegen, Transaktion
+ * hinzufügen oder entfernen) in einen beschränkten Ringpuffer mit vorab angelegten Plätzen und bekommen ein
+ * {@link CompletableFuture} zurück. Der Schreib-Thread arbeitet die Befehle in Reihenfolge und in Stapeln ab:
+ * jeder Befehl wird wie bei {@link PrivateBank#ingestTransaction} geprüft und indiziert, danach wird der Stapel
+ * mit einem {@link PrivateBank#flush()} gespeichert und erst dann werden die Futures abgeschlossen.
+ * Jedes geänderte Konto wird so einmal pro Stapel statt einmal pro Befehl geschrieben, und die Kontosperren
+ * sind nie umkämpft.
+ * <p>
+ * Der Puffer arbeitet mit Sequenznummern: ein Produzent reserviert die nächste Nummer, wartet falls der Puffer
+ * voll ist, füllt den Platz und veröffentlicht ihn über dessen Sequenznummer. Der Schreib-Thread gibt Plätze erst
+ * nach dem Abschließen des Stapels frei. Ist nichts zu tun, legt er sich schlafen und wird vom nächsten
+ * Produzenten geweckt.
+ * <p>
+ * Die Futures werden auf dem Schreib-Thread abgeschlossen, nicht-asynchrone Folgeaktionen (z.B.
+ * {@code thenRun}) laufen also dort und halten das Einspielen auf, bis sie fertig sind. Sie sollten nicht
+ * blockieren und nicht mehr Befehle einreichen, als der Puffer Plätze hat. {@link #close()} aus einer
+ * Folgeaktion schließt die Pipeline, ohne auf den Schreib-Thread zu warten.
+ * <p>
+ * Direkte Aufrufe der Bank bleiben daneben möglich.
+ */
+public class IngestPipeline implements AutoCloseable {
+
+    private static final int CREATE_ACCOUNT = 0;
+    private static final int ADD_TRANSACTION = 1;
+    private static final int REMOVE_TRANSACTION = 2;
+
+    /**
+     * Ein Platz im Ringpuffer, wird wiederverwendet.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        int command;
+        String account;
+        Transaction transaction;
+        CompletableFuture<Void> future;
+    }
+
+    private final PrivateBank bank;
+    private final Slot[] slots;
+    private final int mask;
+    private final int batchSize;
+
+    /**
+     * Nächste zu vergebende Sequenznummer; nach {@link #close()} ist zusätzlich {@link #CLOSED} gesetzt,
+     * damit Schließen und Reservieren sich nicht überholen.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    /**
+     * Alle Plätze mit kleinerer Sequenznummer sind abgearbeitet und frei.
+     */
+    private volatile long released;
+
+    private volatile boolean sleeping;
+
+    /**
+     * Anzahl der vor dem Schließen reservierten Befehle, -1 solange offen.
+     */
+    private volatile long end = -1;
+    private final Thread writer;
+
+    /**
+     * Startet den Schreib-Thread.
+     *
+     * @param bank      die Bank, in die eingespielt wird
+     * @param capacity  Anzahl der Plätze, wird auf die nächste Zweierpotenz aufgerundet
+     * @param batchSize maximale Anzahl Befehle, die mit einem Speichern abgeschlossen werden
+     */
+    public IngestPipeline(PrivateBank bank, int capacity, int batchSize) {
+        if (capacity < 1 || batchSize < 1) throw new IllegalArgumentException("Kapazität und Stapelgröße müssen positiv sein");
+        this.bank = bank;
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < slots.length; i++) slots[i] = new Slot();
+        this.mask = slots.length - 1;
+        this.batchSize = Math.min(batchSize, slots.length);
+        this.writer = new Thread(this::run, "ingest-" + bank.getName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Legt ein Konto an, siehe {@link PrivateBank#createAccount(String)}.
+     *
+     * @return wird nach dem Anlegen abgeschlossen, mit der Exception der Bank bei einem Fehler
+     */
+    public CompletableFuture<Void> createAccount(String account) {
+        return submit(CREATE_ACCOUNT, account, null);
+    }
+
+    /**
+     * Fügt eine Transaktion hinzu, siehe {@link PrivateBank#ingestTransaction}.
+     *
+     * @return wird abgeschlossen, sobald die Transaktion gespeichert ist; für null sofort mit einer
+     * {@link TransactionAttributeException}
+     */
+    public CompletableFuture<Void> addTransaction(String account, Transaction transaction) {
+        if (transaction == null) { // belegt keinen Platz
+            return CompletableFuture.failedFuture(new TransactionAttributeException(TransactionResult.NULL_TRANSACTION.getMessage()));
+        }
+        return submit(ADD_TRANSACTION, account, transaction);
+    }
+
+    /**
+     * Entfernt eine Transaktion, siehe {@link PrivateBank#ingestRemoval}.
+     *
+     * @return wird abgeschlossen, sobald das Konto ohne die Transaktion gespeichert ist
+     */
+    public CompletableFuture<Void> removeTransaction(String account, Transaction transaction) {
+        return submit(REMOVE_TRANSACTION, account, transaction);
+    }
+
+    private CompletableFuture<Void> submit(int command, String account, Transaction transaction) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if ((sequence & CLOSED) != 0) {
+                future.completeExceptionally(new IllegalStateException("Pipeline ist geschlossen"));
+                return future;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        while (sequence - slots.length >= released) {
+            // Puffer voll: auf den Schreib-Thread warten
+            wakeWriter();
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.command = command;
+        slot.account = account;
+        slot.transaction = transaction;
+        slot.future = future;
+        slot.sequence = sequence; // veröffentlicht die Felder davor
+        wakeWriter();
+        return future;
+    }
+
+    private void wakeWriter() {
+        if (sleeping) LockSupport.unpark(writer);
+    }
+
+    private void run() {
+        long next = 0;
+        CompletableFuture<?>[] done = new CompletableFuture<?>[batchSize];
+        while (true) {
+            int count = 0;
+            while (count < batchSize && slots[(int) ((next + count) & mask)].sequence == next + count) {
+                Slot slot = slots[(int) ((next + count) & mask)];
+                if (apply(slot)) done[count] = slot.future;
+                count++;
+            }
+            if (count == 0) {
+                if (next == end) return;
+                sleeping = true;
+                if (slots[(int) (next & mask)].sequence != next && end < 0) LockSupport.parkNanos(this, 1_000_000);
+                sleeping = false;
+                continue;
+            }
+
+            Throwable failure = null;
+            try {
+                bank.flush();
+            } catch (IOException e) {
+                failure = new UncheckedIOException(e);
+            } catch (Throwable e) {
+                failure = e; // auch ein Error darf den Schreib-Thread nicht beenden, sonst warten die Futures ewig
+            }
+            for (int i = 0; i < count; i++) {
+                Slot slot = slots[(int) ((next + i) & mask)];
+                slot.account = null;
+                slot.transaction = null;
+                slot.future = null;
+            }
+            next += count;
+            released = next; // vor dem Abschließen, Folgeaktionen der Futures dürfen wieder einreichen
+            for (int i = 0; i < count; i++) {
+                if (done[i] == null) continue;
+                if (failure == null) done[i].complete(null);
+                else done[i].completeExceptionally(failure);
+                done[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Führt einen Befehl aus.
+     *
+     * @return true wenn der Befehl erfolgreich war und sein Future nach dem Speichern abgeschlossen wird
+     */
+    private boolean apply(Slot slot) {
+        try {
+            switch (slot.command) {
+                case CREATE_ACCOUNT -> bank.createAccount(slot.account);
+                case ADD_TRANSACTION -> bank.ingestTransaction(slot.account, slot.transaction);
+                default -> bank.ingestRemoval(slot.account, slot.transaction);
+            }
+            return true;
+        } catch (Throwable e) {
+            slot.future.completeExceptionally(e);
+            return false;
+        }
+    }
+
+    /**
+     * Arbeitet alle schon angenommenen Befehle ab und beendet den Schreib-Thread.
+     * Danach angenommene Befehle schlagen mit einer {@link IllegalStateException} fehl.
+     * Wird der aufrufende Thread dabei unterbrochen, wartet er trotzdem zu Ende und setzt danach sein
+     * Interrupt-Flag wieder.
+     * <p>
+     * Aus einer Folgeaktion auf dem Schreib-Thread aufgerufen, wird die Pipeline nur geschlossen: der Schreib-Thread
+     * arbeitet die angenommenen Befehle nach der Folgeaktion ab und beendet sich dann, ohne dass close() wartet.
+     */
+    @Override
+    public void close() {
+        end = claimed.getAndUpdate(sequence -> sequence | CLOSED) & ~CLOSED;
+        if (Thread.currentThread() == writer) return; // würde auf sich selbst warten
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
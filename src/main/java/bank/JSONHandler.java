@@ -5,6 +5,28 @@ import com.google.gson.*;
 import java.lang.reflect.Type;
 
 public class JSONHandler implements JsonDeserializer<Transaction>, JsonSerializer<Transaction> {
+
+    /**
+     * Pool, über den gelesene Strings dedupliziert werden (null = keine Deduplizierung).
+     */
+    private final StringPool stringPool;
+
+    public JSONHandler() {
+        this(null);
+    }
+
+    /**
+     * @param stringPool Pool, auf dessen Instanzen Datum, Beschreibung, Sender und Empfänger
+     *                   beim Deserialisieren abgebildet werden
+     */
+    public JSONHandler(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    private String intern(String value) {
+        return stringPool == null ? value : stringPool.intern(value);
+    }
+
     /**
      * Deserialisiert ein JsonElement (in unserem verschachtelten Format)
      * zurück in ein konkretes Transaction-Objekt (Payment, Transfer etc.).
@@ -33,9 +55,9 @@ public class JSONHandler implements JsonDeserializer<Transaction>, JsonSerialize
         }
         JsonObject instance = instanceElement.getAsJsonObject();
 
-        String date = instance.get("date").getAsString();
+        String date = intern(instance.get("date").getAsString());
         double amount = instance.get("amount").getAsDouble();
-        String description = instance.get("description").getAsString();
+        String description = intern(instance.get("description").getAsString());
 
 
         if (className.equals("Payment")) {
@@ -44,14 +66,14 @@ public class JSONHandler implements JsonDeserializer<Transaction>, JsonSerialize
             return new Payment(date, amount, description, inInterest, outInterest);
 
         } else if (className.equals("IncomingTransfer")) {
-            String sender = instance.get("sender").getAsString();
-            String recipient = instance.get("recipient").getAsString();
+            String sender = intern(instance.get("sender").getAsString());
+            String recipient = intern(instance.get("recipient").getAsString());
             Transfer t = new Transfer(date, amount, description, sender, recipient);
             return new IncomingTransfer(t);
 
         } else if (className.equals("OutgoingTransfer")) {
-            String sender = instance.get("sender").getAsString();
-            String recipient = instance.get("recipient").getAsString();
+            String sender = intern(instance.get("sender").getAsString());
+            String recipient = intern(instance.get("recipient").getAsString());
             Transfer t = new Transfer(date, amount, description, sender, recipient);
             return new OutgoingTransfer(t);
 
@@ -0,0 +1,316 @@
+package bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Speichert die Transaktionen eines Kontos außerhalb des Java-Heaps in einem direkten
+ * {@link ByteBuffer}. Jede Transaktion ist ein Datensatz mit fester Länge, gelesen wird direkt
+ * im Puffer. Beschreibung, Sender und Empfänger stehen als UTF-8 in einem zweiten direkten Puffer
+ * (Textbereich), der Datensatz enthält nur ihren Offset. Auf dem Heap liegen pro Konto nur dieses Objekt
+ * und die beiden Puffer-Referenzen.
+ * <p>
+ * Nur das Datum steht als ID im (bankweiten) {@link StringDictionary}. Das Wörterbuch wächst dadurch mit der
+ * Zahl verschiedener Datumsstrings und nicht mit der Zahl der Transaktionen; für gültige Daten ist das höchstens
+ * ein Eintrag pro Tag. Einschränkung: Einträge werden nie entfernt, Datumsstrings in freier Form bleiben also
+ * bis zum Ende des Prozesses auf dem Heap. Beschreibungen werden pro Transaktion gespeichert und nicht
+ * dedupliziert, {@link #getDescription(int)} erzeugt bei jedem Aufruf einen neuen String. Der Text entfernter
+ * Transaktionen wird beim Entfernen freigegeben, sobald er die Hälfte des Textbereichs ausmacht.
+ * <p>
+ * Aufbau eines Datensatzes ({@value #RECORD_SIZE} Byte):
+ * <pre>
+ *  0  byte   Typ-Tag
+ *  4  int    Datum (String-ID)
+ *  8  double Betrag
+ * 16  double incomingInterest
+ * 24  double outgoingInterest
+ * 32  int    Beschreibung (Offset im Textbereich)
+ * 36  int    Sender (Offset im Textbereich)
+ * 40  int    Empfänger (Offset im Textbereich)
+ * 48  long   Sequenznummer
+ * </pre>
+ * Im Textbereich steht pro String ein int mit der Länge in Byte, danach die Bytes.
+ */
+public class OffHeapTransactions implements TransactionStore {
+
+    static final int RECORD_SIZE = 56;
+
+    /**
+     * Höchstzahl der Datensätze: ein {@link ByteBuffer} ist höchstens {@link Integer#MAX_VALUE} Byte groß.
+     * Bis dahin passen auch alle Offsets ({@code index * RECORD_SIZE}) in ein int.
+     */
+    static final int MAX_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private static final int TYPE = 0;
+    private static final int DATE = 4;
+    private static final int AMOUNT = 8;
+    private static final int INCOMING_INTEREST = 16;
+    private static final int OUTGOING_INTEREST = 24;
+    private static final int DESCRIPTION = 32;
+    private static final int SENDER = 36;
+    private static final int RECIPIENT = 40;
+    private static final int SEQUENCE = 48;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Offset für einen {@code null}-String.
+     */
+    private static final int NO_TEXT = -1;
+
+    /**
+     * Unter dieser Menge freigewordener Bytes wird der Textbereich nicht kompaktiert.
+     */
+    private static final int MIN_TEXT_GARBAGE = 1024;
+
+    private final StringDictionary dictionary;
+    private ByteBuffer records = ByteBuffer.allocateDirect(INITIAL_CAPACITY * RECORD_SIZE);
+    private ByteBuffer text = ByteBuffer.allocateDirect(INITIAL_CAPACITY * 32);
+    private int size;
+    private int textSize;
+    private int textGarbage;
+    private long nextSequence;
+
+    /**
+     * @param dictionary das (bankweite) Wörterbuch für das Datum
+     */
+    public OffHeapTransactions(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Transaction transaction) {
+        if ((long) (size + 1) * RECORD_SIZE > records.capacity()) grow();
+
+        int offset = size * RECORD_SIZE;
+        double in = 0, out = 0;
+        int sender = NO_TEXT, recipient = NO_TEXT;
+        if (transaction instanceof Payment p) {
+            in = p.getIncomingInterest();
+            out = p.getOutgoingInterest();
+        } else if (transaction instanceof Transfer t) {
+            sender = writeText(t.getSender());
+            recipient = writeText(t.getRecipient());
+        }
+
+        records.put(offset + TYPE, TransactionStore.typeOf(transaction));
+        records.putInt(offset + DATE, dictionary.encode(transaction.getDate()));
+        records.putDouble(offset + AMOUNT, transaction.getAmount());
+        records.putDouble(offset + INCOMING_INTEREST, in);
+        records.putDouble(offset + OUTGOING_INTEREST, out);
+        records.putInt(offset + DESCRIPTION, writeText(transaction.getDescription()));
+        records.putInt(offset + SENDER, sender);
+        records.putInt(offset + RECIPIENT, recipient);
+        records.putLong(offset + SEQUENCE, nextSequence++);
+        size++;
+    }
+
+    @Override
+    public void remove(int index) {
+        checkIndex(index);
+        int offset = index * RECORD_SIZE;
+        textGarbage += textLength(records.getInt(offset + DESCRIPTION)) + textLength(records.getInt(offset + SENDER))
+                + textLength(records.getInt(offset + RECIPIENT));
+        int from = (index + 1) * RECORD_SIZE;
+        int length = size * RECORD_SIZE - from;
+        if (length > 0) {
+            records.put(offset, records, from, length);
+        }
+        size--;
+        if (textGarbage >= MIN_TEXT_GARBAGE && textGarbage > textSize / 2) compactText();
+    }
+
+    @Override
+    public int indexOf(Transaction transaction) {
+        if (transaction == null) return -1;
+
+        byte type = TransactionStore.typeOf(transaction);
+        int date = dictionary.find(transaction.getDate());
+        if (date == StringDictionary.MISSING) return -1;
+        byte[] description = bytesOf(transaction.getDescription());
+
+        double amount = transaction.getAmount();
+        double in = 0, out = 0;
+        byte[] sender = null, recipient = null;
+        if (transaction instanceof Payment p) {
+            in = p.getIncomingInterest();
+            out = p.getOutgoingInterest();
+        } else if (transaction instanceof Transfer t) {
+            sender = bytesOf(t.getSender());
+            recipient = bytesOf(t.getRecipient());
+        }
+
+        for (int i = 0, offset = 0; i < size; i++, offset += RECORD_SIZE) {
+            if (records.get(offset + TYPE) == type
+                    && records.getDouble(offset + AMOUNT) == amount
+                    && records.getInt(offset + DATE) == date
+                    && records.getDouble(offset + INCOMING_INTEREST) == in
+                    && records.getDouble(offset + OUTGOING_INTEREST) == out
+                    && textEquals(records.getInt(offset + DESCRIPTION), description)
+                    && textEquals(records.getInt(offset + SENDER), sender)
+                    && textEquals(records.getInt(offset + RECIPIENT), recipient)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long sequence(int index) {
+        checkIndex(index);
+        return records.getLong(index * RECORD_SIZE + SEQUENCE);
+    }
+
+    @Override
+    public double calculate(int index) {
+        checkIndex(index);
+        return calculateRecord(index * RECORD_SIZE);
+    }
+
+    private double calculateRecord(int offset) {
+        return TransactionStore.calculate(records.get(offset + TYPE), records.getDouble(offset + AMOUNT),
+                records.getDouble(offset + INCOMING_INTEREST), records.getDouble(offset + OUTGOING_INTEREST));
+    }
+
+    /**
+     * Summiert direkt über die Datensätze im Puffer.
+     */
+    @Override
+    public double balance() {
+        double balance = 0.0;
+        int end = size * RECORD_SIZE;
+        for (int offset = 0; offset < end; offset += RECORD_SIZE) {
+            balance += calculateRecord(offset);
+        }
+        return balance;
+    }
+
+    @Override
+    public String getDate(int index) {
+        checkIndex(index);
+        return dictionary.decode(records.getInt(index * RECORD_SIZE + DATE));
+    }
+
+    @Override
+    public String getDescription(int index) {
+        checkIndex(index);
+        return readText(records.getInt(index * RECORD_SIZE + DESCRIPTION));
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        int offset = index * RECORD_SIZE;
+        return TransactionStore.materialize(records.get(offset + TYPE),
+                dictionary.decode(records.getInt(offset + DATE)),
+                records.getDouble(offset + AMOUNT),
+                readText(records.getInt(offset + DESCRIPTION)),
+                records.getDouble(offset + INCOMING_INTEREST),
+                records.getDouble(offset + OUTGOING_INTEREST),
+                readText(records.getInt(offset + SENDER)),
+                readText(records.getInt(offset + RECIPIENT)));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", Größe " + size);
+    }
+
+    /**
+     * Verdoppelt den Puffer, höchstens bis {@link #MAX_RECORDS} Datensätze. Der alte Puffer wird vom GC freigegeben,
+     * sobald er nicht mehr referenziert ist.
+     */
+    private void grow() {
+        if (size >= MAX_RECORDS) {
+            throw new IllegalStateException("Zu viele Transaktionen für ein Konto: höchstens " + MAX_RECORDS
+                    + " passen in einen Off-Heap-Puffer");
+        }
+        long capacity = Math.min(2L * records.capacity(), (long) MAX_RECORDS * RECORD_SIZE);
+        ByteBuffer bigger = ByteBuffer.allocateDirect((int) capacity);
+        bigger.put(0, records, 0, size * RECORD_SIZE);
+        records = bigger;
+    }
+
+    /**
+     * Hängt einen String an den Textbereich an.
+     *
+     * @return der Offset oder {@link #NO_TEXT} für null
+     */
+    private int writeText(String value) {
+        if (value == null) return NO_TEXT;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long needed = (long) textSize + Integer.BYTES + bytes.length;
+        if (needed > text.capacity()) growText(needed);
+        int offset = textSize;
+        text.putInt(offset, bytes.length);
+        text.put(offset + Integer.BYTES, bytes);
+        textSize = (int) needed;
+        return offset;
+    }
+
+    private String readText(int offset) {
+        if (offset == NO_TEXT) return null;
+        byte[] bytes = new byte[text.getInt(offset)];
+        text.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Vergleicht einen String im Textbereich mit den Bytes eines Strings, ohne ihn zu dekodieren.
+     */
+    private boolean textEquals(int offset, byte[] bytes) {
+        if (offset == NO_TEXT || bytes == null) return offset == NO_TEXT && bytes == null;
+        if (text.getInt(offset) != bytes.length) return false;
+        for (int i = 0, from = offset + Integer.BYTES; i < bytes.length; i++) {
+            if (text.get(from + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private int textLength(int offset) {
+        return offset == NO_TEXT ? 0 : Integer.BYTES + text.getInt(offset);
+    }
+
+    /**
+     * Vergrößert den Textbereich auf mindestens {@code needed} Byte, höchstens bis {@link Integer#MAX_VALUE}.
+     */
+    private void growText(long needed) {
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Zu viel Text für ein Konto: höchstens " + Integer.MAX_VALUE
+                    + " Byte passen in einen Off-Heap-Puffer");
+        }
+        long capacity = Math.min(Math.max(2L * text.capacity(), needed), Integer.MAX_VALUE);
+        ByteBuffer bigger = ByteBuffer.allocateDirect((int) capacity);
+        bigger.put(0, text, 0, textSize);
+        text = bigger;
+    }
+
+    /**
+     * Schreibt die Strings der vorhandenen Datensätze in einen neuen Textbereich und gibt damit den Text
+     * entfernter Transaktionen frei.
+     */
+    private void compactText() {
+        ByteBuffer old = text;
+        text = ByteBuffer.allocateDirect(Math.max(textSize - textGarbage, INITIAL_CAPACITY * 32));
+        textSize = 0;
+        textGarbage = 0;
+        for (int i = 0, offset = 0; i < size; i++, offset += RECORD_SIZE) {
+            for (int field : new int[]{DESCRIPTION, SENDER, RECIPIENT}) {
+                int from = records.getInt(offset + field);
+                if (from == NO_TEXT) continue;
+                int length = Integer.BYTES + old.getInt(from);
+                text.put(textSize, old, from, length);
+                records.putInt(offset + field, textSize);
+                textSize += length;
+            }
+        }
+    }
+}
@@ -20,7 +20,7 @@ public class OutgoingTransfer extends Transfer{
      * @return Der negative Betrag der Transaktion.
      */
     @Override
-    public double calculate() {
+    protected double computeCalculation() {
         return -this.getAmount();
     }
 }
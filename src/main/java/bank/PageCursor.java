@@ -0,0 +1,61 @@
+package bank;
+
+/**
+ * Position hinter dem zuletzt gelesenen Element einer Seite: Sortierschlüssel und Sequenznummer.
+ * Als String ist der Cursor für den Aufrufer undurchsichtig, er enthält außerdem Reihenfolge und
+ * Richtung, damit er nicht versehentlich mit einer anderen Sortierung weiterverwendet wird.
+ * Weil er nicht auf einer Position beruht, bleibt er gültig, wenn zwischen zwei Seiten Transaktionen
+ * hinzugefügt oder entfernt werden (auch die zuletzt gelesene selbst).
+ */
+final class PageCursor {
+
+    final TransactionOrder order;
+    final boolean asc;
+    final double key;
+    final long sequence;
+
+    PageCursor(TransactionOrder order, boolean asc, double key, long sequence) {
+        this.order = order;
+        this.asc = asc;
+        this.key = key;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return der Cursor als String für {@link TransactionPage#getNextCursor()}
+     */
+    String encode() {
+        return order + ":" + (asc ? "asc" : "desc") + ":" + Long.toHexString(Double.doubleToLongBits(key))
+                + ":" + Long.toHexString(sequence);
+    }
+
+    /**
+     * Liest einen Cursor wieder ein.
+     *
+     * @param cursor der String aus {@link #encode()}, null für den Anfang
+     * @return der Cursor oder null für den Anfang
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist oder nicht zu order und asc passt
+     */
+    static PageCursor decode(String cursor, TransactionOrder order, boolean asc) {
+        if (cursor == null) return null;
+        String[] parts = cursor.split(":");
+        if (parts.length != 4 || !parts[0].equals(order.name()) || !parts[1].equals(asc ? "asc" : "desc")) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+        }
+        try {
+            double key = Double.longBitsToDouble(Long.parseUnsignedLong(parts[2], 16));
+            return new PageCursor(order, asc, key, Long.parseUnsignedLong(parts[3], 16));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Prüft die Seitengröße einer Abfrage.
+     *
+     * @throws IllegalArgumentException wenn pageSize nicht positiv ist
+     */
+    static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Seitengröße muss positiv sein: " + pageSize);
+    }
+}
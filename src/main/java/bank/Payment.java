@@ -1,7 +1,5 @@
 package bank;
 
-import java.util.Objects;
-
 /**
  * Repräsentiert eine spezielle Art von Transaktion, die eine Ein- oder Auszahlung darstellt.
  * Diese Klasse erweitert {@link Transaction} und fügt Attribute für Zinsen hinzu,
@@ -72,6 +70,7 @@ public class Payment extends Transaction {
      * @param incomingInterest Der neue Zinssatz.
      */
     public void setIncomingInterest(double incomingInterest) {
+        checkMutable();
         this.incomingInterest = incomingInterest;
     }
 
@@ -90,6 +89,7 @@ public class Payment extends Transaction {
      * @param outgoingInterest Der neue Zinssatz.
      */
     public void setOutgoingInterest(double outgoingInterest) {
+        checkMutable();
         this.outgoingInterest = outgoingInterest;
     }
 
@@ -100,7 +100,7 @@ public class Payment extends Transaction {
      * mit outgoingInterest addiert bei Auszahlung
      */
     @Override
-    public double calculate() {
+    protected double computeCalculation() {
         double ret = 0;
         if(this.getAmount() > 0) {
             ret = this.getAmount() *(1-this.incomingInterest);
@@ -149,13 +149,15 @@ public double calculate2(){
     }
 
     /**
-     * Erzeugt einen Hashcode für das Objekt.
-     * Notwendig für die korrekte Funktion in HashMaps und HashSets.
+     * Erweitert den Hashcode um die Zinssätze (gleicher Wert wie
+     * {@code Objects.hash(super.hashCode(), incomingInterest, outgoingInterest)}, aber ohne Boxing).
      *
      * @return Ein Hashcode-Wert für dieses Objekt.
      */
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), incomingInterest, outgoingInterest);
+    protected int computeHashCode() {
+        int result = 31 + super.computeHashCode();
+        result = 31 * result + Double.hashCode(incomingInterest);
+        return 31 * result + Double.hashCode(outgoingInterest);
     }
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+package bank;
+
+import java.util.Arrays;
+
+/**
+ * Aufsteigend sortierte Liste von Sequenznummern (Trefferliste eines Index).
+ * Gespeichert werden Blöcke aus Differenzen zur vorherigen Nummer als Varint. Da Nummern meist dicht
+ * aufeinander folgen, braucht ein Eintrag typischerweise nur ein Byte. Jeder Block kennt seine erste und
+ * letzte Nummer, Anhängen kostet O(1) und Entfernen dekodiert nur den betroffenen Block.
+ * Kleine Listen bestehen aus einem wachsenden Block, große aus Blöcken fester Größe, damit beim Anhängen
+ * nie die ganze Liste umkopiert wird.
+ */
+class Postings {
+
+    private static final int BLOCK_BYTES = 256;
+
+    private byte[][] blocks = {new byte[4]};
+    private int[] blockBytes = new int[1];
+    private int[] blockSizes = new int[1];
+    private int[] firsts = new int[1];
+    private int[] lasts = new int[1];
+    private int blockCount = 1;
+    private int size;
+
+    /**
+     * @return Anzahl der Nummern
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Hängt eine Nummer an.
+     *
+     * @param sequence größer als alle enthaltenen Nummern
+     */
+    void add(int sequence) {
+        int last = blockCount - 1;
+        if (blockSizes[last] == 0) {
+            firsts[last] = sequence;
+            lasts[last] = sequence;
+            blockSizes[last] = 1;
+            size++;
+            return;
+        }
+
+        int delta = sequence - lasts[last];
+        int needed = varintLength(delta);
+        if (blockBytes[last] + needed > blocks[last].length) {
+            if (blocks[last].length < BLOCK_BYTES) {
+                blocks[last] = Arrays.copyOf(blocks[last], Math.min(blocks[last].length * 2, BLOCK_BYTES));
+            } else {
+                newBlock(sequence);
+                size++;
+                return;
+            }
+        }
+        blockBytes[last] = writeVarint(blocks[last], blockBytes[last], delta);
+        blockSizes[last]++;
+        lasts[last] = sequence;
+        size++;
+    }
+
+    /**
+     * Entfernt eine Nummer.
+     *
+     * @return true wenn sie enthalten war
+     */
+    boolean remove(int sequence) {
+        int block = blockOf(sequence);
+        if (blockSizes[block] == 0 || sequence > lasts[block] || sequence < firsts[block]) return false;
+
+        int[] values = decode(block);
+        int position = Arrays.binarySearch(values, sequence);
+        if (position < 0) return false;
+
+        size--;
+        if (values.length == 1) {
+            removeBlock(block);
+            return true;
+        }
+        // neu kodieren: die Differenz über die Lücke ist nie länger als die beiden alten zusammen
+        System.arraycopy(values, position + 1, values, position, values.length - position - 1);
+        int count = values.length - 1;
+        firsts[block] = values[0];
+        lasts[block] = values[count - 1];
+        blockSizes[block] = count;
+        int bytes = 0;
+        for (int i = 1; i < count; i++) {
+            bytes = writeVarint(blocks[block], bytes, values[i] - values[i - 1]);
+        }
+        blockBytes[block] = bytes;
+        return true;
+    }
+
+    /**
+     * @return alle Nummern aufsteigend als neues Array
+     */
+    int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int[] values = decode(block);
+            System.arraycopy(values, 0, result, n, values.length);
+            n += values.length;
+        }
+        return result;
+    }
+
+    /**
+     * @return die sortierte Vereinigung zweier aufsteigender Arrays ohne Duplikate
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) next = a[i++];
+            else if (i == a.length || b[j] < a[i]) next = b[j++];
+            else {
+                next = a[i++];
+                j++;
+            }
+            merged[n++] = next;
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * @return die Schnittmenge zweier aufsteigender Arrays
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] common = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                common[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, n);
+    }
+
+    /**
+     * @return der letzte Block, dessen erste Nummer <= sequence ist (oder 0)
+     */
+    private int blockOf(int sequence) {
+        int low = 0, high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firsts[mid] <= sequence) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    private int[] decode(int block) {
+        int[] values = new int[blockSizes[block]];
+        if (values.length == 0) return values;
+        byte[] data = blocks[block];
+        int value = firsts[block];
+        values[0] = value;
+        int offset = 0;
+        for (int i = 1; i < values.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private void newBlock(int sequence) {
+        if (blockCount == blocks.length) {
+            int capacity = blockCount * 2;
+            blocks = Arrays.copyOf(blocks, capacity);
+            blockBytes = Arrays.copyOf(blockBytes, capacity);
+            blockSizes = Arrays.copyOf(blockSizes, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            lasts = Arrays.copyOf(lasts, capacity);
+        }
+        int block = blockCount++;
+        blocks[block] = new byte[BLOCK_BYTES];
+        blockBytes[block] = 0;
+        blockSizes[block] = 1;
+        firsts[block] = sequence;
+        lasts[block] = sequence;
+    }
+
+    private void removeBlock(int block) {
+        if (blockCount == 1) {
+            blockSizes[0] = 0;
+            blockBytes[0] = 0;
+            return;
+        }
+        int moved = blockCount - block - 1;
+        System.arraycopy(blocks, block + 1, blocks, block, moved);
+        System.arraycopy(blockBytes, block + 1, blockBytes, block, moved);
+        System.arraycopy(blockSizes, block + 1, blockSizes, block, moved);
+        System.arraycopy(firsts, block + 1, firsts, block, moved);
+        System.arraycopy(lasts, block + 1, lasts, block, moved);
+        blocks[--blockCount] = null;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    private static int writeVarint(byte[] data, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+}
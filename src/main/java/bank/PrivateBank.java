@@ -10,11 +10,27 @@ import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Repräsentiert eine private Bank, die Konten und Transaktionen verwaltet.
  * Implementiert das Bank-Interface unter Verwendung von Incoming/OutgoingTransfer (Variante 1).
+ * <p>
+ * Die Bank ist threadsicher. Jedes Konto hat eine eigene Lese-/Schreibsperre ({@link #accountLocks}),
+ * Änderungen an verschiedenen Konten laufen also parallel. Die bankweiten Indizes und der {@link StringPool}
+ * haben keine gemeinsame Sperre, sie sind pro Wort bzw. pro Paar von Namen partitioniert.
+ * Kontostand, Transaktionsliste und {@link #containsTransaction} lesen ohne Sperre aus dem zuletzt
+ * veröffentlichten Stand der {@link TransactionLog} und warten nie auf Schreiber.
+ * Jede veröffentlichte Änderung bekommt eine Version ({@link VersionClock}), {@link #snapshot()} liest
+ * darüber die ganze Bank zu einem festen Stand.
  */
 public class PrivateBank implements Bank {
 
@@ -28,12 +44,73 @@ public class PrivateBank implements Bank {
 
     /**
      * Map, die Kontonamen auf Listen von Transaktionen abbildet.
-     * Wird direkt initialisiert.
+     * Wird direkt initialisiert. Die Listen können ohne Kontosperre über {@link TransactionLog#snapshot()} gelesen werden.
      */
-    private final Map<String, List<Transaction>> accountsToTransactions = new HashMap<>();
+    private final Map<String, TransactionLog> accountsToTransactions = new ConcurrentHashMap<>();
+
+    /**
+     * Versionen für {@link #snapshot()}, jede veröffentlichte Änderung eines Kontos bekommt die nächste.
+     */
+    private final VersionClock versions;
+
+    /**
+     * Gelöschte Konten, die ein offener Snapshot noch sehen muss. Wird beim Löschen aufgeräumt.
+     */
+    private final Queue<Map.Entry<String, TransactionLog>> deletedAccounts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Sekundärindizes pro Konto (gleiche Schlüssel wie {@link #accountsToTransactions}).
+     */
+    private final Map<String, AccountIndex> accountIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Eine Sperre pro Konto: Schreiben exklusiv, Lesen geteilt. Ein Konto existiert, solange seine Sperre
+     * hier eingetragen ist; wer eine Sperre bekommt, prüft deshalb danach, ob sie noch die aktuelle ist.
+     */
+    private final Map<String, ReentrantReadWriteLock> accountLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Bankweiter invertierter Index über die Beschreibungen, verweist über die Sequenznummern der {@link #accountIndexes}.
+     */
+    private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+
+    /**
+     * Bankweiter Index von Sender/Empfänger auf die Überweisungen, in denen sie vorkommen.
+     */
+    private final CounterpartyIndex counterpartyIndex = new CounterpartyIndex();
+
+    /**
+     * Pool für Kontonamen und wiederkehrende Strings der Transaktionen (Datum, Beschreibung, Sender, Empfänger).
+     */
+    private final StringPool stringPool = new StringPool();
+
+    /**
+     * Gson zum Einlesen, dedupliziert die gelesenen Strings über den {@link #stringPool}.
+     */
+    private final Gson readGson = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Transaction.class, new JSONHandler(stringPool))
+            .create();
+
+    /**
+     * Konten mit Änderungen aus {@link #ingestTransaction}, die noch nicht gespeichert wurden.
+     */
+    private final Set<String> dirtyAccounts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Idempotenzschlüssel für {@link #addTransaction(String, Transaction, String)}, wird beim ersten Gebrauch
+     * aus dem Verzeichnis gelesen.
+     */
+    private IdempotencyWindow idempotencyKeys;
+
+    /**
+     * Reservierte Idempotenzschlüssel je Konto, deren Buchung gebucht, aber noch nicht gespeichert ist. Sie werden
+     * erst bestätigt, wenn die Datei des Kontos geschrieben wurde; bis dahin liefern Wiederholungen
+     * {@link TransactionResult#REPLAYED}.
+     */
+    private final Map<String, Set<String>> unsavedKeys = new ConcurrentHashMap<>();
     private String name;
-    private double incomingInterest;
-    private double outgoingInterest;
+    private volatile double incomingInterest;
+    private volatile double outgoingInterest;
     private String directoryName;
     /**
      * Standard-Konstruktor.
@@ -43,6 +120,19 @@ public class PrivateBank implements Bank {
      * @param outgoingInterest Auszahlungszins
      */
     public PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName) throws IOException {
+        this(name, incomingInterest, outgoingInterest, directoryName, new VersionClock(), null);
+    }
+
+    /**
+     * Bank mit vorgegebenen Versionen und Idempotenzschlüsseln, z.B. als Shard einer {@link ShardedBank}, deren
+     * Shards sich eine Uhr und die Schlüssel teilen.
+     *
+     * @param idempotencyKeys gemeinsame Schlüssel, null für eigene im Verzeichnis der Bank
+     */
+    PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName, VersionClock versions,
+                IdempotencyWindow idempotencyKeys) throws IOException {
+        this.versions = versions;
+        this.idempotencyKeys = idempotencyKeys;
         this.name = name;
         this.incomingInterest = incomingInterest;
         this.outgoingInterest = outgoingInterest;
@@ -58,14 +148,30 @@ public class PrivateBank implements Bank {
      * @param other Die zu kopierende PrivateBank
      */
     public PrivateBank(PrivateBank other) throws IOException {
+        this.versions = new VersionClock();
         this.name = other.name;
         this.incomingInterest = other.incomingInterest;
         this.outgoingInterest = other.outgoingInterest;
         this.directoryName = other.directoryName;
     }
 
+    /**
+     * gibt zu jedem account den zuletzt veröffentlichten stand seiner transactions zurück.
+     * Die listen sind schreibgeschützte snapshots, geändert wird nur über die methoden der bank.
+     *
+     * @return neue, unveränderliche map
+     */
     public Map<String, List<Transaction>> getAccountsToTransactions() {
-        return accountsToTransactions;
+        Map<String, List<Transaction>> result = new HashMap<>();
+        accountsToTransactions.forEach((account, transactions) -> result.put(account, transactions.snapshot()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return der Pool der Bank, inkl. Statistik wie viel Speicher gespart wurde
+     */
+    public StringPool getStringPool() {
+        return stringPool;
     }
 
     /**
@@ -155,16 +261,24 @@ public class PrivateBank implements Bank {
         for (File file : files) {
             if (!file.getName().endsWith(".json")) continue;
 
-            String account = file.getName().substring(0, file.getName().length() - 5);
+            String account = stringPool.intern(file.getName().substring(0, file.getName().length() - 5));
 
             try {
                 String json = Files.readString(file.toPath());
 
                 Type type = new TypeToken<List<Transaction>>() {}.getType();
-                List<Transaction> transactions = gson.fromJson(json, type);
+                List<Transaction> read = readGson.fromJson(json, type);
 
-                if (transactions != null) {
+                if (read != null) {
+                    read.forEach(Transaction::freeze); // gehören nur der Bank
+                    TransactionLog transactions = new TransactionLog(versions, read);
                     accountsToTransactions.put(account, transactions);
+                    AccountIndex index = new AccountIndex(transactions);
+                    accountIndexes.put(account, index);
+                    accountLocks.put(account, new ReentrantReadWriteLock());
+                    for (int i = 0; i < transactions.size(); i++) {
+                        indexTransaction(account, transactions.get(i), index.sequenceAt(i));
+                    }
                 }
             } catch (Exception e) {
                 System.out.println("Fehler beim Lesen von " + file.getName());
@@ -174,17 +288,125 @@ public class PrivateBank implements Bank {
 
     /**
      * Speichert ein spezifisches Konto als JSON-Datei.
+     * Das JSON wird direkt in eine temporäre Datei geschrieben, ohne vorher den ganzen String im Speicher aufzubauen,
+     * und dann an die Stelle der alten verschoben; ein abgebrochenes Schreiben hinterlässt so nie eine halbe Datei.
+     * Der Aufrufer hält die Schreibsperre des Kontos. Scheitert das Schreiben, bleibt das Konto als geändert markiert.
      */
     private void writeAccount(String account) throws IOException {
-        if (!accountsToTransactions.containsKey(account)) return;
+        if (!accountsToTransactions.containsKey(account)) {
+            dirtyAccounts.remove(account);
+            return;
+        }
 
         Path path = Paths.get(directoryName, account + ".json");
+        Path temp = path.resolveSibling(account + ".json.tmp");
 
         if (!Files.exists(path.getParent())) Files.createDirectories(path.getParent());
 
         List<Transaction> transactions = accountsToTransactions.get(account);
-        String json = gson.toJson(transactions);
-        Files.writeString(path, json);
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            gson.toJson(transactions, writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirtyAccounts.remove(account);
+
+        Set<String> keys = unsavedKeys.remove(account);
+        if (keys != null) {
+            for (String key : keys) idempotencyKeys().confirm(key);
+        }
+    }
+
+    /**
+     * Speichert alle Konten, die seit dem letzten Speichern über {@link #ingestTransaction} geändert wurden.
+     * Jedes Konto wird dabei genau einmal geschrieben.
+     */
+    public void flush() throws IOException {
+        persist(new ArrayList<>(dirtyAccounts));
+    }
+
+    /**
+     * Speichert die angegebenen Konten jeweils unter ihrer Schreibsperre, inzwischen gelöschte werden übersprungen.
+     * Die Schreibsperre verhindert, dass zwei Threads (z.B. eine {@link IngestPipeline} und ein Aufrufer von
+     * {@link #flush()}) gleichzeitig dieselbe Datei schreiben.
+     */
+    void persist(Collection<String> accounts) throws IOException {
+        for (String account : accounts) {
+            Lock lock = tryLockAccount(account, true);
+            if (lock == null) {
+                dirtyAccounts.remove(account); // inzwischen gelöscht
+                continue;
+            }
+            try {
+                writeAccount(account);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sperrt ein Konto zum Lesen oder Schreiben. Wurde das Konto gelöscht, während auf die Sperre gewartet
+     * wurde, wird die Sperre wieder freigegeben und (falls es neu angelegt wurde) die neue genommen.
+     *
+     * @param account das Konto
+     * @param write   true für die exklusive Schreibsperre
+     * @return die genommene Sperre, muss vom Aufrufer freigegeben werden
+     * @throws AccountDoesNotExistException wenn das Konto nicht existiert
+     */
+    private Lock lockAccount(String account, boolean write) {
+        Lock lock = tryLockAccount(account, write);
+        if (lock == null)
+            throw new AccountDoesNotExistException("Konto '" + account + "' existiert nicht!");
+        return lock;
+    }
+
+    /**
+     * Wie {@link #lockAccount}, aber ohne Exception.
+     *
+     * @return die genommene Sperre oder null, wenn das Konto nicht existiert
+     */
+    private Lock tryLockAccount(String account, boolean write) {
+        while (true) {
+            ReentrantReadWriteLock accountLock = account == null ? null : accountLocks.get(account);
+            if (accountLock == null) return null;
+            Lock lock = write ? accountLock.writeLock() : accountLock.readLock();
+            lock.lock();
+            if (accountLocks.get(account) == accountLock) return lock;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wertet den Index eines Kontos unter dessen Lesesperre aus.
+     *
+     * @throws AccountDoesNotExistException wenn das Konto nicht existiert
+     */
+    private <T> T readAccount(String account, Function<AccountIndex, T> reader) {
+        Lock lock = lockAccount(account, false);
+        try {
+            return reader.apply(accountIndexes.get(account));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wie {@link #readAccount}, liefert aber null, wenn das Konto nicht (mehr) existiert.
+     * Für bankweite Auswertungen, die parallel zu Löschungen laufen.
+     */
+    private <T> T readAccountIfPresent(String account, Function<AccountIndex, T> reader) {
+        try {
+            return readAccount(account, reader);
+        } catch (AccountDoesNotExistException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true wenn es noch ungespeicherte Änderungen gibt
+     */
+    public boolean hasUnsavedChanges() {
+        return !dirtyAccounts.isEmpty();
     }
 
 
@@ -200,12 +422,21 @@ public class PrivateBank implements Bank {
     @Override
     public void createAccount(String account) throws AccountAlreadyExistsException,IOException {
 
-        if (accountsToTransactions.containsKey(account)) {
-            throw new AccountAlreadyExistsException("Konto '" + account + "' existiert bereits.");
-        }
-        accountsToTransactions.put(account, new ArrayList<>());
+        account = stringPool.intern(account);
+        ReentrantReadWriteLock accountLock = new ReentrantReadWriteLock();
+        accountLock.writeLock().lock(); // gesperrt eintragen, damit niemand das halb angelegte Konto sieht
+        try {
+            if (accountLocks.putIfAbsent(account, accountLock) != null) {
+                throw new AccountAlreadyExistsException("Konto '" + account + "' existiert bereits.");
+            }
+            TransactionLog transactions = new TransactionLog(versions);
+            accountsToTransactions.put(account, transactions);
+            accountIndexes.put(account, new AccountIndex(transactions));
 
-        writeAccount(account);
+            writeAccount(account);
+        } finally {
+            accountLock.writeLock().unlock();
+        }
     }
 
 
@@ -241,26 +472,51 @@ public class PrivateBank implements Bank {
      * @throws TransactionAttributeException wenn Attribute ungültig sind
      */
     public void attributeValidation(Transaction transaction) throws TransactionAttributeException {
+        validateAttributes(transaction);
+    }
+
+    /**
+     * Statische Variante der Validierung, damit andere Bank-Implementierungen die gleichen Regeln nutzen.
+     *
+     * @param transaction Die zu prüfende Transaktion
+     * @throws TransactionAttributeException wenn Attribute ungültig sind
+     */
+    static void validateAttributes(Transaction transaction) throws TransactionAttributeException {
+        TransactionResult result = checkAttributes(transaction);
+        if (result != TransactionResult.OK) throw new TransactionAttributeException(result.getMessage());
+    }
+
+    /**
+     * Prüft die Attribute ohne Exception.
+     *
+     * @param transaction Die zu prüfende Transaktion
+     * @return {@link TransactionResult#OK} oder der Grund der Ablehnung
+     */
+    static TransactionResult checkAttributes(Transaction transaction) {
+        if (transaction == null) return TransactionResult.NULL_TRANSACTION;
         if (transaction instanceof Payment p) {
             if (p.getIncomingInterest() < 0 || p.getIncomingInterest() > 1 ||
                     p.getOutgoingInterest() < 0 || p.getOutgoingInterest() > 1) {
-                throw new TransactionAttributeException("IncomingInterest oder OutgoingInterest außerhalb des Wertebereiches (0-1)!");
+                return TransactionResult.INTEREST_OUT_OF_RANGE;
             }
             if (p.getAmount() == 0) { //payment gleich 0 unsinn
-                throw new TransactionAttributeException("Payment Amount darf nicht 0 sein!");
+                return TransactionResult.ZERO_AMOUNT;
             }
         }
 
         if (transaction instanceof Transfer t) {
             if (t.getAmount() <= 0) { // Transfers müssen positiv sein
-                throw new TransactionAttributeException("Transfer Amount muss positiv sein!");
+                return TransactionResult.NON_POSITIVE_TRANSFER;
             }
         }
+        return TransactionResult.OK;
     }
 
 
     /**
-     * fügt eine neue transaction einem bestehenden account hinzu
+     * fügt eine neue transaction einem bestehenden account hinzu.
+     * Gespeichert wird eine eingefrorene Kopie in Bank-Form (Zinsen der Bank, Incoming/OutgoingTransfer),
+     * das übergebene Objekt wird nicht verändert. Ist es schon eingefroren und in Bank-Form, wird es direkt geteilt.
      *
      * @param account     der account der transaction bekommt
      * @param transaction die hinzukommende transaction
@@ -270,160 +526,1125 @@ public class PrivateBank implements Bank {
      */
     @Override
     public void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
-        if (!accountsToTransactions.containsKey(account))
-            throw new AccountDoesNotExistException("Konto exestiert nicht");
-        if (accountsToTransactions.get(account).contains(transaction))
-            throw new TransactionAlreadyExistException("Transaction exestiert bereits");
-        attributeValidation(transaction);
+        tryAddTransaction(account, transaction).throwIfFailed(account);
+    }
 
-        if (transaction instanceof Payment p) { // zinswerte von alter bank überschreiben weil mit payment calc geabreitet wird
-            p.setIncomingInterest(this.incomingInterest);
-            p.setOutgoingInterest(this.outgoingInterest);
+    /**
+     * wie {@link #addTransaction}, meldet abgelehnte transactions aber über das ergebnis statt über eine exception.
+     *
+     * @param account     der account der transaction bekommt
+     * @param transaction die hinzukommende transaction
+     * @return {@link TransactionResult#OK} oder der grund der ablehnung, dann wurde nichts verändert
+     */
+    public TransactionResult tryAddTransaction(String account, Transaction transaction) throws IOException {
+        if (transaction == null) return TransactionResult.NULL_TRANSACTION;
+        Lock lock = tryLockAccount(account, true);
+        if (lock == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            TransactionResult result = addUnderLock(account, transaction);
+            if (result.isOk()) writeAccount(account); // Speichert das Konto mit der neuen Transaktion
+            return result;
+        } finally {
+            lock.unlock();
         }
+    }
 
+    /**
+     * Schneller Pfad zum Einspielen vieler Transaktionen: gleiche Prüfungen wie {@link #addTransaction},
+     * aber das Konto wird nur als geändert markiert und erst mit {@link #flush()} gespeichert.
+     * Wird eine bereits eingefrorene Transaktion in Bank-Form übergeben (z.B. ein OutgoingTransfer für den Sender),
+     * wird sie ohne Kopie übernommen, dann entstehen pro Transaktion praktisch keine neuen Objekte.
+     *
+     * @param account     der account der transaction bekommt
+     * @param transaction die hinzukommende transaction
+     * @throws TransactionAlreadyExistException falls die transaction schon existiert
+     * @throws AccountDoesNotExistException     wenn der account nicht existiert
+     * @throws TransactionAttributeException    wenn die Validierung fehlschlägt
+     */
+    public void ingestTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
+        tryIngestTransaction(account, transaction).throwIfFailed(account);
+    }
 
-        if (transaction instanceof Transfer t) {
+    /**
+     * wie {@link #ingestTransaction}, ohne exception für abgelehnte transactions. Auch eine abgelehnte
+     * transaction erzeugt dann kaum neue objekte.
+     *
+     * @param account     der account der transaction bekommt
+     * @param transaction die hinzukommende transaction
+     * @return {@link TransactionResult#OK} oder der grund der ablehnung, dann wurde nichts verändert
+     */
+    public TransactionResult tryIngestTransaction(String account, Transaction transaction) {
+        if (transaction == null) return TransactionResult.NULL_TRANSACTION;
+        Lock lock = tryLockAccount(account, true);
+        if (lock == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            return addUnderLock(account, transaction);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            if (t.getSender().equals(account)) {
-                transaction = new OutgoingTransfer(t); //überschriebt calc
-            } else if (t.getRecipient().equals(account)) {
-                transaction = new IncomingTransfer(t);
+    /**
+     * fügt eine transaction mit idempotenzschlüssel hinzu. Wurde der schlüssel im zeitfenster schon gebucht
+     * (z.B. weil der aufrufer nach einem timeout wiederholt), passiert nichts und es gibt keine exception.
+     * Die schlüssel werden in O(1) nachgeschlagen und überstehen einen neustart; statt der suche nach einer
+     * gleichen transaction schützt der schlüssel vor doppelten buchungen, gleiche transactions mit verschiedenen
+     * schlüsseln werden also beide gebucht.
+     *
+     * @param account        der account der transaction bekommt
+     * @param transaction    die hinzukommende transaction
+     * @param idempotencyKey bankweit eindeutiger schlüssel der einreichung, null wie {@link #addTransaction(String, Transaction)}
+     * @throws TransactionAlreadyExistException nur ohne schlüssel, falls die transaction schon existiert
+     * @throws AccountDoesNotExistException     wenn der account nicht existiert
+     * @throws TransactionAttributeException    wenn die Validierung fehlschlägt
+     */
+    public void addTransaction(String account, Transaction transaction, String idempotencyKey)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        tryAddTransaction(account, transaction, idempotencyKey).throwIfFailed(account);
+    }
+
+    /**
+     * wie {@link #addTransaction(String, Transaction, String)} ohne exception für abgelehnte transactions.
+     *
+     * @return {@link TransactionResult#OK}, {@link TransactionResult#REPLAYED} für einen schon gebuchten schlüssel
+     * oder der grund der ablehnung
+     */
+    public TransactionResult tryAddTransaction(String account, Transaction transaction, String idempotencyKey) throws IOException {
+        if (idempotencyKey == null) return tryAddTransaction(account, transaction);
+        if (idempotencyKey.isEmpty() || idempotencyKey.indexOf('\n') >= 0 || idempotencyKey.indexOf('\r') >= 0)
+            throw new IllegalArgumentException("Ungültiger Idempotenzschlüssel");
+        if (transaction == null) return TransactionResult.NULL_TRANSACTION;
+        IdempotencyWindow keys = idempotencyKeys();
+        Lock lock = tryLockAccount(account, true);
+        if (lock == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            if (!keys.claim(idempotencyKey)) return TransactionResult.REPLAYED;
+            TransactionResult result = stageUnderLock(account, transaction, false);
+            if (!result.isOk()) {
+                keys.release(idempotencyKey);
+                return result;
             }
+            accountsToTransactions.get(account).commit();
+            // bestätigt wird erst mit der Datei; scheitert das Schreiben, bleibt der Schlüssel reserviert und das
+            // Konto für das nächste flush() markiert
+            unsavedKeys.computeIfAbsent(account, a -> new LinkedHashSet<>()).add(idempotencyKey);
+            dirtyAccounts.add(account);
+            writeAccount(account);
+            return result;
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * Stellt Zeitfenster und Höchstzahl der gemerkten Idempotenzschlüssel ein,
+     * Standard sind ein Tag und {@value IdempotencyWindow#DEFAULT_MAX_KEYS} Schlüssel.
+     *
+     * @param windowMillis wie lange ein Schlüssel gemerkt wird, in Millisekunden
+     * @param maxKeys      wie viele Schlüssel höchstens gemerkt werden, die ältesten fallen zuerst heraus
+     */
+    public void setIdempotencyWindow(long windowMillis, int maxKeys) throws IOException {
+        idempotencyKeys().setLimits(windowMillis, maxKeys);
+    }
 
-        accountsToTransactions.get(account).add(transaction);
-        writeAccount(account); // Speichert das Konto mit der neuen Transaktion
+    /**
+     * @return die Idempotenzschlüssel, beim ersten Aufruf aus dem Verzeichnis gelesen
+     */
+    synchronized IdempotencyWindow idempotencyKeys() throws IOException {
+        if (idempotencyKeys == null)
+            idempotencyKeys = new IdempotencyWindow(Paths.get(directoryName, IdempotencyWindow.FILE_NAME));
+        return idempotencyKeys;
     }
 
+    /**
+     * Prüft und speichert eine Transaktion, der Aufrufer hält die Schreibsperre des Kontos.
+     */
+    private TransactionResult addUnderLock(String account, Transaction transaction) {
+        TransactionResult result = stageUnderLock(account, transaction);
+        if (result.isOk()) accountsToTransactions.get(account).commit();
+        return result;
+    }
 
     /**
-     * entfernt transaction vom account
+     * Prüft, merkt vor und indiziert eine Transaktion, der Aufrufer hält die Schreibsperre des Kontos.
+     * Ohne Sperre lesende Aufrufer und Snapshots sehen sie erst nach {@link TransactionLog#commit()}.
      *
-     * @param account     der account von dem die transaction entfernt wird
-     * @param transaction zu entfernende transaction
-     * @throws AccountDoesNotExistException     wenn der gegebene account nicht existiert
-     * @throws TransactionDoesNotExistException wenn die transaction nicht existiert
+     * @return {@link TransactionResult#OK} oder der Grund der Ablehnung, dann wurde nichts vorgemerkt
      */
-    @Override
-    public void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
-        if (!accountsToTransactions.containsKey(account))
-            throw new AccountDoesNotExistException("Konto exestiert nicht");
-        if (!accountsToTransactions.get(account).contains(transaction))
-            throw new TransactionDoesNotExistException("Transaktion exestiert nicht");
+    private TransactionResult stageUnderLock(String account, Transaction transaction) {
+        return stageUnderLock(account, transaction, true);
+    }
+
+    /**
+     * @param checkDuplicate false, wenn ein Idempotenzschlüssel statt der Suche nach einer gleichen Transaktion
+     *                       vor doppelten Buchungen schützt
+     */
+    private TransactionResult stageUnderLock(String account, Transaction transaction, boolean checkDuplicate) {
+        if (transaction == null) return TransactionResult.NULL_TRANSACTION;
+        TransactionLog transactions = accountsToTransactions.get(account);
+        Transaction stored = toStored(account, transaction);
+        if (checkDuplicate && transactions.contains(stored)) return TransactionResult.DUPLICATE;
+        TransactionResult valid = checkAttributes(transaction);
+        if (!valid.isOk()) return valid;
+
+        appendUnderLock(account, stored);
+        return TransactionResult.OK;
+    }
 
-        accountsToTransactions.get(account).remove(transaction);
-        writeAccount(account);
+    /**
+     * Hängt eine schon geprüfte, gespeicherte Form einer Transaktion an und indiziert sie; kann nicht scheitern.
+     * Der Aufrufer hält die Schreibsperre und veröffentlicht danach mit {@link TransactionLog#commit}.
+     */
+    private void appendUnderLock(String account, Transaction stored) {
+        accountsToTransactions.get(account).stage(stored);
+        indexTransaction(account, stored, accountIndexes.get(account).add(stored));
+        dirtyAccounts.add(account);
     }
 
 
     /**
-     * prüft die existenz der transaction auf einem account.
+     * bucht eine überweisung auf beiden seiten und speichert beide accounts.
+     * Beide Konten werden in fester Reihenfolge (nach Namen) gesperrt, so können sich zwei gegenläufige
+     * Überweisungen nicht gegenseitig blockieren. Andere Threads sehen entweder beide Seiten oder keine.
      *
-     * @param account     der zu checkende account
-     * @param transaction die zu überprüfende transaction
+     * @param sender      account, von dem abgebucht wird
+     * @param recipient   account, dem gutgeschrieben wird
+     * @param amount      betrag, muss positiv sein
+     * @param date        datum
+     * @param description beschreibung
+     * @throws TransactionAlreadyExistException falls die überweisung auf einer seite schon existiert
+     * @throws AccountDoesNotExistException     wenn ein account nicht existiert
+     * @throws TransactionAttributeException    wenn der betrag nicht positiv ist oder sender gleich empfänger
      */
     @Override
-    public boolean containsTransaction(String account, Transaction transaction) {
-        return accountsToTransactions.get(account).contains(transaction);
+    public void transfer(String sender, String recipient, double amount, String date, String description)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        tryTransfer(sender, recipient, amount, date, description).throwIfFailed(missingAccount(this, sender, recipient));
     }
 
     /**
-     * gibt aktuellen Kontostand zurück
+     * wie {@link #transfer}, meldet eine abgelehnte überweisung aber über das ergebnis statt über eine exception.
      *
-     * @param account der aktuelle account
-     * @return der aktuelle kontostand
+     * @return {@link TransactionResult#OK} oder der grund der ablehnung, dann wurde nichts verändert
      */
-    @Override
-    public double getAccountBalance(String account) {
-        if (!accountsToTransactions.containsKey(account)) {
-            throw new AccountDoesNotExistException("Konto '" + account + "' existiert nicht!");
+    public TransactionResult tryTransfer(String sender, String recipient, double amount, String date, String description)
+            throws IOException {
+        Transfer transfer = new Transfer(date, amount, description, sender, recipient);
+        TransactionResult valid = checkTransfer(transfer);
+        if (!valid.isOk()) return valid;
+        Lock[] locks = lockBoth(this, sender, this, recipient);
+        if (locks == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            TransactionResult result = bookUnderLocks(this, this, transfer);
+            if (result.isOk()) {
+                writeAccount(sender);
+                writeAccount(recipient);
+            }
+            return result;
+        } finally {
+            unlockBoth(locks);
         }
-        double balance = 0.0;
-        List<Transaction> transactions = accountsToTransactions.get(account);
+    }
 
-        for (Transaction transaction : transactions) {
-            balance += transaction.calculate();
+    /**
+     * Wie {@link #transfer}, aber beide Konten werden nur als geändert markiert und erst mit {@link #flush()}
+     * gespeichert. Für viele Überweisungen zwischen wenigen Konten, bei denen sonst das Schreiben der Dateien
+     * die Sperren hält.
+     */
+    public void ingestTransfer(String sender, String recipient, double amount, String date, String description)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
+        tryIngestTransfer(sender, recipient, amount, date, description).throwIfFailed(missingAccount(this, sender, recipient));
+    }
+
+    /**
+     * wie {@link #ingestTransfer(String, String, double, String, String)}, ohne exception für abgelehnte überweisungen.
+     *
+     * @return {@link TransactionResult#OK} oder der grund der ablehnung, dann wurde nichts verändert
+     */
+    public TransactionResult tryIngestTransfer(String sender, String recipient, double amount, String date, String description) {
+        return ingestTransfer(this, this, new Transfer(date, amount, description, sender, recipient));
+    }
+
+    /**
+     * Wie {@link #tryIngestTransfer}, Sender und Empfänger dürfen in verschiedenen Banken liegen, die sich eine
+     * {@link VersionClock} teilen (siehe {@link ShardedBank}).
+     */
+    static TransactionResult ingestTransfer(PrivateBank senderBank, PrivateBank recipientBank, Transfer transfer) {
+        TransactionResult valid = checkTransfer(transfer);
+        if (!valid.isOk()) return valid;
+        Lock[] locks = lockBoth(senderBank, transfer.getSender(), recipientBank, transfer.getRecipient());
+        if (locks == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            return bookUnderLocks(senderBank, recipientBank, transfer);
+        } finally {
+            unlockBoth(locks);
         }
+    }
 
-        return balance;
+    /**
+     * Prüft, was eine Überweisung ohne Sperren prüfen kann: beide Konten angegeben, verschieden, Betrag positiv.
+     */
+    private static TransactionResult checkTransfer(Transfer transfer) {
+        if (transfer.getSender() == null || transfer.getRecipient() == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        if (transfer.getSender().equals(transfer.getRecipient())) return TransactionResult.SAME_ACCOUNT;
+        return checkAttributes(transfer);
     }
 
+    /**
+     * @return das Konto für die Meldung, wenn eine Überweisung an einem fehlenden Konto gescheitert ist
+     */
+    static String missingAccount(PrivateBank senderBank, String sender, String recipient) {
+        return sender == null || !senderBank.accountLocks.containsKey(sender) ? sender : recipient;
+    }
 
     /**
-     * gibt liste der transaktionen für account zurück
+     * Bucht beide Seiten, der Aufrufer hält beide Schreibsperren. Die Empfängerseite wird vorher geprüft und danach
+     * nur noch angehängt, nach dem Buchen beim Sender kann also nichts mehr schiefgehen. Beide Seiten werden unter
+     * derselben Version veröffentlicht.
+     */
+    private static TransactionResult bookUnderLocks(PrivateBank senderBank, PrivateBank recipientBank, Transfer transfer) {
+        String sender = transfer.getSender(), recipient = transfer.getRecipient();
+        TransactionLog incoming = recipientBank.accountsToTransactions.get(recipient);
+        Transaction stored = recipientBank.toStored(recipient, transfer);
+        if (incoming.contains(stored)) return TransactionResult.DUPLICATE;
+        TransactionResult result = senderBank.stageUnderLock(sender, transfer);
+        if (!result.isOk()) return result;
+        recipientBank.appendUnderLock(recipient, stored);
+        TransactionLog.commit(senderBank.accountsToTransactions.get(sender), incoming);
+        return TransactionResult.OK;
+    }
+
+    /**
+     * Sperrt zwei Konten zum Schreiben, immer in der Reihenfolge ihrer Namen, auch über Banken hinweg.
      *
-     * @param account der ausgewählte account
-     * @return liste aller transactions des accounts
-     * @throws AccountDoesNotExistException
+     * @return beide Sperren in der Reihenfolge, in der sie genommen wurden, oder null, wenn ein Konto nicht existiert
      */
-    @Override
-    public List<Transaction> getTransactions(String account) throws AccountDoesNotExistException {
-        if (!accountsToTransactions.containsKey(account))
-            throw new AccountDoesNotExistException("Konto existiert nicht!");
-        return accountsToTransactions.get(account);
+    private static Lock[] lockBoth(PrivateBank aBank, String a, PrivateBank bBank, String b) {
+        boolean ordered = a.compareTo(b) < 0;
+        Lock first = ordered ? aBank.tryLockAccount(a, true) : bBank.tryLockAccount(b, true);
+        if (first == null) return null;
+        Lock second = ordered ? bBank.tryLockAccount(b, true) : aBank.tryLockAccount(a, true);
+        if (second != null) return new Lock[]{first, second};
+        first.unlock();
+        return null;
     }
 
+    private static void unlockBoth(Lock[] locks) {
+        locks[1].unlock();
+        locks[0].unlock();
+    }
 
     /**
-     * gibt liste calculierter ammounts asc oder desc zurück oder leer
+     * fügt mehrere transactions auf einmal zu einem account hinzu, entweder alle oder keine.
      *
-     * @param account selektierter account
-     * @param asc     auswahl ob aufsteigend sortiert werden soll
-     * @return sortierte liste
+     * @param account      der account der die transactions bekommt
+     * @param transactions die hinzukommenden transactions
+     * @throws TransactionAlreadyExistException falls eine transaction schon existiert oder doppelt übergeben wird
+     * @throws AccountDoesNotExistException     wenn der account nicht existiert
+     * @throws TransactionAttributeException    wenn die Validierung einer transaction fehlschlägt
      */
     @Override
-    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
-        List<Transaction> transactions = getTransactions(account);
-        if (asc) {
-            transactions.sort(Comparator.comparingDouble(Transaction::calculate)); // Comparator(interface mit methode compare) nutzt calc() für jedes transaction obj
-        } else {
-            transactions.sort(Comparator.comparingDouble(Transaction::calculate).reversed());
-        }
-        return transactions;
+    public void addTransactions(String account, Collection<Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        addTransactions(Collections.singletonMap(account, transactions));
     }
 
-
     /**
-     * gibt eine liste von postiven oder negativen transactionen aus.
+     * fügt transactions zu mehreren accounts hinzu, entweder alle oder keine.
+     * Alle Konten werden in Namensreihenfolge gesperrt und zuerst vollständig geprüft: Validierung und
+     * Duplikate über ein Set pro Konto statt einer linearen Suche pro Transaktion. Erst dann wird gebucht,
+     * alle Konten werden unter einer Version veröffentlicht und jedes Konto einmal gespeichert.
      *
-     * @param account  selektierter accoung
-     * @param positive auswahl für pos oder negative accounts
-     * @return gibt liste nach typ zurück
+     * @param transactions die hinzukommenden transactions pro account
+     * @throws TransactionAlreadyExistException falls eine transaction schon existiert oder doppelt übergeben wird
+     * @throws AccountDoesNotExistException     wenn ein account nicht existiert
+     * @throws TransactionAttributeException    wenn die Validierung einer transaction fehlschlägt
      */
     @Override
-    public List<Transaction> getTransactionsByType(String account, boolean positive) {
-        List<Transaction> transactions = getTransactions(account);
-        List<Transaction> gefiltert = new ArrayList<>();
-
-        for (int i = 0; i < transactions.size(); i++) {
-            Transaction t = transactions.get(i);
-            double calculatedAmount = t.calculate();
-            if (positive && calculatedAmount >= 0) {
-                gefiltert.add(t);
-            } else if (!positive && calculatedAmount < 0) {
-                gefiltert.add(t);
-            }
+    public void addTransactions(Map<String, ? extends Collection<Transaction>> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        List<Lock> locks = lockAll(transactions.keySet(), account -> this);
+        try {
+            bookBatch(transactions, account -> this);
+            for (String account : transactions.keySet()) writeAccount(account);
+        } finally {
+            unlockAll(locks);
         }
-        return gefiltert;
     }
 
-
-    @Override
-    public List<String> getAllAccounts(){
-        return new ArrayList<>(accountsToTransactions.keySet());//gibt alle keys
+    /**
+     * Prüft und bucht einen Stapel über mehrere Konten, die in verschiedenen Banken mit gemeinsamer
+     * {@link VersionClock} liegen dürfen. Der Aufrufer hält über {@link #lockAll} die Schreibsperren aller Konten.
+     * Die Konten werden nur als geändert markiert, gespeichert wird vom Aufrufer.
+     *
+     * @param banks die Bank, in der ein Konto liegt
+     */
+    static void bookBatch(Map<String, ? extends Collection<Transaction>> transactions, Function<String, PrivateBank> banks)
+            throws TransactionAlreadyExistException {
+        Map<String, List<Transaction>> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<Transaction>> entry : transactions.entrySet()) {
+            batch.put(entry.getKey(), banks.apply(entry.getKey()).checkBatch(entry.getKey(), entry.getValue()));
+        }
+        List<TransactionLog> logs = new ArrayList<>(batch.size());
+        for (Map.Entry<String, List<Transaction>> entry : batch.entrySet()) {
+            logs.add(banks.apply(entry.getKey()).stageBatch(entry.getKey(), entry.getValue()));
+        }
+        TransactionLog.commit(logs);
     }
 
-    @Override
-    public void deleteAccount(String acc) throws AccountDoesNotExistException,IOException{
-        if (!accountsToTransactions.containsKey(acc)) {
-            throw new AccountDoesNotExistException("Account '" + acc + "' existiert nicht.");
+    /**
+     * fügt mehrere transactions zu einem account hinzu und bucht jede, die die Prüfungen besteht.
+     * Wie {@link #addTransactions(String, Collection)} wird einmal gesperrt, veröffentlicht und gespeichert.
+     *
+     * @param account      der account der die transactions bekommt
+     * @param transactions die hinzukommenden transactions
+     * @return pro transaction in übergebener Reihenfolge das ergebnis wie bei {@link #tryAddTransaction}
+     * @throws AccountDoesNotExistException wenn der account nicht existiert
+     */
+    public List<TransactionResult> addTransactionsIndividually(String account, Collection<Transaction> transactions)
+            throws AccountDoesNotExistException, IOException {
+        Lock lock = lockAccount(account, true);
+        try {
+            TransactionLog log = accountsToTransactions.get(account);
+            AccountIndex index = accountIndexes.get(account);
+            Set<Transaction> existing = new HashSet<>(log);
+            List<TransactionResult> results = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                if (transaction == null) {
+                    results.add(TransactionResult.NULL_TRANSACTION);
+                    continue;
+                }
+                Transaction stored = toStored(account, transaction);
+                TransactionResult result = checkOne(stored, transaction, existing);
+                if (result.isOk()) {
+                    log.stage(stored);
+                    indexTransaction(account, stored, index.add(stored));
+                }
+                results.add(result);
+            }
+            log.commit();
+            writeAccount(account);
+            return results;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        accountsToTransactions.remove(acc);
+    /**
+     * Prüft alle Transaktionen eines Stapels, der Aufrufer hält die Schreibsperre des Kontos.
+     *
+     * @return die Transaktionen in Bank-Form
+     */
+    private List<Transaction> checkBatch(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException {
+        Set<Transaction> existing = new HashSet<>(accountsToTransactions.get(account));
+        List<Transaction> stored = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction == null) TransactionResult.NULL_TRANSACTION.throwIfFailed(account);
+            Transaction normalized = toStored(account, transaction);
+            checkOne(normalized, transaction, existing).throwIfFailed(account);
+            stored.add(normalized);
+        }
+        return stored;
+    }
 
-        Path path = Paths.get(directoryName, acc + ".json");
-        if (Files.exists(path)) {
-            Files.delete(path);
+    /**
+     * Gleiche Prüfungen wie {@link #stageUnderLock}, Duplikate über ein Set.
+     *
+     * @param stored   die Transaktion in Bank-Form
+     * @param existing die schon gebuchten und angenommenen Transaktionen, die neue wird bei Erfolg eingetragen
+     */
+    private static TransactionResult checkOne(Transaction stored, Transaction transaction, Set<Transaction> existing) {
+        if (existing.contains(stored)) return TransactionResult.DUPLICATE;
+        TransactionResult valid = checkAttributes(transaction);
+        if (valid.isOk()) existing.add(stored);
+        return valid;
+    }
+
+    /**
+     * Merkt geprüfte Transaktionen vor und indiziert sie, der Aufrufer hält die Schreibsperre des Kontos.
+     *
+     * @return die Transaktionsliste des Kontos
+     */
+    private TransactionLog stageBatch(String account, List<Transaction> stored) {
+        TransactionLog log = accountsToTransactions.get(account);
+        AccountIndex index = accountIndexes.get(account);
+        log.ensureCapacity(stored.size());
+        index.ensureCapacity(stored.size());
+        for (Transaction transaction : stored) {
+            log.stage(transaction);
+            indexTransaction(account, transaction, index.add(transaction));
+        }
+        dirtyAccounts.add(account);
+        return log;
+    }
+
+    /**
+     * Sperrt mehrere Konten zum Schreiben, in der Reihenfolge ihrer Namen wie {@link #lockBoth}.
+     *
+     * @param banks die Bank, in der ein Konto liegt
+     * @return die Sperren in der Reihenfolge, in der sie genommen wurden
+     */
+    static List<Lock> lockAll(Collection<String> accounts, Function<String, PrivateBank> banks) {
+        for (String account : accounts) {
+            if (account == null) throw new AccountDoesNotExistException("Konto existiert nicht!");
+        }
+        List<Lock> locks = new ArrayList<>(accounts.size());
+        try {
+            for (String account : new TreeSet<>(accounts)) locks.add(banks.apply(account).lockAccount(account, true));
+        } catch (RuntimeException e) {
+            unlockAll(locks);
+            throw e;
+        }
+        return locks;
+    }
+
+    static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) locks.get(i).unlock();
+    }
+
+    /**
+     * Reserviert in der Transaktionsliste und den Indizes eines Kontos Platz für weitere Transaktionen.
+     * Sinnvoll vor dem Einspielen vieler Transaktionen über {@link #ingestTransaction}.
+     *
+     * @param account    der account
+     * @param additional Anzahl der erwarteten zusätzlichen Transaktionen
+     * @throws AccountDoesNotExistException wenn der account nicht existiert
+     */
+    public void ensureCapacity(String account, int additional) throws AccountDoesNotExistException {
+        Lock lock = lockAccount(account, true);
+        try {
+            accountsToTransactions.get(account).ensureCapacity(additional);
+            accountIndexes.get(account).ensureCapacity(additional);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Bringt eine Transaktion in die Form, in der sie im Konto steht: Payments bekommen die Zinswerte der Bank
+     * (weil mit Payment.calculate gearbeitet wird), Transfers werden je nach Konto zu Outgoing- oder IncomingTransfer.
+     * Passt die Transaktion schon, wird sie selbst zurückgegeben, sonst eine Kopie.
+     */
+    private Transaction normalize(String account, Transaction transaction) {
+        if (transaction instanceof Payment p) {
+            if (p.getIncomingInterest() == incomingInterest && p.getOutgoingInterest() == outgoingInterest) return p;
+            Payment copy = new Payment(p);
+            copy.setIncomingInterest(incomingInterest);
+            copy.setOutgoingInterest(outgoingInterest);
+            return copy;
+        }
+        if (transaction instanceof Transfer t) {
+            if (account.equals(t.getSender())) {
+                return t instanceof OutgoingTransfer ? t : new OutgoingTransfer(t); //überschriebt calc
+            } else if (account.equals(t.getRecipient())) {
+                return t instanceof IncomingTransfer ? t : new IncomingTransfer(t);
+            }
+        }
+        return transaction;
+    }
+
+    /**
+     * Erzeugt die eingefrorene Transaktion, die tatsächlich gespeichert wird.
+     * Objekte des Aufrufers werden nie eingefroren, sondern vorher kopiert.
+     */
+    private Transaction toStored(String account, Transaction transaction) {
+        Transaction stored = normalize(account, transaction);
+        if (stored.isFrozen()) return stored;
+        if (stored == transaction) stored = copyOf(transaction);
+
+        internStrings(stored);
+        return stored.freeze();
+    }
+
+    /**
+     * Kopiert eine Transaktion über den Copy-Konstruktor ihrer Klasse.
+     */
+    private static Transaction copyOf(Transaction transaction) {
+        if (transaction instanceof Payment p) return new Payment(p);
+        if (transaction instanceof IncomingTransfer t) return new IncomingTransfer(t);
+        if (transaction instanceof OutgoingTransfer t) return new OutgoingTransfer(t);
+        if (transaction instanceof Transfer t) return new Transfer(t);
+        throw new TransactionAttributeException("Unbekannter Transaktionstyp: " + transaction.getClass().getSimpleName());
+    }
+
+    /**
+     * Trägt eine gespeicherte Transaktion in die bankweiten Indizes ein.
+     */
+    private void indexTransaction(String account, Transaction stored, int sequence) {
+        descriptionIndex.add(account, stored.getDescription(), sequence);
+        if (stored instanceof Transfer t) counterpartyIndex.add(account, t, sequence);
+    }
+
+    /**
+     * Trägt eine entfernte Transaktion aus den bankweiten Indizes aus.
+     */
+    private void unindexTransaction(String account, Transaction removed, int sequence) {
+        descriptionIndex.remove(account, removed.getDescription(), sequence);
+        if (removed instanceof Transfer t) counterpartyIndex.remove(account, t, sequence);
+    }
+
+    /**
+     * Ersetzt die Strings der gespeicherten Transaktion durch die kanonischen Instanzen aus dem Pool.
+     */
+    private void internStrings(Transaction transaction) {
+        transaction.setDate(stringPool.intern(transaction.getDate()));
+        transaction.setDescription(stringPool.intern(transaction.getDescription()));
+        if (transaction instanceof Transfer t) {
+            t.setSender(stringPool.intern(t.getSender()));
+            t.setRecipient(stringPool.intern(t.getRecipient()));
+        }
+    }
+
+    /**
+     * Sucht die Transaktion so wie übergeben und, falls nicht gefunden, in Bank-Form
+     * (z.B. ein Payment mit anderen Zinswerten oder ein noch nicht umgewandelter Transfer).
+     *
+     * @return Position in der Liste oder -1
+     */
+    private int indexOf(String account, Transaction transaction) {
+        List<Transaction> transactions = accountsToTransactions.get(account);
+        int index = transactions.indexOf(transaction);
+        if (index < 0 && transaction != null) index = transactions.indexOf(normalize(account, transaction));
+        return index;
+    }
+
+
+    /**
+     * entfernt transaction vom account
+     *
+     * @param account     der account von dem die transaction entfernt wird
+     * @param transaction zu entfernende transaction
+     * @throws AccountDoesNotExistException     wenn der gegebene account nicht existiert
+     * @throws TransactionDoesNotExistException wenn die transaction nicht existiert
+     */
+    @Override
+    public void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
+        tryRemoveTransaction(account, transaction).throwIfRejected(account);
+    }
+
+    /**
+     * wie {@link #removeTransaction}, meldet eine fehlende transaction aber über das ergebnis statt über eine exception.
+     *
+     * @param account     der account von dem die transaction entfernt wird
+     * @param transaction zu entfernende transaction
+     * @return {@link TransactionResult#OK}, {@link TransactionResult#UNKNOWN_ACCOUNT} oder
+     * {@link TransactionResult#UNKNOWN_TRANSACTION}
+     */
+    public TransactionResult tryRemoveTransaction(String account, Transaction transaction) throws IOException {
+        Lock lock = tryLockAccount(account, true);
+        if (lock == null) return TransactionResult.UNKNOWN_ACCOUNT;
+        try {
+            TransactionResult result = removeUnderLock(account, transaction);
+            if (result.isOk()) writeAccount(account);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wie {@link #removeTransaction}, aber das Konto wird nur als geändert markiert und erst mit {@link #flush()}
+     * gespeichert, siehe {@link #ingestTransaction}.
+     *
+     * @param account     der account von dem die transaction entfernt wird
+     * @param transaction zu entfernende transaction
+     * @throws AccountDoesNotExistException     wenn der gegebene account nicht existiert
+     * @throws TransactionDoesNotExistException wenn die transaction nicht existiert
+     */
+    public void ingestRemoval(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        Lock lock = lockAccount(account, true);
+        try {
+            removeUnderLock(account, transaction).throwIfRejected(account);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entfernt eine Transaktion, der Aufrufer hält die Schreibsperre des Kontos.
+     *
+     * @return {@link TransactionResult#OK} oder {@link TransactionResult#UNKNOWN_TRANSACTION}
+     */
+    private TransactionResult removeUnderLock(String account, Transaction transaction) {
+        int index = indexOf(account, transaction);
+        if (index < 0) return TransactionResult.UNKNOWN_TRANSACTION;
+
+        Transaction removed = accountsToTransactions.get(account).remove(index);
+        unindexTransaction(account, removed, accountIndexes.get(account).remove(index, removed));
+        dirtyAccounts.add(account);
+        return TransactionResult.OK;
+    }
+
+
+    /**
+     * prüft die existenz der transaction auf einem account.
+     *
+     * @param account     der zu checkende account
+     * @param transaction die zu überprüfende transaction
+     */
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        TransactionLog transactions = accountsToTransactions.get(account);
+        if (transactions == null) return false;
+        List<Transaction> snapshot = transactions.snapshot(); // ohne Sperre, siehe TransactionLog
+        return snapshot.contains(transaction)
+                || (transaction != null && snapshot.contains(normalize(account, transaction)));
+    }
+
+    /**
+     * gibt aktuellen Kontostand zurück
+     *
+     * @param account der aktuelle account
+     * @return der aktuelle kontostand
+     */
+    @Override
+    public double getAccountBalance(String account) {
+        return snapshot(account).balance(); // wird bei add/remove mitgeführt
+    }
+
+
+    /**
+     * gibt liste der transaktionen für account zurück
+     *
+     * @param account der ausgewählte account
+     * @return liste aller transactions des accounts
+     * @throws AccountDoesNotExistException
+     */
+    @Override
+    public List<Transaction> getTransactions(String account) throws AccountDoesNotExistException {
+        // schreibgeschützter Stand ohne Kopie, spätere Änderungen anderer Threads sind darin nicht sichtbar
+        return snapshot(account);
+    }
+
+    /**
+     * @return der zuletzt veröffentlichte Stand der Transaktionsliste, ohne Sperre gelesen
+     * @throws AccountDoesNotExistException wenn der account nicht existiert
+     */
+    private TransactionLog.Snapshot snapshot(String account) {
+        TransactionLog transactions = accountsToTransactions.get(account);
+        if (transactions == null) throw new AccountDoesNotExistException("Konto '" + account + "' existiert nicht!");
+        return transactions.snapshot();
+    }
+
+
+    /**
+     * gibt liste calculierter ammounts asc oder desc zurück oder leer.
+     * Die gespeicherte Reihenfolge (getTransactions) bleibt dabei unverändert.
+     *
+     * @param account selektierter account
+     * @param asc     auswahl ob aufsteigend sortiert werden soll
+     * @return sortierte liste
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return getTransactionsSorted(account, asc, -1);
+    }
+
+    /**
+     * gibt die ersten limit transactions nach calculierten amounts zurück (z.B. die 10 größten Ausgaben).
+     * Gelesen wird aus dem Betrags-Index des Kontos, es wird weder sortiert noch die gespeicherte Liste verändert.
+     *
+     * @param account selektierter account
+     * @param asc     auswahl ob aufsteigend sortiert werden soll
+     * @param limit   maximale anzahl, negativ für alle
+     * @return neue sortierte liste
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int limit) {
+        return readAccount(account, index -> index.sorted(asc, limit));
+    }
+
+    /**
+     * gibt eine seite der transactions ab dem cursor zurück, kopiert werden nur die transactions der seite.
+     * Der cursor bleibt gültig, wenn zwischen zwei aufrufen transactions hinzukommen oder entfernt werden.
+     *
+     * @param account  selektierter account
+     * @param order    reihenfolge (einfügen, datum oder betrag)
+     * @param asc      auswahl ob aufsteigend
+     * @param cursor   cursor der vorherigen seite, null für die erste
+     * @param pageSize maximale anzahl pro seite
+     * @return die seite mit cursor für die nächste
+     */
+    @Override
+    public TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        return readAccount(account, index -> index.page(order, asc, cursor, pageSize));
+    }
+
+    /**
+     * gibt die transactions zwischen from und to (beide inklusive) nach datum sortiert zurück.
+     * Gelesen wird aus dem Datums-Index des Kontos.
+     *
+     * @param account selektierter account
+     * @param from    erster tag
+     * @param to      letzter tag
+     * @return neue liste mit den transactions im zeitraum
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) {
+        int fromDay = DateKey.parse(from);
+        int toDay = DateKey.parse(to);
+        return readAccount(account, index -> index.between(fromDay, toDay));
+    }
+
+    /**
+     * berechnet den kontostand am ende eines stichtags über die teilsummen des Datums-Index, in O(log n).
+     *
+     * @param account der aktuelle account
+     * @param date    der stichtag
+     * @return der kontostand zum stichtag
+     */
+    @Override
+    public double getAccountBalance(String account, String date) {
+        int day = DateKey.parse(date);
+        return readAccount(account, index -> index.balanceUntil(day));
+    }
+
+
+    /**
+     * sucht in allen accounts nach transactions, deren beschreibung alle wörter der suche enthält.
+     * Gelesen wird aus dem invertierten Index, es werden also nicht alle transactions durchlaufen.
+     *
+     * @param query suchbegriffe, groß/klein egal, "amaz*" sucht nach wortanfängen
+     * @return pro account die treffer in gespeicherter reihenfolge, accounts ohne treffer fehlen
+     */
+    @Override
+    public Map<String, List<Transaction>> searchTransactions(String query) {
+        Map<String, List<Transaction>> result = new HashMap<>();
+        DescriptionIndex.Query parsed = DescriptionIndex.Query.parse(query);
+        if (parsed.isEmpty()) return result;
+
+        for (Map.Entry<String, int[]> hits : searchDescriptions(parsed, null).entrySet()) {
+            List<Transaction> found = readAccountIfPresent(hits.getKey(), index -> index.resolve(hits.getValue()));
+            if (found != null && !found.isEmpty()) result.put(hits.getKey(), found);
+        }
+        return result;
+    }
+
+    /**
+     * sucht wie {@link #searchTransactions(String)}, aber nur in einem account.
+     *
+     * @param account selektierter account
+     * @param query   suchbegriffe
+     * @return die treffer in gespeicherter reihenfolge
+     */
+    @Override
+    public List<Transaction> searchTransactions(String account, String query) {
+        DescriptionIndex.Query parsed = DescriptionIndex.Query.parse(query);
+        if (parsed.isEmpty()) return readAccount(account, index -> new ArrayList<>());
+
+        int[] hits = searchDescriptions(parsed, account).get(account);
+        return readAccount(account, index -> hits == null ? new ArrayList<>() : index.resolve(hits));
+    }
+
+    /**
+     * Sucht im Beschreibungs-Index. Die Treffer werden danach unter der Kontosperre aufgelöst;
+     * inzwischen entfernte Sequenznummern überspringt {@link AccountIndex#resolve}.
+     */
+    private Map<String, int[]> searchDescriptions(DescriptionIndex.Query query, String account) {
+        return descriptionIndex.search(query, account);
+    }
+
+
+    /**
+     * erstellt eine zusammensetzbare abfrage über die transactions eines accounts.
+     * Beschreibung und Gegenseite werden über die bankweiten Indizes vorausgewählt, Datum und Betrag über die
+     * Bäume des Kontos, der Rest wird in einem durchlauf geprüft.
+     *
+     * @param account selektierter account (wird erst beim ausführen geprüft)
+     * @return die leere abfrage
+     */
+    @Override
+    public TransactionQuery query(String account) {
+        return new TransactionQuery(account, this::executeQuery);
+    }
+
+    private List<Transaction> executeQuery(TransactionQuery query) {
+        String account = query.getAccount();
+        readAccount(account, index -> null); // existiert das Konto?
+
+        int[] candidates = null;
+        if (query.getDescriptionQuery() != null) {
+            candidates = searchDescriptions(query.getDescriptionQuery(), account).get(account);
+            if (candidates == null) return new ArrayList<>();
+        }
+        if (query.getCounterparty() != null) {
+            int[] involving = counterpartyIndex.involving(query.getCounterparty(), account);
+            candidates = candidates == null ? involving : Postings.intersect(candidates, involving);
+        }
+        int[] selected = candidates;
+        return readAccount(account, index -> index.execute(query, selected));
+    }
+
+    /**
+     * gibt alle transfers zwischen zwei namen zurück (beide richtungen, aus allen accounts).
+     * Gelesen wird aus dem Gegenseiten-Index, es werden also nicht alle transactions durchlaufen.
+     *
+     * @param first  sender oder empfänger
+     * @param second die andere seite
+     * @return neue liste, nach account-namen und dann in gespeicherter reihenfolge
+     */
+    @Override
+    public List<Transaction> getTransfersBetween(String first, String second) {
+        List<Transaction> result = new ArrayList<>();
+        transfersBetween(first, second).values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * @return die transfers zwischen zwei namen pro account, nach account-namen sortiert
+     */
+    SortedMap<String, List<Transaction>> transfersBetween(String first, String second) {
+        Map<String, int[]> between = counterpartyIndex.between(first, second);
+        SortedMap<String, List<Transaction>> result = new TreeMap<>();
+        for (Map.Entry<String, int[]> hits : between.entrySet()) {
+            List<Transaction> found = readAccountIfPresent(hits.getKey(), index -> index.resolve(hits.getValue()));
+            if (found != null) result.put(hits.getKey(), found);
+        }
+        return result;
+    }
+
+    /**
+     * gibt die gegenseiten eines namens nach überwiesenem volumen zurück.
+     *
+     * @param account sender oder empfänger (muss kein account dieser bank sein)
+     * @param limit   maximale anzahl, negativ für alle
+     * @return neue liste, größtes volumen zuerst
+     */
+    @Override
+    public List<Counterparty> getTopCounterparties(String account, int limit) {
+        return counterpartyIndex.top(account, limit);
+    }
+
+    /**
+     * Ungezählte Flows eines Namens für {@link ShardedBank}, die sie über alle Shards addiert.
+     */
+    Map<String, CounterpartyIndex.Flows> counterpartyFlows(String account) {
+        return counterpartyIndex.flows(account);
+    }
+
+
+    /**
+     * gibt die kennzahlen eines accounts zurück, ohne die transactions zu durchlaufen.
+     *
+     * @param account selektierter account
+     * @return anzahl, eingänge, ausgänge, minimum und maximum
+     * @throws AccountDoesNotExistException wenn der account nicht existiert
+     */
+    @Override
+    public AccountStatistics getStatistics(String account) {
+        return readAccount(account, AccountIndex::statistics);
+    }
+
+    /**
+     * gibt die kennzahlen eines tages zurück, aus den mitgeführten tagessummen.
+     *
+     * @param account selektierter account
+     * @param date    der tag
+     * @return kennzahlen des tages
+     */
+    @Override
+    public AccountStatistics getDailyStatistics(String account, String date) {
+        int day = DateKey.parse(date);
+        return readAccount(account, index -> index.dailyStatistics(day));
+    }
+
+    /**
+     * gibt die kennzahlen pro monat zurück, aus den mitgeführten monatssummen.
+     *
+     * @param account selektierter account
+     * @return kennzahlen pro monat (JJJJMM)
+     */
+    @Override
+    public SortedMap<Integer, AccountStatistics> getMonthlyStatistics(String account) {
+        return readAccount(account, AccountIndex::monthlyStatistics);
+    }
+
+    /**
+     * gibt die accounts mit dem höchsten kontostand zurück. Die Kontostände kommen aus den Betragsbäumen,
+     * verteilt über die accounts im Fork-Join-Pool, gesammelt in beschränkten Heaps.
+     *
+     * @param limit maximale anzahl, negativ für alle
+     * @return account -> kontostand, höchster zuerst
+     */
+    @Override
+    public Map<String, Double> getTopAccounts(int limit) {
+        return TopK.toRanking(accountLocks.keySet().parallelStream()
+                .map(account -> {
+                    Double balance = readAccountIfPresent(account, AccountIndex::balance);
+                    return balance == null ? null : Map.entry(account, balance);
+                })
+                .filter(Objects::nonNull)
+                .collect(() -> new TopK<>(limit, TopK.ACCOUNTS_BY_BALANCE), TopK::offer, TopK::merge));
+    }
+
+    /**
+     * gibt die transactions mit dem größten berechneten betrag über alle accounts zurück.
+     * Jeder account liefert parallel höchstens limit kandidaten aus seinem betragsbaum.
+     *
+     * @param limit maximale anzahl, negativ für alle
+     * @return transactions, größte zuerst
+     */
+    @Override
+    public List<Transaction> getLargestTransactions(int limit) {
+        return accountLocks.keySet().parallelStream()
+                .map(account -> readAccountIfPresent(account, index -> index.sorted(false, limit)))
+                .filter(Objects::nonNull)
+                .collect(() -> new TopK<>(limit, TopK.BY_AMOUNT),
+                        (top, candidates) -> candidates.forEach(top::offer),
+                        TopK::merge)
+                .toList();
+    }
+
+    /**
+     * gibt die kennzahlen über alle accounts zurück, parallel aus den kennzahlen der einzelnen accounts.
+     *
+     * @return bankweite kennzahlen
+     */
+    @Override
+    public AccountStatistics getBankStatistics() {
+        return accountLocks.keySet().parallelStream()
+                .map(account -> readAccountIfPresent(account, AccountIndex::statistics))
+                .filter(Objects::nonNull)
+                .reduce(AccountStatistics.EMPTY, AccountStatistics::combine);
+    }
+
+    /**
+     * zählt die berechneten beträge aller transactions pro fach, über die anzahlen in den betragsbäumen.
+     *
+     * @param bounds streng aufsteigende grenzen
+     * @return bounds.length + 1 anzahlen
+     */
+    @Override
+    public int[] getAmountHistogram(double... bounds) {
+        AccountStatistics.checkBounds(bounds);
+        return accountLocks.keySet().parallelStream()
+                .collect(() -> new int[bounds.length + 1],
+                        (counts, account) -> readAccountIfPresent(account, index -> {
+                            index.countAmounts(bounds, counts);
+                            return counts;
+                        }),
+                        PrivateBank::addCounts);
+    }
+
+    private static void addCounts(int[] counts, int[] other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other[i];
+    }
+
+    /**
+     * gibt einen stream über die transactions eines accounts zurück, ohne die liste zu kopieren.
+     * Der stream läuft über einen festen stand, das konto darf währenddessen weiter verändert werden.
+     *
+     * @param account selektierter account
+     * @return stream in gespeicherter reihenfolge, auch parallel nutzbar
+     * @throws AccountDoesNotExistException wenn der account nicht existiert
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(String account) {
+        return snapshot(account).stream();
+    }
+
+    /**
+     * gibt einen stream über die transactions aller accounts zurück, geteilt wird über kontogrenzen hinweg.
+     * Jedes konto wird mit seinem stand beim aufruf gelesen.
+     *
+     * @return stream aller transactions, auch parallel nutzbar
+     */
+    @Override
+    public Stream<Transaction> streamTransactions() {
+        List<TransactionLog.Snapshot> snapshots = new ArrayList<>();
+        addSnapshots(snapshots);
+        return StreamSupport.stream(new TransactionSpliterator(snapshots), false);
+    }
+
+    /**
+     * Hängt den aktuellen Stand jedes Kontos an.
+     */
+    void addSnapshots(List<TransactionLog.Snapshot> snapshots) {
+        for (TransactionLog transactions : accountsToTransactions.values()) snapshots.add(transactions.snapshot());
+    }
+
+    /**
+     * gibt eine schreibgeschützte sicht auf die bank zum aktuellen stand zurück. Das erzeugen liest nur die
+     * aktuelle version und blockiert keine schreiber; die transaktionslisten zu dieser version werden erst beim
+     * ersten zugriff festgehalten, entfernte transaktionen und gelöschte konten bleiben dafür so lange aufbewahrt.
+     * Abfragen auf dem snapshot laufen ohne die indizes der bank und durchsuchen die listen.
+     *
+     * @return snapshot zur aktuellen version
+     */
+    @Override
+    public Bank snapshot() {
+        double incoming = incomingInterest;
+        double outgoing = outgoingInterest;
+        return new BankSnapshot(versions, version -> new CompactBank(name, incoming, outgoing, accountsAt(version)));
+    }
+
+    /**
+     * Hält die Transaktionslisten aller Konten zu einer Version fest, ohne Sperren.
+     * Erst die bestehenden, dann die gelöschten Konten: ein währenddessen gelöschtes Konto steht schon in
+     * {@link #deletedAccounts}, bevor es aus {@link #accountsToTransactions} verschwindet.
+     */
+    Map<String, TransactionStore> accountsAt(long version) {
+        Map<String, TransactionStore> accounts = new HashMap<>();
+        for (Map.Entry<String, TransactionLog> entry : accountsToTransactions.entrySet()) {
+            TransactionLog.Snapshot snapshot = entry.getValue().snapshotAt(version);
+            if (snapshot != null) accounts.put(entry.getKey(), new FrozenTransactions(snapshot, snapshot.balance()));
+        }
+        for (Map.Entry<String, TransactionLog> entry : deletedAccounts) {
+            TransactionLog.Snapshot snapshot = entry.getValue().snapshotAt(version);
+            if (snapshot != null) accounts.put(entry.getKey(), new FrozenTransactions(snapshot, snapshot.balance()));
+        }
+        return accounts;
+    }
+
+    /**
+     * gibt eine liste von postiven oder negativen transactionen aus.
+     *
+     * @param account  selektierter accoung
+     * @param positive auswahl für pos oder negative accounts
+     * @return gibt liste nach typ zurück
+     */
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        return readAccount(account, index -> index.byType(positive)); // aufteilung wird bei add/remove mitgeführt
+    }
+
+
+    @Override
+    public List<String> getAllAccounts(){
+        return new ArrayList<>(accountsToTransactions.keySet());//gibt alle keys
+    }
+
+    @Override
+    public void deleteAccount(String acc) throws AccountDoesNotExistException,IOException{
+        Lock lock = lockAccount(acc, true);
+        try {
+            TransactionLog transactions = accountsToTransactions.get(acc);
+            transactions.markDeleted();
+            deletedAccounts.add(Map.entry(acc, transactions)); // vor dem Entfernen, siehe accountsAt
+            accountsToTransactions.remove(acc);
+            AccountIndex index = accountIndexes.remove(acc);
+            descriptionIndex.removeAccount(acc);
+            for (int i = 0; i < transactions.size(); i++) {
+                if (transactions.get(i) instanceof Transfer t) counterpartyIndex.remove(acc, t, index.sequenceAt(i));
+            }
+            dirtyAccounts.remove(acc);
+            Set<String> keys = unsavedKeys.remove(acc);
+            if (keys != null) {
+                for (String key : keys) idempotencyKeys().release(key); // die Buchung ist mit dem Konto weg
+            }
+            long oldest = versions.oldestOpen();
+            deletedAccounts.removeIf(deleted -> deleted.getValue().deletedVersion() <= oldest);
+
+            // erst die Datei löschen, dann die Sperre austragen: ein createAccount desselben Namens legt sonst
+            // seine Datei an, bevor die alte gelöscht wird
+            try {
+                Files.deleteIfExists(Paths.get(directoryName, acc + ".json"));
+            } finally {
+                accountLocks.remove(acc); // wartende Threads merken nach dem Sperren, dass das Konto weg ist
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
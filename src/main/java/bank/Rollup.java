@@ -0,0 +1,149 @@
+package bank;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Laufende Kennzahlen pro Zeitabschnitt (Tag JJJJMMTT oder Monat JJJJMM) eines Kontos.
+ * Die Abschnitte liegen sortiert in parallelen Arrays, gesucht wird binär mit dem zuletzt benutzten
+ * Abschnitt als Abkürzung. Da meist in Datumsreihenfolge gebucht wird, kostet das Einfügen O(1)
+ * und allokiert nichts.
+ * <p>
+ * Anzahl und Summen werden beim Entfernen direkt abgezogen. Wird dabei das Minimum oder Maximum eines
+ * Abschnitts entfernt, ist es nicht mehr bekannt; der Abschnitt wird markiert und der Besitzer
+ * ({@link AccountIndex}) berechnet es beim nächsten Lesen aus seinem Datumsbaum neu.
+ */
+class Rollup {
+
+    private int[] keys = new int[8];
+    private int[] counts = new int[8];
+    private double[] totalIn = new double[8];
+    private double[] totalOut = new double[8];
+    private double[] mins = new double[8];
+    private double[] maxs = new double[8];
+    private boolean[] staleExtremes = new boolean[8];
+    private int size;
+    private int lastUsed = -1;
+
+    /**
+     * @return Anzahl der Abschnitte mit mindestens einer Transaktion
+     */
+    int size() {
+        return size;
+    }
+
+    int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Zählt einen Betrag im Abschnitt key mit, der Abschnitt wird bei Bedarf angelegt.
+     */
+    void add(int key, double amount) {
+        int index = find(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertAt(index, key);
+        }
+        lastUsed = index;
+        if (counts[index] == 0 || amount < mins[index]) mins[index] = amount;
+        if (counts[index] == 0 || amount > maxs[index]) maxs[index] = amount;
+        counts[index]++;
+        if (amount >= 0) totalIn[index] += amount;
+        else totalOut[index] += amount;
+    }
+
+    /**
+     * Nimmt einen Betrag aus dem Abschnitt key heraus, leere Abschnitte werden entfernt.
+     */
+    void remove(int key, double amount) {
+        int index = find(key);
+        if (index < 0) return;
+        if (--counts[index] == 0) {
+            removeAt(index);
+            return;
+        }
+        if (amount >= 0) totalIn[index] -= amount;
+        else totalOut[index] -= amount;
+        if (amount == mins[index] || amount == maxs[index]) staleExtremes[index] = true;
+    }
+
+    /**
+     * @return Position des Abschnitts oder (-(Einfügeposition) - 1) wie {@link Arrays#binarySearch}
+     */
+    int find(int key) {
+        if (lastUsed >= 0 && lastUsed < size && keys[lastUsed] == key) return lastUsed;
+        if (size > 0 && keys[size - 1] < key) return -size - 1;
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * @return true wenn Minimum und Maximum des Abschnitts neu berechnet werden müssen
+     */
+    boolean hasStaleExtremes(int index) {
+        return staleExtremes[index];
+    }
+
+    void setExtremes(int index, double min, double max) {
+        mins[index] = min;
+        maxs[index] = max;
+        staleExtremes[index] = false;
+    }
+
+    /**
+     * @return die Kennzahlen des Abschnitts an der Position, Minimum und Maximum müssen aktuell sein
+     */
+    AccountStatistics get(int index) {
+        return new AccountStatistics(counts[index], totalIn[index], totalOut[index], mins[index], maxs[index]);
+    }
+
+    /**
+     * @return alle Abschnitte mit ihren Kennzahlen, Minimum und Maximum müssen aktuell sein
+     */
+    SortedMap<Integer, AccountStatistics> toMap() {
+        SortedMap<Integer, AccountStatistics> result = new TreeMap<>();
+        for (int i = 0; i < size; i++) result.put(keys[i], get(i));
+        return result;
+    }
+
+    private void insertAt(int index, int key) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            totalIn = Arrays.copyOf(totalIn, capacity);
+            totalOut = Arrays.copyOf(totalOut, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            staleExtremes = Arrays.copyOf(staleExtremes, capacity);
+        }
+        int moved = size - index;
+        System.arraycopy(keys, index, keys, index + 1, moved);
+        System.arraycopy(counts, index, counts, index + 1, moved);
+        System.arraycopy(totalIn, index, totalIn, index + 1, moved);
+        System.arraycopy(totalOut, index, totalOut, index + 1, moved);
+        System.arraycopy(mins, index, mins, index + 1, moved);
+        System.arraycopy(maxs, index, maxs, index + 1, moved);
+        System.arraycopy(staleExtremes, index, staleExtremes, index + 1, moved);
+        keys[index] = key;
+        counts[index] = 0;
+        totalIn[index] = 0.0;
+        totalOut[index] = 0.0;
+        staleExtremes[index] = false;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(counts, index + 1, counts, index, moved);
+        System.arraycopy(totalIn, index + 1, totalIn, index, moved);
+        System.arraycopy(totalOut, index + 1, totalOut, index, moved);
+        System.arraycopy(mins, index + 1, mins, index, moved);
+        System.arraycopy(maxs, index + 1, maxs, index, moved);
+        System.arraycopy(staleExtremes, index + 1, staleExtremes, index, moved);
+        size--;
+        lastUsed = -1;
+    }
+}
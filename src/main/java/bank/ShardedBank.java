@@ -0,0 +1,483 @@
+package bank;
+
+import bank.exceptions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Bank, deren Konten nach dem Hash ihres Namens auf mehrere {@link PrivateBank}s (Shards) verteilt sind.
+ * Jeder Shard hat ein eigenes Verzeichnis (z.B. auf einer eigenen Platte), eigene Sperren und Indizes und
+ * einen eigenen I/O-Thread. Operationen auf einem Konto gehen direkt an dessen Shard, Operationen auf Konten
+ * verschiedener Shards laufen sich also nicht in die Quere.
+ * <p>
+ * Überweisungen und Stapel über mehrere Shards sperren die Konten wie in der {@link PrivateBank} in der
+ * Reihenfolge ihrer Namen, buchen alle Seiten und speichern danach jedes Konto auf dem I/O-Thread seines
+ * Shards, die Shards also parallel. Alle Shards teilen sich eine {@link VersionClock}: beide Seiten einer
+ * Überweisung werden unter derselben Version veröffentlicht und {@link #snapshot()} sieht alle Shards zum
+ * selben Stand.
+ * <p>
+ * Die Idempotenzschlüssel gelten bankweit wie bei der {@link PrivateBank}: alle Shards teilen sich ein Zeitfenster,
+ * dessen Datei im Verzeichnis des ersten Shards liegt.
+ * <p>
+ * Die Zuordnung hängt von der Anzahl und Reihenfolge der Verzeichnisse ab; sie dürfen sich zwischen zwei
+ * Starts nicht ändern. Bankweite Abfragen fragen jeden Shard und führen die Teilergebnisse zusammen.
+ */
+public class ShardedBank implements Bank, AutoCloseable {
+
+    /**
+     * Ein Shard mit seinem I/O-Thread.
+     */
+    private static final class Shard {
+        final PrivateBank bank;
+        final ExecutorService io;
+
+        Shard(PrivateBank bank, ExecutorService io) {
+            this.bank = bank;
+            this.io = io;
+        }
+    }
+
+    /**
+     * Ein Schreibvorgang auf einem Shard.
+     */
+    @FunctionalInterface
+    private interface ShardWrite {
+        void write(PrivateBank bank) throws IOException;
+    }
+
+    private final String name;
+    private final double incomingInterest;
+    private final double outgoingInterest;
+    private final VersionClock versions = new VersionClock();
+    private final IdempotencyWindow idempotencyKeys;
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Liest die Konten aller Shards ein.
+     *
+     * @param name             Name der Bank
+     * @param incomingInterest Einzahlungszins
+     * @param outgoingInterest Auszahlungszins
+     * @param directories      ein Verzeichnis pro Shard
+     * @throws IOException wenn ein Konto in einem Verzeichnis liegt, das nach seinem Namen nicht zuständig ist
+     */
+    public ShardedBank(String name, double incomingInterest, double outgoingInterest, List<String> directories) throws IOException {
+        if (directories.isEmpty()) throw new IllegalArgumentException("Mindestens ein Verzeichnis nötig");
+        this.name = name;
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+        this.idempotencyKeys = new IdempotencyWindow(Paths.get(directories.get(0), IdempotencyWindow.FILE_NAME));
+        for (int i = 0; i < directories.size(); i++) {
+            PrivateBank bank = new PrivateBank(name + "-" + i, incomingInterest, outgoingInterest, directories.get(i), versions,
+                    idempotencyKeys);
+            String thread = "shard-" + i + "-io";
+            shards.add(new Shard(bank, Executors.newSingleThreadExecutor(runnable -> {
+                Thread io = new Thread(runnable, thread);
+                io.setDaemon(true);
+                return io;
+            })));
+        }
+        for (Shard shard : shards) {
+            for (String account : shard.bank.getAllAccounts()) {
+                if (shardOf(account) != shard.bank) {
+                    close();
+                    throw new IOException("Konto '" + account + "' liegt in " + shard.bank.getDirectoryName()
+                            + ", gehört aber in " + shardOf(account).getDirectoryName());
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getIncomingInterest() {
+        return incomingInterest;
+    }
+
+    public double getOutgoingInterest() {
+        return outgoingInterest;
+    }
+
+    /**
+     * @return die Shards, z.B. um pro Shard eine {@link IngestPipeline} zu betreiben
+     */
+    public List<PrivateBank> getShards() {
+        List<PrivateBank> banks = new ArrayList<>(shards.size());
+        for (Shard shard : shards) banks.add(shard.bank);
+        return Collections.unmodifiableList(banks);
+    }
+
+    /**
+     * @return der für das Konto zuständige Shard, für null der erste (der dann die passende Exception wirft)
+     */
+    public PrivateBank shardOf(String account) {
+        return shards.get(indexOf(account)).bank;
+    }
+
+    private int indexOf(String account) {
+        return account == null ? 0 : Math.floorMod(account.hashCode(), shards.size());
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedBank[" +
+                "name='" + name +
+                ", incomingInterest=" + incomingInterest +
+                ", outgoingInterest=" + outgoingInterest +
+                ", shards=" + shards.size() +
+                ']';
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException, IOException {
+        shardOf(account).createAccount(account);
+    }
+
+    @Override
+    public void createAccount(String account, List<Transaction> transactions)
+            throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+        shardOf(account).createAccount(account, transactions);
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        shardOf(account).addTransaction(account, transaction);
+    }
+
+    /**
+     * Siehe {@link PrivateBank#addTransaction(String, Transaction, String)}. Die Schlüssel gelten für alle Shards,
+     * derselbe Schlüssel für Konten verschiedener Shards wird also nur einmal gebucht.
+     */
+    public void addTransaction(String account, Transaction transaction, String idempotencyKey)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        shardOf(account).addTransaction(account, transaction, idempotencyKey);
+    }
+
+    /**
+     * Siehe {@link PrivateBank#tryAddTransaction(String, Transaction, String)}.
+     */
+    public TransactionResult tryAddTransaction(String account, Transaction transaction, String idempotencyKey) throws IOException {
+        return shardOf(account).tryAddTransaction(account, transaction, idempotencyKey);
+    }
+
+    /**
+     * Siehe {@link PrivateBank#setIdempotencyWindow}, gilt für alle Shards.
+     */
+    public void setIdempotencyWindow(long windowMillis, int maxKeys) {
+        idempotencyKeys.setLimits(windowMillis, maxKeys);
+    }
+
+    /**
+     * Siehe {@link PrivateBank#tryAddTransaction}.
+     */
+    public TransactionResult tryAddTransaction(String account, Transaction transaction) throws IOException {
+        return shardOf(account).tryAddTransaction(account, transaction);
+    }
+
+    @Override
+    public void addTransactions(String account, Collection<Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        shardOf(account).addTransactions(account, transactions);
+    }
+
+    /**
+     * Liegen alle Konten in einem Shard, bucht dieser den Stapel allein. Sonst werden alle Konten über die
+     * Shards hinweg gesperrt und geprüft, bevor gebucht wird; gespeichert wird nach dem Entsperren.
+     */
+    @Override
+    public void addTransactions(Map<String, ? extends Collection<Transaction>> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        Map<Integer, List<String>> touched = groupByShard(transactions.keySet());
+        if (touched.size() == 1) {
+            shards.get(touched.keySet().iterator().next()).bank.addTransactions(transactions);
+            return;
+        }
+        List<Lock> locks = PrivateBank.lockAll(transactions.keySet(), this::shardOf);
+        try {
+            PrivateBank.bookBatch(transactions, this::shardOf);
+        } finally {
+            PrivateBank.unlockAll(locks);
+        }
+        persist(touched);
+    }
+
+    @Override
+    public void transfer(String sender, String recipient, double amount, String date, String description)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+        tryTransfer(sender, recipient, amount, date, description)
+                .throwIfFailed(PrivateBank.missingAccount(shardOf(sender), sender, recipient));
+    }
+
+    /**
+     * Wie {@link PrivateBank#tryTransfer}. Liegen beide Konten in einem Shard, bucht dieser die Überweisung allein.
+     */
+    public TransactionResult tryTransfer(String sender, String recipient, double amount, String date, String description)
+            throws IOException {
+        PrivateBank senderBank = shardOf(sender);
+        PrivateBank recipientBank = shardOf(recipient);
+        if (senderBank == recipientBank) return senderBank.tryTransfer(sender, recipient, amount, date, description);
+
+        TransactionResult result = PrivateBank.ingestTransfer(senderBank, recipientBank,
+                new Transfer(date, amount, description, sender, recipient));
+        if (result.isOk()) persist(groupByShard(List.of(sender, recipient)));
+        return result;
+    }
+
+    private Map<Integer, List<String>> groupByShard(Collection<String> accounts) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String account : accounts) groups.computeIfAbsent(indexOf(account), k -> new ArrayList<>()).add(account);
+        return groups;
+    }
+
+    /**
+     * Speichert Konten auf den I/O-Threads ihrer Shards. Gesperrt ist dann nichts mehr; {@link PrivateBank#persist}
+     * nimmt pro Konto die Schreibsperre, gleichzeitige {@link #flush()}-Aufrufe schreiben dieselbe Datei also nie
+     * gleichzeitig.
+     */
+    private void persist(Map<Integer, List<String>> accounts) throws IOException {
+        Map<Integer, ShardWrite> writes = new TreeMap<>();
+        accounts.forEach((shard, names) -> writes.put(shard, bank -> bank.persist(names)));
+        write(writes);
+    }
+
+    /**
+     * Speichert die über {@link PrivateBank#ingestTransaction} geänderten Konten aller Shards, parallel auf
+     * deren I/O-Threads.
+     */
+    public void flush() throws IOException {
+        Map<Integer, ShardWrite> writes = new TreeMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            if (shards.get(i).bank.hasUnsavedChanges()) writes.put(i, PrivateBank::flush);
+        }
+        write(writes);
+    }
+
+    /**
+     * Führt die Schreibvorgänge parallel auf den I/O-Threads der Shards aus und wartet auf alle.
+     *
+     * @throws IOException der erste Fehler eines Shards
+     */
+    private void write(Map<Integer, ShardWrite> writes) throws IOException {
+        List<CompletableFuture<Void>> pending = new ArrayList<>(writes.size());
+        for (Map.Entry<Integer, ShardWrite> entry : writes.entrySet()) {
+            Shard shard = shards.get(entry.getKey());
+            pending.add(CompletableFuture.runAsync(() -> {
+                try {
+                    entry.getValue().write(shard.bank);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, shard.io));
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction)
+            throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
+        shardOf(account).removeTransaction(account, transaction);
+    }
+
+    /**
+     * Siehe {@link PrivateBank#tryRemoveTransaction}.
+     */
+    public TransactionResult tryRemoveTransaction(String account, Transaction transaction) throws IOException {
+        return shardOf(account).tryRemoveTransaction(account, transaction);
+    }
+
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        return shardOf(account).containsTransaction(account, transaction);
+    }
+
+    @Override
+    public double getAccountBalance(String account) {
+        return shardOf(account).getAccountBalance(account);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        return shardOf(account).getTransactions(account);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return shardOf(account).getTransactionsSorted(account, asc);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int limit) {
+        return shardOf(account).getTransactionsSorted(account, asc, limit);
+    }
+
+    @Override
+    public TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        return shardOf(account).getTransactionsPage(account, order, asc, cursor, pageSize);
+    }
+
+    @Override
+    public Map<String, List<Transaction>> searchTransactions(String query) {
+        Map<String, List<Transaction>> result = new HashMap<>();
+        for (Shard shard : shards) result.putAll(shard.bank.searchTransactions(query));
+        return result;
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(String account, String query) {
+        return shardOf(account).searchTransactions(account, query);
+    }
+
+    @Override
+    public TransactionQuery query(String account) {
+        return shardOf(account).query(account);
+    }
+
+    /**
+     * Die Seiten einer Überweisung können in verschiedenen Shards liegen, gefragt werden deshalb alle.
+     */
+    @Override
+    public List<Transaction> getTransfersBetween(String first, String second) {
+        SortedMap<String, List<Transaction>> byAccount = new TreeMap<>();
+        for (Shard shard : shards) byAccount.putAll(shard.bank.transfersBetween(first, second));
+        List<Transaction> result = new ArrayList<>();
+        byAccount.values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Die Shards liefern Anzahl und Volumen getrennt nach Richtung und Seite, gezählt wird erst nach dem Addieren.
+     * Eine Überweisung über Shard-Grenzen (Sender- und Empfängerbuchung in verschiedenen Shards) zählt so einmal.
+     */
+    @Override
+    public List<Counterparty> getTopCounterparties(String account, int limit) {
+        Map<String, CounterpartyIndex.Flows> merged = new HashMap<>();
+        for (Shard shard : shards) {
+            shard.bank.counterpartyFlows(account).forEach((name, flows) ->
+                    merged.computeIfAbsent(name, k -> new CounterpartyIndex.Flows()).addAll(flows));
+        }
+        return CounterpartyIndex.rank(merged, limit);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) {
+        return shardOf(account).getTransactionsBetween(account, from, to);
+    }
+
+    @Override
+    public double getAccountBalance(String account, String date) {
+        return shardOf(account).getAccountBalance(account, date);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        return shardOf(account).getTransactionsByType(account, positive);
+    }
+
+    @Override
+    public AccountStatistics getStatistics(String account) {
+        return shardOf(account).getStatistics(account);
+    }
+
+    @Override
+    public AccountStatistics getDailyStatistics(String account, String date) {
+        return shardOf(account).getDailyStatistics(account, date);
+    }
+
+    @Override
+    public SortedMap<Integer, AccountStatistics> getMonthlyStatistics(String account) {
+        return shardOf(account).getMonthlyStatistics(account);
+    }
+
+    @Override
+    public Map<String, Double> getTopAccounts(int limit) {
+        TopK<Map.Entry<String, Double>> top = new TopK<>(limit, TopK.ACCOUNTS_BY_BALANCE);
+        for (Shard shard : shards) shard.bank.getTopAccounts(limit).entrySet().forEach(top::offer);
+        return TopK.toRanking(top);
+    }
+
+    @Override
+    public List<Transaction> getLargestTransactions(int limit) {
+        TopK<Transaction> top = new TopK<>(limit, TopK.BY_AMOUNT);
+        for (Shard shard : shards) shard.bank.getLargestTransactions(limit).forEach(top::offer);
+        return top.toList();
+    }
+
+    @Override
+    public AccountStatistics getBankStatistics() {
+        AccountStatistics statistics = AccountStatistics.EMPTY;
+        for (Shard shard : shards) statistics = AccountStatistics.combine(statistics, shard.bank.getBankStatistics());
+        return statistics;
+    }
+
+    @Override
+    public int[] getAmountHistogram(double... bounds) {
+        int[] counts = new int[bounds.length + 1];
+        for (Shard shard : shards) {
+            int[] part = shard.bank.getAmountHistogram(bounds);
+            for (int i = 0; i < counts.length; i++) counts[i] += part[i];
+        }
+        return counts;
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactions(String account) {
+        return shardOf(account).streamTransactions(account);
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactions() {
+        List<TransactionLog.Snapshot> snapshots = new ArrayList<>();
+        for (Shard shard : shards) shard.bank.addSnapshots(snapshots);
+        return StreamSupport.stream(new TransactionSpliterator(snapshots), false);
+    }
+
+    /**
+     * Über die gemeinsame {@link VersionClock} sehen alle Shards denselben Stand.
+     */
+    @Override
+    public Bank snapshot() {
+        return new BankSnapshot(versions, version -> {
+            Map<String, TransactionStore> accounts = new HashMap<>();
+            for (Shard shard : shards) accounts.putAll(shard.bank.accountsAt(version));
+            return new CompactBank(name, incomingInterest, outgoingInterest, accounts);
+        });
+    }
+
+    @Override
+    public List<String> getAllAccounts() {
+        List<String> accounts = new ArrayList<>();
+        for (Shard shard : shards) accounts.addAll(shard.bank.getAllAccounts());
+        return accounts;
+    }
+
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        shardOf(account).deleteAccount(account);
+    }
+
+    /**
+     * Beendet die I/O-Threads nach den laufenden Schreibvorgängen.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) shard.io.shutdown();
+    }
+}
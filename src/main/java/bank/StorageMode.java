@@ -0,0 +1,19 @@
+package bank;
+
+/**
+ * Speicherart der {@link CompactBank}.
+ */
+public enum StorageMode {
+
+    /**
+     * Spalten aus primitiven Arrays auf dem Heap ({@link ColumnarTransactions}).
+     */
+    COLUMNAR,
+
+    /**
+     * Datensätze fester Länge außerhalb des Heaps ({@link OffHeapTransactions}).
+     * Für sehr große Banken, bei denen der Heap und die GC-Pausen klein bleiben sollen.
+     * Auf dem Heap wächst nur das Wörterbuch der verschiedenen Datumsstrings.
+     */
+    OFF_HEAP
+}
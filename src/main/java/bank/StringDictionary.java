@@ -0,0 +1,75 @@
+package bank;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wörterbuch, das Strings auf kompakte int-IDs abbildet (Dictionary-Encoding).
+ * Jeder String wird nur einmal gespeichert, in den Spalten stehen dann nur noch die IDs.
+ * Einträge werden nie entfernt: das Wörterbuch wächst mit der Zahl verschiedener Strings, auch wenn die
+ * Transaktionen, die sie benutzt haben, längst gelöscht sind.
+ */
+public class StringDictionary {
+
+    /**
+     * ID für einen {@code null}-String.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Rückgabewert von {@link #find(String)}, wenn der String nicht im Wörterbuch steht.
+     */
+    public static final int MISSING = -2;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Gibt die ID des Strings zurück und legt ihn an, falls er noch nicht existiert.
+     *
+     * @param value der zu kodierende String
+     * @return die ID oder {@link #NONE} für null
+     */
+    public int encode(String value) {
+        if (value == null) return NONE;
+        Integer id = ids.get(value);
+        if (id != null) return id;
+
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Sucht die ID eines Strings ohne ihn anzulegen.
+     *
+     * @param value der gesuchte String
+     * @return die ID, {@link #NONE} für null oder {@link #MISSING} wenn unbekannt
+     */
+    public int find(String value) {
+        if (value == null) return NONE;
+        Integer id = ids.get(value);
+        return id == null ? MISSING : id;
+    }
+
+    /**
+     * Gibt den String zu einer ID zurück.
+     *
+     * @param id die ID
+     * @return der gespeicherte String oder null für {@link #NONE}
+     */
+    public String decode(int id) {
+        if (id == NONE) return null;
+        return values[id];
+    }
+
+    /**
+     * @return Anzahl der verschiedenen Strings im Wörterbuch
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,118 @@
+package bank;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bankweiter Pool für Strings, die sich oft wiederholen (Kontonamen, Sender, Empfänger,
+ * Beschreibungen wie "Gehalt" oder "Miete"). Gleiche Strings werden auf eine einzige Instanz
+ * abgebildet, die doppelten Kopien kann der GC dann wegräumen.
+ * Zusätzlich wird mitgezählt, wie viel Speicher dadurch ungefähr gespart wurde.
+ * Der Pool ist threadsicher, da Konten einer Bank parallel beschrieben werden können. Er liegt in einer
+ * {@link ConcurrentHashMap} und zählt mit {@link LongAdder}s, parallele Aufrufe warten also nicht aufeinander.
+ * Die Grenze wird deshalb nur ungefähr eingehalten.
+ */
+public class StringPool {
+
+    /**
+     * Standardgrenze für die Anzahl verschiedener Strings im Pool.
+     */
+    public static final int DEFAULT_LIMIT = 100_000;
+
+    private final ConcurrentHashMap<String, String> canonical = new ConcurrentHashMap<>();
+    private final int limit;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Erstellt einen Pool mit {@link #DEFAULT_LIMIT}.
+     */
+    public StringPool() {
+        this(DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit maximale Anzahl verschiedener Strings, danach werden neue Strings nicht mehr aufgenommen
+     */
+    public StringPool(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Gibt die kanonische Instanz zu einem String zurück.
+     * Ist der String neu und der Pool noch nicht voll, wird er selbst zur kanonischen Instanz.
+     *
+     * @param value der String (darf null sein)
+     * @return die kanonische Instanz, oder value selbst falls unbekannt und Pool voll
+     */
+    public String intern(String value) {
+        if (value == null) return null;
+        requests.increment();
+
+        String existing = canonical.get(value);
+        if (existing == null) {
+            if (canonical.size() >= limit) return value;
+            existing = canonical.putIfAbsent(value, value);
+            if (existing == null) return value;
+        }
+        if (existing != value) {
+            hits.increment();
+            savedBytes.add(estimateSize(value));
+        }
+        return existing;
+    }
+
+    /**
+     * Grobe Schätzung, wie viel Heap ein String belegt (Objekt + byte[], 8-Byte-Alignment).
+     */
+    static long estimateSize(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        long array = 16 + (long) value.length() * bytesPerChar;
+        return 24 + ((array + 7) & ~7L);
+    }
+
+    /**
+     * @return Anzahl verschiedener Strings im Pool
+     */
+    public int size() {
+        return canonical.size();
+    }
+
+    /**
+     * @return wie oft {@link #intern(String)} aufgerufen wurde
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return wie oft eine doppelte Instanz durch die kanonische ersetzt wurde
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return geschätzte Anzahl gesparter Bytes durch ersetzte Duplikate
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool[" +
+                "size=" + canonical.size() +
+                ", requests=" + requests +
+                ", hits=" + hits +
+                ", savedBytes=" + savedBytes +
+                ']';
+    }
+}
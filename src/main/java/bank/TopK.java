@@ -0,0 +1,84 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Beschränkter Heap für die k größten Elemente nach einem Comparator.
+ * Der Heap hält nur k Elemente, das kleinste davon oben; ein neues Element ersetzt es nur, wenn es größer ist.
+ * Damit kosten n Elemente O(n log k) statt einer vollständigen Sortierung.
+ * Teilergebnisse paralleler Durchläufe werden mit {@link #merge} zusammengeführt, passend zu
+ * {@link java.util.stream.Stream#collect(java.util.function.Supplier, java.util.function.BiConsumer, java.util.function.BiConsumer)}.
+ *
+ * @param <T> Elementtyp
+ */
+class TopK<T> {
+
+    /**
+     * Konten nach Kontostand, bei Gleichstand gewinnt der alphabetisch kleinere Name.
+     */
+    static final Comparator<Map.Entry<String, Double>> ACCOUNTS_BY_BALANCE =
+            Map.Entry.<String, Double>comparingByValue()
+                    .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+
+    /**
+     * Transaktionen nach berechnetem Betrag.
+     */
+    static final Comparator<Transaction> BY_AMOUNT = Comparator.comparingDouble(Transaction::calculate);
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param k          Anzahl der zu behaltenden Elemente, negativ für alle
+     * @param comparator Reihenfolge, die größten Elemente bleiben
+     */
+    TopK(int k, Comparator<? super T> comparator) {
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(comparator);
+    }
+
+    /**
+     * Bietet ein Element an.
+     */
+    void offer(T element) {
+        if (k == 0) return;
+        if (k < 0 || heap.size() < k) {
+            heap.add(element);
+        } else if (comparator.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * Übernimmt alle Elemente eines anderen Teilergebnisses.
+     */
+    void merge(TopK<T> other) {
+        for (T element : other.heap) offer(element);
+    }
+
+    /**
+     * @return die behaltenen Konten mit Kontostand als Map in Rangfolge
+     */
+    static Map<String, Double> toRanking(TopK<Map.Entry<String, Double>> top) {
+        Map<String, Double> ranking = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : top.toList()) ranking.put(entry.getKey(), entry.getValue());
+        return ranking;
+    }
+
+    /**
+     * @return die behaltenen Elemente, größtes zuerst
+     */
+    List<T> toList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator.reversed());
+        return result;
+    }
+}
@@ -7,6 +7,11 @@ import java.util.Objects;
  * Sie enthält die grundlegenden Attribute, die jede Transaktion teilt: Datum, Betrag und eine Beschreibung.
  * Implementiert das {@link CalculateBill} Interface, um sicherzustellen, dass alle abgeleiteten Klassen
  * eine Berechnungslogik bereitstellen.
+ * <p>
+ * Mit {@link #freeze()} wird eine Transaktion zu einem unveränderlichen Wertobjekt: alle Setter werfen
+ * dann eine {@link UnsupportedOperationException}, Hashcode und berechneter Betrag werden einmal
+ * berechnet und zwischengespeichert. Eingefrorene Transaktionen können gefahrlos zwischen Threads und
+ * Indexstrukturen geteilt werden.
  */
 public abstract class Transaction implements CalculateBill {
 
@@ -25,6 +30,21 @@ public abstract class Transaction implements CalculateBill {
      */
     private String description;
 
+    /**
+     * Ob die Transaktion eingefroren (unveränderlich) ist. Wird als letztes in {@link #freeze()} gesetzt.
+     */
+    private volatile boolean frozen;
+
+    /**
+     * Zwischengespeicherter Hashcode, nur gültig wenn {@link #frozen}.
+     */
+    private int hash;
+
+    /**
+     * Zwischengespeicherter berechneter Betrag, nur gültig wenn {@link #frozen}.
+     */
+    private double calculated;
+
     /**
      * Erstellt eine neue Transaktion mit den angegebenen Details.
      *
@@ -53,6 +73,7 @@ public abstract class Transaction implements CalculateBill {
      * @param date Das neue Datum der Transaktion.
      */
     public void setDate(String date) {
+        checkMutable();
         this.date = date;
     }
 
@@ -71,6 +92,7 @@ public abstract class Transaction implements CalculateBill {
      * @param amount Der neue Betrag der Transaktion.
      */
     public void setAmount(double amount) {
+        checkMutable();
         this.amount = amount;
     }
 
@@ -89,9 +111,60 @@ public abstract class Transaction implements CalculateBill {
      * @param description Die neue Beschreibung der Transaktion.
      */
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
+    /**
+     * Friert die Transaktion ein. Danach sind alle Setter gesperrt, Hashcode und berechneter
+     * Betrag werden nur noch aus dem Zwischenspeicher gelesen. Mehrfaches Aufrufen ist erlaubt.
+     * Eine veränderbare Kopie bekommt man über die Copy-Konstruktoren.
+     *
+     * @return diese Transaktion
+     */
+    public Transaction freeze() {
+        if (!frozen) {
+            hash = computeHashCode();
+            calculated = computeCalculation();
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return true wenn die Transaktion eingefroren und damit unveränderlich ist
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Muss von allen Settern (auch in Unterklassen) aufgerufen werden.
+     *
+     * @throws UnsupportedOperationException wenn die Transaktion eingefroren ist
+     */
+    protected void checkMutable() {
+        if (frozen) throw new UnsupportedOperationException("Eingefrorene Transaktion kann nicht verändert werden");
+    }
+
+    /**
+     * Gibt den berechneten Betrag zurück. Bei eingefrorenen Transaktionen aus dem Zwischenspeicher,
+     * sonst über {@link #computeCalculation()} der jeweiligen Unterklasse.
+     *
+     * @return der berechnete Betrag
+     */
+    @Override
+    public final double calculate() {
+        return frozen ? calculated : computeCalculation();
+    }
+
+    /**
+     * Die eigentliche Berechnungslogik der Unterklasse.
+     *
+     * @return der berechnete Betrag
+     */
+    protected abstract double computeCalculation();
+
 
 
     /**
@@ -127,12 +200,26 @@ public abstract class Transaction implements CalculateBill {
     /**
      * Erzeugt einen Hashcode für das Objekt.
      * Notwendig für die korrekte Funktion in HashMaps und HashSets.
+     * Bei eingefrorenen Transaktionen wird der zwischengespeicherte Wert zurückgegeben.
      *
      * @return Ein Hashcode-Wert für dieses Objekt.
      */
     @Override
-    public int hashCode() {
-        return Objects.hash(date,description, amount);
+    public final int hashCode() {
+        return frozen ? hash : computeHashCode();
+    }
+
+    /**
+     * Berechnet den Hashcode aus den Attributen, ohne die double-Werte zu boxen.
+     * Ergibt den gleichen Wert wie {@code Objects.hash(date, description, amount)}.
+     * Unterklassen erweitern den Wert um ihre eigenen Attribute.
+     *
+     * @return Ein Hashcode-Wert für dieses Objekt.
+     */
+    protected int computeHashCode() {
+        int result = 31 + Objects.hashCode(date);
+        result = 31 * result + Objects.hashCode(description);
+        return 31 * result + Double.hashCode(amount);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,421 @@
+package bank;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Transaktionsliste eines Kontos, die ohne Sperre und zu früheren Versionen gelesen werden kann.
+ * <p>
+ * Geschrieben wird nur unter der Schreibsperre des Kontos. Die Liste hängt neue Transaktionen hinter
+ * das Ende des Arrays an, ein Platz unterhalb einer schon veröffentlichten Größe wird nie wieder beschrieben;
+ * Entfernen legt ein neues Array an. Array, Größe und Kontostand werden zusammen unter einem
+ * {@link StampedLock} veröffentlicht. {@link #snapshot()} liest sie optimistisch und bekommt so ohne zu
+ * blockieren einen festen Stand, dessen Elemente sich danach nicht mehr ändern. Anhängen allokiert nichts,
+ * solange Platz im Array ist.
+ * <p>
+ * Zu jedem Platz wird die Version der {@link VersionClock} gespeichert, unter der er veröffentlicht wurde.
+ * Da nur angehängt wird, steigen die Versionen im Array; der Stand zu einer Version ist damit ein Präfix.
+ * Beim Entfernen wird das alte Array als {@link Generation} aufbewahrt, solange ein offener Snapshot es braucht.
+ * <p>
+ * Die übrigen Methoden (z.B. {@link #get}) lesen den Stand des Schreibers und sind für Aufrufer mit Kontosperre gedacht.
+ */
+final class TransactionLog extends AbstractList<Transaction> implements RandomAccess {
+
+    private static final Transaction[] EMPTY = new Transaction[0];
+    private static final long[] NO_VERSIONS = new long[0];
+
+    private final VersionClock clock;
+    private final StampedLock publication = new StampedLock();
+
+    /**
+     * Version, unter der das Konto angelegt wurde.
+     */
+    private final long created;
+
+    // Stand des Schreibers, enthält auch vorgemerkte, noch nicht veröffentlichte Transaktionen
+    private Transaction[] buffer;
+    private long[] bufferVersions;
+    private int count;
+
+    // veröffentlichter Stand, nur unter der Schreibsperre von publication geändert
+    private Transaction[] elements;
+    private long[] versions;
+    private int size;
+    private double balance;
+    private Generation history;
+    private volatile long deleted = Long.MAX_VALUE;
+
+    /**
+     * Legt ein leeres Konto unter einer neuen Version an.
+     */
+    TransactionLog(VersionClock clock) {
+        this(clock, List.of(), clock.next());
+    }
+
+    /**
+     * @param transactions Anfangsinhalt, z.B. aus der JSON-Datei des Kontos; gilt als schon immer vorhanden
+     */
+    TransactionLog(VersionClock clock, List<Transaction> transactions) {
+        this(clock, transactions, 0);
+    }
+
+    private TransactionLog(VersionClock clock, List<Transaction> transactions, long created) {
+        this.clock = clock;
+        this.created = created;
+        this.buffer = transactions.isEmpty() ? EMPTY : transactions.toArray(EMPTY);
+        this.bufferVersions = buffer.length == 0 ? NO_VERSIONS : new long[buffer.length];
+        this.count = buffer.length;
+        this.elements = buffer;
+        this.versions = bufferVersions;
+        this.size = count;
+        this.balance = sum(buffer, count);
+    }
+
+    @Override
+    public Transaction get(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException(index);
+        return buffer[index];
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return indexOf(buffer, count, o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(Transaction transaction) {
+        stage(transaction);
+        commit();
+        return true;
+    }
+
+    /**
+     * Merkt eine Transaktion vor, sichtbar wird sie erst mit {@link #commit()}.
+     */
+    void stage(Transaction transaction) {
+        if (count == buffer.length) grow(Math.max(8, count * 2));
+        buffer[count++] = transaction; // hinter jeder veröffentlichten Größe, kein Leser sieht den Platz
+        modCount++;
+    }
+
+    /**
+     * Veröffentlicht alle vorgemerkten Transaktionen unter einer neuen Version.
+     */
+    void commit() {
+        long stamp = publication.writeLock();
+        try {
+            publishStaged(clock.next());
+        } finally {
+            publication.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Veröffentlicht die vorgemerkten Transaktionen zweier Konten unter derselben Version, z.B. beide Seiten
+     * einer Überweisung. Ein Snapshot sieht dann beide Seiten oder keine.
+     */
+    static void commit(TransactionLog first, TransactionLog second) {
+        commit(List.of(first, second));
+    }
+
+    /**
+     * Wie {@link #commit(TransactionLog, TransactionLog)} für beliebig viele Konten, z.B. einen Stapel über mehrere Konten.
+     * Der Aufrufer hält die Schreibsperren aller Konten.
+     */
+    static void commit(List<TransactionLog> logs) {
+        if (logs.isEmpty()) return;
+        long[] stamps = new long[logs.size()];
+        for (int i = 0; i < stamps.length; i++) stamps[i] = logs.get(i).publication.writeLock();
+        try {
+            long version = logs.get(0).clock.next();
+            for (TransactionLog log : logs) log.publishStaged(version);
+        } finally {
+            for (int i = stamps.length - 1; i >= 0; i--) logs.get(i).publication.unlockWrite(stamps[i]);
+        }
+    }
+
+    private void publishStaged(long version) {
+        double newBalance = balance;
+        for (int i = size; i < count; i++) {
+            bufferVersions[i] = version;
+            newBalance += buffer[i].calculate();
+        }
+        elements = buffer;
+        versions = bufferVersions;
+        balance = newBalance;
+        size = count;
+    }
+
+    @Override
+    public Transaction remove(int index) {
+        Transaction removed = get(index);
+        Transaction[] target = new Transaction[Math.max(8, buffer.length)];
+        long[] targetVersions = new long[target.length];
+        System.arraycopy(buffer, 0, target, 0, index);
+        System.arraycopy(buffer, index + 1, target, index, count - index - 1);
+        System.arraycopy(bufferVersions, 0, targetVersions, 0, index);
+        System.arraycopy(bufferVersions, index + 1, targetVersions, index, count - index - 1);
+
+        long stamp = publication.writeLock();
+        try {
+            // das alte Array bleibt für Snapshots vor dieser Version lesbar
+            history = new Generation(elements, versions, size, clock.next(), history);
+            buffer = elements = target;
+            bufferVersions = versions = targetVersions;
+            size = --count;
+            // neu summieren statt abziehen, damit der Kontostand genau der Summe in Listenreihenfolge entspricht
+            balance = sum(target, count);
+        } finally {
+            publication.unlockWrite(stamp);
+        }
+        modCount++;
+        pruneHistory();
+        return removed;
+    }
+
+    /**
+     * Vergrößert das Array für additional weitere Transaktionen.
+     */
+    void ensureCapacity(int additional) {
+        if (count + additional > buffer.length) grow(count + additional);
+    }
+
+    private void grow(int capacity) {
+        // neue Arrays, die veröffentlichten bleiben für Leser unverändert
+        buffer = Arrays.copyOf(buffer, capacity);
+        bufferVersions = Arrays.copyOf(bufferVersions, capacity);
+    }
+
+    /**
+     * Markiert das Konto als gelöscht, Snapshots vor dieser Version sehen es weiterhin.
+     *
+     * @return die Version der Löschung
+     */
+    long markDeleted() {
+        long stamp = publication.writeLock();
+        try {
+            return deleted = clock.next();
+        } finally {
+            publication.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return die Version der Löschung, {@link Long#MAX_VALUE} solange das Konto besteht
+     */
+    long deletedVersion() {
+        return deleted;
+    }
+
+    /**
+     * Wirft alte Arrays weg, die kein offener Snapshot mehr braucht.
+     */
+    private void pruneHistory() {
+        long oldest = clock.oldestOpen();
+        long stamp = publication.writeLock();
+        try {
+            history = Generation.retain(history, oldest);
+        } finally {
+            publication.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Liest den zuletzt veröffentlichten Stand ohne Sperre; nur wenn ein Schreiber gerade veröffentlicht,
+     * wird kurz auf ihn gewartet.
+     *
+     * @return unveränderlicher Stand der Liste mit Kontostand
+     */
+    Snapshot snapshot() {
+        long stamp = publication.tryOptimisticRead();
+        Transaction[] e = elements;
+        int n = size;
+        double b = balance;
+        if (!publication.validate(stamp)) {
+            stamp = publication.readLock();
+            try {
+                e = elements;
+                n = size;
+                b = balance;
+            } finally {
+                publication.unlockRead(stamp);
+            }
+        }
+        return new Snapshot(e, n, b);
+    }
+
+    /**
+     * Liest den Stand zu einer Version der {@link VersionClock}, ebenfalls ohne Schreiber zu blockieren.
+     * Eine Änderung mit kleinerer oder gleicher Version ist entweder schon veröffentlicht oder wird gerade
+     * veröffentlicht, dann wartet der Leser auf sie.
+     *
+     * @param version die Version des Snapshots
+     * @return der Stand zu dieser Version, null wenn das Konto zu dieser Version nicht bestand
+     */
+    Snapshot snapshotAt(long version) {
+        long stamp = publication.tryOptimisticRead();
+        State state = new State(this);
+        if (!publication.validate(stamp)) {
+            stamp = publication.readLock();
+            try {
+                state = new State(this);
+            } finally {
+                publication.unlockRead(stamp);
+            }
+        }
+        // ab hier nur noch unveränderliche Plätze der gelesenen Arrays
+        if (version < created || version >= state.deleted) return null;
+        Transaction[] e = state.elements;
+        long[] v = state.versions;
+        int n = state.size;
+        Generation g = state.history;
+        if (g != null && g.retired > version) {
+            while (g.older != null && g.older.retired > version) g = g.older;
+            e = g.elements;
+            v = g.versions;
+            n = g.size;
+        }
+        int visible = upperBound(v, n, version);
+        return new Snapshot(e, visible, e == state.elements && visible == n ? state.balance : sum(e, visible));
+    }
+
+    /**
+     * @return Anzahl der Einträge mit Version <= version, die Versionen sind aufsteigend
+     */
+    private static int upperBound(long[] versions, int size, long version) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (versions[mid] <= version) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Lineare Suche direkt im Array, ohne Iterator (Einspielen soll nichts allokieren).
+     */
+    private static int indexOf(Transaction[] elements, int size, Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[i])) return i;
+        }
+        return -1;
+    }
+
+    private static double sum(Transaction[] elements, int size) {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) sum += elements[i].calculate();
+        return sum;
+    }
+
+    /**
+     * Ein durch Entfernen ersetzter Stand, gültig für Versionen vor retired (und ab dem retired der älteren Generation).
+     */
+    private static final class Generation {
+
+        final Transaction[] elements;
+        final long[] versions;
+        final int size;
+        final long retired;
+        final Generation older;
+
+        Generation(Transaction[] elements, long[] versions, int size, long retired, Generation older) {
+            this.elements = elements;
+            this.versions = versions;
+            this.size = size;
+            this.retired = retired;
+            this.older = older;
+        }
+
+        /**
+         * @return die Kette ohne die Generationen, die nur Snapshots vor oldest bräuchten
+         */
+        static Generation retain(Generation generation, long oldest) {
+            if (generation == null || generation.retired <= oldest) return null;
+            Generation older = retain(generation.older, oldest);
+            return older == generation.older ? generation
+                    : new Generation(generation.elements, generation.versions, generation.size, generation.retired, older);
+        }
+    }
+
+    /**
+     * Die veröffentlichten Felder, zusammen gelesen für {@link #snapshotAt}.
+     */
+    private static final class State {
+
+        final Transaction[] elements;
+        final long[] versions;
+        final int size;
+        final double balance;
+        final Generation history;
+        final long deleted;
+
+        State(TransactionLog log) {
+            this.elements = log.elements;
+            this.versions = log.versions;
+            this.size = log.size;
+            this.balance = log.balance;
+            this.history = log.history;
+            this.deleted = log.deleted;
+        }
+    }
+
+    /**
+     * Fester Stand einer {@link TransactionLog}: schreibgeschützte Sicht auf die ersten size Plätze des Arrays,
+     * ohne Kopie.
+     */
+    static final class Snapshot extends AbstractList<Transaction> implements RandomAccess {
+
+        private final Transaction[] elements;
+        private final int size;
+        private final double balance;
+
+        private Snapshot(Transaction[] elements, int size, double balance) {
+            this.elements = elements;
+            this.size = size;
+            this.balance = balance;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return TransactionLog.indexOf(elements, size, o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        /**
+         * @return Summe der berechneten Beträge dieses Stands
+         */
+        double balance() {
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package bank;
+
+/**
+ * Reihenfolge, in der {@link Bank#getTransactionsPage} die Transaktionen eines Kontos liefert.
+ * Bei gleichem Schlüssel entscheidet die Einfügereihenfolge.
+ */
+public enum TransactionOrder {
+
+    /**
+     * Reihenfolge, in der die Transaktionen hinzugefügt wurden (wie {@link Bank#getTransactions}).
+     */
+    INSERTION,
+
+    /**
+     * Nach Datum, Transaktionen mit ungültigem Datum stehen aufsteigend ganz vorne.
+     */
+    DATE,
+
+    /**
+     * Nach berechnetem Betrag.
+     */
+    AMOUNT
+}
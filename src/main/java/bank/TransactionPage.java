@@ -0,0 +1,52 @@
+package bank;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Eine Seite aus {@link Bank#getTransactionsPage}: die Transaktionen der Seite und der Cursor,
+ * mit dem die nächste Seite abgefragt wird.
+ */
+public class TransactionPage {
+
+    private final List<Transaction> transactions;
+    private final String nextCursor;
+
+    /**
+     * @param transactions die Transaktionen dieser Seite
+     * @param nextCursor   Cursor für die nächste Seite, null wenn dies die letzte Seite ist
+     */
+    public TransactionPage(List<Transaction> transactions, String nextCursor) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return schreibgeschützte Liste der Transaktionen dieser Seite
+     */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return Cursor für die nächste Seite, null wenn es keine weitere gibt
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return true wenn es eine weitere Seite gibt
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionPage[" +
+                "size=" + transactions.size() +
+                ", nextCursor=" + nextCursor +
+                ']';
+    }
+}
@@ -0,0 +1,250 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Zusammensetzbare Abfrage über die Transaktionen eines Kontos, erzeugt über {@link Bank#query(String)}.
+ * Alle gesetzten Bedingungen müssen gelten. Beispiel: negative Payments über 500 € im März, größte zuerst:
+ * <pre>
+ * bank.query("KontoA")
+ *     .type(Payment.class)
+ *     .amountBetween(Double.NEGATIVE_INFINITY, -500)
+ *     .dateBetween("01.03.2025", "31.03.2025")
+ *     .orderBy(TransactionOrder.AMOUNT, true)
+ *     .limit(10)
+ *     .list();
+ * </pre>
+ * Die Bank entscheidet beim Ausführen, welche Bedingung über einen Index die wenigsten Kandidaten liefert.
+ * Die übrigen Bedingungen werden in einem Durchlauf über diese Kandidaten geprüft ({@link #matches}),
+ * ohne Zwischenlisten pro Bedingung. Reihenfolge und Gleichstände wie bei {@link Bank#getTransactionsPage}.
+ */
+public class TransactionQuery {
+
+    private final String account;
+    private final Function<TransactionQuery, List<Transaction>> executor;
+
+    private Class<? extends Transaction> type;
+    private Boolean positive;
+    private double minAmount = Double.NEGATIVE_INFINITY;
+    private double maxAmount = Double.POSITIVE_INFINITY;
+    private int fromDay = DateKey.INVALID;
+    private int toDay = DateKey.INVALID;
+    private String counterparty;
+    private String description;
+    private DescriptionIndex.Query descriptionQuery;
+    private TransactionOrder order = TransactionOrder.INSERTION;
+    private boolean asc = true;
+    private int limit = -1;
+
+    /**
+     * @param account  das abgefragte Konto
+     * @param executor führt die fertige Abfrage in der Bank aus
+     */
+    TransactionQuery(String account, Function<TransactionQuery, List<Transaction>> executor) {
+        this.account = account;
+        this.executor = executor;
+    }
+
+    /**
+     * Nur Transaktionen dieser Klasse (inklusive Unterklassen, Transfer.class umfasst also Incoming- und OutgoingTransfer).
+     */
+    public TransactionQuery type(Class<? extends Transaction> type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Nur positive (berechneter Betrag >= 0) oder nur negative Transaktionen, wie {@link Bank#getTransactionsByType}.
+     */
+    public TransactionQuery positive(boolean positive) {
+        this.positive = positive;
+        return this;
+    }
+
+    /**
+     * Nur Transaktionen mit min <= berechneter Betrag <= max.
+     */
+    public TransactionQuery amountBetween(double min, double max) {
+        this.minAmount = min;
+        this.maxAmount = max;
+        return this;
+    }
+
+    /**
+     * Nur Transaktionen mit Datum zwischen from und to (beide inklusive), siehe {@link Bank#getTransactionsBetween}.
+     *
+     * @throws IllegalArgumentException wenn ein Datum ungültig ist
+     */
+    public TransactionQuery dateBetween(String from, String to) {
+        this.fromDay = DateKey.parse(from);
+        this.toDay = DateKey.parse(to);
+        return this;
+    }
+
+    /**
+     * Nur Überweisungen, bei denen name Sender oder Empfänger ist.
+     */
+    public TransactionQuery counterparty(String name) {
+        this.counterparty = name;
+        return this;
+    }
+
+    /**
+     * Nur Transaktionen, deren Beschreibung die Suche erfüllt, siehe {@link Bank#searchTransactions(String)}.
+     */
+    public TransactionQuery description(String query) {
+        this.description = query;
+        this.descriptionQuery = DescriptionIndex.Query.parse(query);
+        return this;
+    }
+
+    /**
+     * Reihenfolge des Ergebnisses, Standard ist Einfügereihenfolge aufsteigend.
+     */
+    public TransactionQuery orderBy(TransactionOrder order, boolean asc) {
+        this.order = order;
+        this.asc = asc;
+        return this;
+    }
+
+    /**
+     * Höchstens limit Transaktionen, negativ für alle.
+     */
+    public TransactionQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Führt die Abfrage aus.
+     *
+     * @return neue Liste mit den Treffern
+     * @throws bank.exceptions.AccountDoesNotExistException wenn das Konto nicht existiert
+     */
+    public List<Transaction> list() {
+        return executor.apply(this);
+    }
+
+    /**
+     * Prüft alle Bedingungen in einem Schritt.
+     *
+     * @param transaction   die zu prüfende Transaktion
+     * @param indexedByBank true wenn Beschreibung und Gegenseite schon über einen Index sichergestellt sind
+     * @return true wenn die Transaktion alle (zu prüfenden) Bedingungen erfüllt
+     */
+    boolean matches(Transaction transaction, boolean indexedByBank) {
+        if (type != null && !type.isInstance(transaction)) return false;
+
+        double amount = transaction.calculate();
+        if (positive != null && (amount >= 0) != positive) return false;
+        if (amount < minAmount || amount > maxAmount) return false;
+
+        if (hasDateRange()) {
+            int day = DateKey.of(transaction.getDate());
+            if (day == DateKey.INVALID || day < fromDay || day > toDay) return false;
+        }
+        if (indexedByBank) return true;
+
+        if (counterparty != null && !(transaction instanceof Transfer t
+                && (counterparty.equals(t.getSender()) || counterparty.equals(t.getRecipient())))) {
+            return false;
+        }
+        return descriptionQuery == null || descriptionQuery.matches(transaction.getDescription());
+    }
+
+    /**
+     * Sortiert Treffer, die in Einfügereihenfolge vorliegen, und schneidet auf das Limit ab.
+     * Für Banken ohne Index, die alle Transaktionen eines Kontos durchlaufen.
+     *
+     * @param matches Treffer in Einfügereihenfolge, wird verändert
+     * @return die fertige Ergebnisliste
+     */
+    List<Transaction> finish(List<Transaction> matches) {
+        if (order == TransactionOrder.AMOUNT) matches.sort(Comparator.comparingDouble(Transaction::calculate));
+        if (order == TransactionOrder.DATE) matches.sort(Comparator.comparingInt(t -> DateKey.of(t.getDate())));
+        if (!asc) Collections.reverse(matches);
+        if (limit >= 0 && limit < matches.size()) return new ArrayList<>(matches.subList(0, limit));
+        return matches;
+    }
+
+    /**
+     * @return der Sortierschlüssel einer Transaktion für die gewählte Reihenfolge (0 bei Einfügereihenfolge)
+     */
+    double sortKey(Transaction transaction) {
+        switch (order) {
+            case AMOUNT:
+                return transaction.calculate();
+            case DATE:
+                return DateKey.of(transaction.getDate());
+            default:
+                return 0;
+        }
+    }
+
+    String getAccount() {
+        return account;
+    }
+
+    boolean hasAmountRange() {
+        return minAmount != Double.NEGATIVE_INFINITY || maxAmount != Double.POSITIVE_INFINITY;
+    }
+
+    boolean hasDateRange() {
+        return fromDay != DateKey.INVALID;
+    }
+
+    double getMinAmount() {
+        return minAmount;
+    }
+
+    double getMaxAmount() {
+        return maxAmount;
+    }
+
+    int getFromDay() {
+        return fromDay;
+    }
+
+    int getToDay() {
+        return toDay;
+    }
+
+    String getCounterparty() {
+        return counterparty;
+    }
+
+    DescriptionIndex.Query getDescriptionQuery() {
+        return descriptionQuery;
+    }
+
+    TransactionOrder getOrder() {
+        return order;
+    }
+
+    boolean isAsc() {
+        return asc;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionQuery[" +
+                "account='" + account + '\'' +
+                ", type=" + (type == null ? null : type.getSimpleName()) +
+                ", positive=" + positive +
+                ", amount=[" + minAmount + ", " + maxAmount + "]" +
+                ", days=[" + fromDay + ", " + toDay + "]" +
+                ", counterparty=" + counterparty +
+                ", description=" + description +
+                ", order=" + order + (asc ? " asc" : " desc") +
+                ", limit=" + limit +
+                ']';
+    }
+}
@@ -0,0 +1,119 @@
+package bank;
+
+import bank.exceptions.*;
+
+/**
+ * Ergebnis der nicht werfenden Varianten wie {@link PrivateBank#tryAddTransaction}. Abgelehnte Transaktionen
+ * sind beim Einspielen großer Mengen der Normalfall; statt einer Exception mit Meldung und Stacktrace gibt es
+ * dafür eine Konstante. Die werfenden Methoden rufen die nicht werfenden auf und machen daraus über
+ * {@link #throwIfFailed} die bisherigen Exceptions.
+ */
+public enum TransactionResult {
+
+    /**
+     * Die Änderung wurde ausgeführt.
+     */
+    OK(null),
+
+    /**
+     * Der Idempotenzschlüssel wurde im Zeitfenster schon gebucht, es wurde nichts verändert. Für den Aufrufer ein
+     * Erfolg: die erste Einreichung ist gebucht, die werfenden Methoden werfen hier nichts.
+     */
+    REPLAYED(null),
+
+    /**
+     * Die Transaktion existiert bereits ({@link TransactionAlreadyExistException}).
+     */
+    DUPLICATE("Transaction exestiert bereits"),
+
+    /**
+     * Das Konto existiert nicht ({@link AccountDoesNotExistException}).
+     */
+    UNKNOWN_ACCOUNT("Konto existiert nicht!"),
+
+    /**
+     * Die zu entfernende Transaktion existiert nicht ({@link TransactionDoesNotExistException}).
+     */
+    UNKNOWN_TRANSACTION("Transaktion exestiert nicht"),
+
+    /**
+     * Zinsen eines Payments außerhalb von 0 bis 1 ({@link TransactionAttributeException}).
+     */
+    INTEREST_OUT_OF_RANGE("IncomingInterest oder OutgoingInterest außerhalb des Wertebereiches (0-1)!"),
+
+    /**
+     * Payment mit Betrag 0 ({@link TransactionAttributeException}).
+     */
+    ZERO_AMOUNT("Payment Amount darf nicht 0 sein!"),
+
+    /**
+     * Transfer mit Betrag kleiner oder gleich 0 ({@link TransactionAttributeException}).
+     */
+    NON_POSITIVE_TRANSFER("Transfer Amount muss positiv sein!"),
+
+    /**
+     * Überweisung an das eigene Konto ({@link TransactionAttributeException}).
+     */
+    SAME_ACCOUNT("Sender und Empfänger müssen verschieden sein!"),
+
+    /**
+     * Statt einer Transaktion wurde null übergeben ({@link TransactionAttributeException}).
+     */
+    NULL_TRANSACTION("Transaction darf nicht null sein!");
+
+    private final String message;
+
+    TransactionResult(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return true bei {@link #OK}, also nicht bei {@link #REPLAYED}
+     */
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    /**
+     * @return true wenn die Transaktion wegen ihrer Attribute abgelehnt wurde
+     */
+    public boolean isInvalid() {
+        return ordinal() >= INTEREST_OUT_OF_RANGE.ordinal();
+    }
+
+    /**
+     * @return die Meldung der zugehörigen Exception, null bei {@link #OK}
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Wirft die Exception, die die werfenden Methoden für dieses Ergebnis werfen; bei {@link #OK} und {@link #REPLAYED}
+     * passiert nichts.
+     *
+     * @param account das Konto für die Meldung bei {@link #UNKNOWN_ACCOUNT}
+     */
+    void throwIfFailed(String account) throws TransactionAlreadyExistException {
+        if (this == DUPLICATE) throw new TransactionAlreadyExistException(message);
+        throwIfRejected(account);
+    }
+
+    /**
+     * Wie {@link #throwIfFailed} für Operationen ohne geprüfte Exception, z.B. das Entfernen.
+     *
+     * @param account das Konto für die Meldung bei {@link #UNKNOWN_ACCOUNT}
+     * @throws IllegalStateException bei {@link #DUPLICATE}
+     */
+    void throwIfRejected(String account) {
+        switch (this) {
+            case OK, REPLAYED -> {
+            }
+            case DUPLICATE -> throw new IllegalStateException(message);
+            case UNKNOWN_ACCOUNT -> throw new AccountDoesNotExistException(
+                    account == null ? message : "Konto '" + account + "' existiert nicht!");
+            case UNKNOWN_TRANSACTION -> throw new TransactionDoesNotExistException(message);
+            default -> throw new TransactionAttributeException(message);
+        }
+    }
+}
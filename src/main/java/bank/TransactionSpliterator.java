@@ -0,0 +1,104 @@
+package bank;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator über eine oder mehrere Listen mit wahlfreiem Zugriff, ohne sie zu kopieren.
+ * Alle Listen zusammen bilden einen Indexbereich, der beim Teilen immer in der Mitte halbiert wird,
+ * auch über Kontogrenzen hinweg. Beide Hälften kennen ihre genaue Größe (SIZED und SUBSIZED),
+ * dadurch kann ein paralleler Stream die Arbeit gleichmäßig auf den Fork-Join-Pool verteilen.
+ * <p>
+ * Die Größen werden beim Erzeugen festgehalten. Die Listen dürfen während der Auswertung nicht verändert werden.
+ */
+final class TransactionSpliterator implements Spliterator<Transaction> {
+
+    private final List<? extends List<Transaction>> segments;
+
+    /**
+     * offsets[k] ist der erste globale Index von Liste k, offsets[segments.size()] die Gesamtgröße.
+     */
+    private final int[] offsets;
+
+    private int index;
+    private final int fence;
+    private int segment;
+
+    /**
+     * @param segments die Listen in Ausgabereihenfolge, z.B. die Transaktionslisten aller Konten
+     */
+    TransactionSpliterator(List<? extends List<Transaction>> segments) {
+        this.segments = segments;
+        this.offsets = new int[segments.size() + 1];
+        for (int k = 0; k < segments.size(); k++) {
+            offsets[k + 1] = offsets[k] + segments.get(k).size();
+        }
+        this.index = 0;
+        this.fence = offsets[segments.size()];
+        this.segment = segmentOf(0);
+    }
+
+    private TransactionSpliterator(List<? extends List<Transaction>> segments, int[] offsets, int index, int fence) {
+        this.segments = segments;
+        this.offsets = offsets;
+        this.index = index;
+        this.fence = fence;
+        this.segment = segmentOf(index);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Transaction> action) {
+        if (index >= fence) return false;
+        while (index >= offsets[segment + 1]) segment++;
+        action.accept(segments.get(segment).get(index - offsets[segment]));
+        index++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Transaction> action) {
+        while (index < fence) {
+            while (index >= offsets[segment + 1]) segment++;
+            List<Transaction> list = segments.get(segment);
+            int end = Math.min(fence, offsets[segment + 1]);
+            for (int i = index - offsets[segment], last = end - offsets[segment]; i < last; i++) {
+                action.accept(list.get(i));
+            }
+            index = end;
+        }
+    }
+
+    @Override
+    public Spliterator<Transaction> trySplit() {
+        int mid = (index + fence) >>> 1;
+        if (mid <= index) return null;
+        TransactionSpliterator prefix = new TransactionSpliterator(segments, offsets, index, mid);
+        index = mid;
+        segment = segmentOf(mid);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+
+    /**
+     * @return die Liste, in der der globale Index liegt (leere Listen werden übersprungen)
+     */
+    private int segmentOf(int position) {
+        int low = 0, high = segments.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,325 @@
+package bank;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Speicher für die Transaktionen eines Kontos in der {@link CompactBank}.
+ * Implementierungen legen Transaktionen kodiert ab (Typ-Tag, Beträge, String-IDs aus einem
+ * {@link StringDictionary}) und erzeugen {@link Transaction}-Objekte erst bei {@link #get(int)}.
+ */
+public interface TransactionStore {
+
+    /**
+     * Typ-Tags für die verschiedenen Transaktionsklassen.
+     */
+    byte PAYMENT = 0;
+    byte INCOMING_TRANSFER = 1;
+    byte OUTGOING_TRANSFER = 2;
+    byte TRANSFER = 3;
+
+    /**
+     * @return Anzahl der gespeicherten Transaktionen
+     */
+    int size();
+
+    /**
+     * Kodiert eine Transaktion und hängt sie hinten an.
+     *
+     * @param transaction die zu speichernde Transaktion
+     */
+    void add(Transaction transaction);
+
+    /**
+     * Entfernt die Transaktion an der Position, die folgenden rücken nach vorne.
+     *
+     * @param index Position der zu entfernenden Transaktion
+     */
+    void remove(int index);
+
+    /**
+     * Sucht eine Transaktion direkt im Speicher, ohne Objekte zu erzeugen.
+     * Es gilt die gleiche Gleichheit wie bei {@link Transaction#equals(Object)}.
+     *
+     * @param transaction die gesuchte Transaktion
+     * @return die Position oder -1, falls sie nicht enthalten ist
+     */
+    int indexOf(Transaction transaction);
+
+    /**
+     * Fortlaufende Nummer, die beim Hinzufügen vergeben wird. Da nur hinten angehängt und beim Entfernen
+     * nachgerückt wird, sind die Nummern in Positionsreihenfolge aufsteigend.
+     *
+     * @param index Position der Transaktion
+     * @return die Sequenznummer
+     */
+    long sequence(int index);
+
+    /**
+     * Berechnet den Betrag wie {@link Transaction#calculate()}, aber ohne Objekt.
+     *
+     * @param index Position der Transaktion
+     * @return der berechnete Betrag
+     */
+    double calculate(int index);
+
+    /**
+     * Erzeugt das {@link Transaction}-Objekt für eine Position.
+     * Das Objekt ist eine Kopie, Änderungen daran wirken sich nicht auf den Speicher aus.
+     *
+     * @param index Position der Transaktion
+     * @return die materialisierte Transaktion
+     */
+    Transaction get(int index);
+
+    /**
+     * Liefert das Datum einer Position, ohne die ganze Transaktion zu erzeugen.
+     *
+     * @param index Position der Transaktion
+     * @return das gespeicherte Datum
+     */
+    default String getDate(int index) {
+        return get(index).getDate();
+    }
+
+    /**
+     * Liefert die Beschreibung einer Position, ohne die ganze Transaktion zu erzeugen.
+     *
+     * @param index Position der Transaktion
+     * @return die gespeicherte Beschreibung
+     */
+    default String getDescription(int index) {
+        return get(index).getDescription();
+    }
+
+    /**
+     * Summiert alle berechneten Beträge.
+     *
+     * @return der Kontostand
+     */
+    default double balance() {
+        double balance = 0.0;
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            balance += calculate(i);
+        }
+        return balance;
+    }
+
+    /**
+     * Gibt eine schreibgeschützte Listen-Sicht zurück, die Transaktionen erst beim Zugriff erzeugt.
+     *
+     * @return Sicht auf alle Transaktionen
+     */
+    default List<Transaction> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                return TransactionStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return TransactionStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Durchsucht die Beschreibungen linear, nur die Treffer werden materialisiert.
+     *
+     * @param query die Suchanfrage, siehe {@link Bank#searchTransactions(String)}
+     * @return neue Liste mit den Treffern in gespeicherter Reihenfolge
+     */
+    default List<Transaction> search(String query) {
+        List<Transaction> result = new ArrayList<>();
+        DescriptionIndex.Query parsed = DescriptionIndex.Query.parse(query);
+        if (parsed.isEmpty()) return result;
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            if (parsed.matches(getDescription(i))) result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Filtert nach Vorzeichen des berechneten Betrags. Nur die Treffer werden materialisiert.
+     *
+     * @param positive true für Beträge >= 0, false für Beträge < 0
+     * @return neue Liste mit den passenden Transaktionen
+     */
+    default List<Transaction> byType(boolean positive) {
+        List<Transaction> result = new ArrayList<>();
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            if ((calculate(i) >= 0) == positive) result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Sucht die Transaktionen zwischen zwei Stichtagen. Es gibt keinen Datums-Index, daher wird linear
+     * über die Daten gesucht und nach Datum stabil sortiert, nur die Treffer werden materialisiert.
+     *
+     * @param fromDay erster Tag als JJJJMMTT (siehe {@link DateKey})
+     * @param toDay   letzter Tag als JJJJMMTT
+     * @return neue nach Datum sortierte Liste
+     */
+    default List<Transaction> between(int fromDay, int toDay) {
+        int size = size();
+        double[] keys = new double[size];
+        int[] order = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int day = DateKey.of(getDate(i));
+            if (day == DateKey.INVALID || day < fromDay || day > toDay) continue;
+            keys[i] = day;
+            order[count++] = i;
+        }
+        mergeSort(order, new int[count], keys, 0, count);
+
+        List<Transaction> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(get(order[i]));
+        return result;
+    }
+
+    /**
+     * Summiert die berechneten Beträge aller Transaktionen bis einschließlich day.
+     *
+     * @param day Stichtag als JJJJMMTT
+     * @return Kontostand zum Ende des Stichtags
+     */
+    default double balanceUntil(int day) {
+        double balance = 0.0;
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            int key = DateKey.of(getDate(i));
+            if (key != DateKey.INVALID && key <= day) balance += calculate(i);
+        }
+        return balance;
+    }
+
+    /**
+     * Liest eine Seite ab dem Cursor, siehe {@link Bank#getTransactionsPage}. Es gibt keinen Index, daher wird
+     * linear gesucht und für Datum und Betrag werden die Positionen hinter dem Cursor stabil sortiert.
+     * Materialisiert wird nur die Seite.
+     *
+     * @param order    Reihenfolge
+     * @param asc      aufsteigend oder absteigend
+     * @param cursor   Cursor der vorherigen Seite, null für den Anfang
+     * @param pageSize maximale Anzahl Transaktionen der Seite
+     * @return die Seite mit dem Cursor für die nächste
+     */
+    default TransactionPage page(TransactionOrder order, boolean asc, String cursor, int pageSize) {
+        PageCursor.checkPageSize(pageSize);
+        PageCursor after = PageCursor.decode(cursor, order, asc);
+        int size = size();
+
+        // Kandidaten hinter dem Cursor, aufsteigend nach (Schlüssel, Sequenznummer)
+        double[] keys = new double[size];
+        int[] candidates = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double key = order == TransactionOrder.INSERTION ? 0
+                    : order == TransactionOrder.DATE ? DateKey.of(getDate(i)) : calculate(i);
+            if (after != null) {
+                int cmp = Double.compare(key, after.key);
+                if (cmp == 0) cmp = Long.compare(sequence(i), after.sequence);
+                if (asc ? cmp <= 0 : cmp >= 0) continue;
+            }
+            keys[i] = key;
+            candidates[count++] = i;
+        }
+        if (order != TransactionOrder.INSERTION) mergeSort(candidates, new int[count], keys, 0, count);
+
+        int pageLength = Math.min(pageSize, count);
+        List<Transaction> result = new ArrayList<>(pageLength);
+        for (int i = 0; i < pageLength; i++) result.add(get(candidates[asc ? i : count - 1 - i]));
+        if (pageLength == count) return new TransactionPage(result, null);
+
+        int last = candidates[asc ? pageLength - 1 : count - pageLength];
+        return new TransactionPage(result, new PageCursor(order, asc, keys[last], sequence(last)).encode());
+    }
+
+    /**
+     * Sortiert nach berechnetem Betrag. Sortiert wird nur ein int-Array mit Positionen,
+     * der Speicher selbst bleibt unverändert.
+     *
+     * @param asc aufsteigend oder absteigend
+     * @return neue sortierte Liste
+     */
+    default List<Transaction> sorted(boolean asc) {
+        int size = size();
+        double[] keys = new double[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = asc ? calculate(i) : -calculate(i);
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], keys, 0, size);
+
+        List<Transaction> result = new ArrayList<>(size);
+        for (int i : order) result.add(get(i));
+        return result;
+    }
+
+    /**
+     * Stabiler Mergesort der Positionen nach den zugehörigen Schlüsseln.
+     */
+    private static void mergeSort(int[] order, int[] buffer, double[] keys, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(order, buffer, keys, from, mid);
+        mergeSort(order, buffer, keys, mid, to);
+
+        int left = from, right = mid, out = from;
+        while (left < mid && right < to) {
+            buffer[out++] = Double.compare(keys[order[right]], keys[order[left]]) < 0 ? order[right++] : order[left++];
+        }
+        while (left < mid) buffer[out++] = order[left++];
+        while (right < to) buffer[out++] = order[right++];
+        System.arraycopy(buffer, from, order, from, to - from);
+    }
+
+    /**
+     * @return das Typ-Tag zur Klasse der Transaktion
+     */
+    static byte typeOf(Transaction transaction) {
+        if (transaction instanceof Payment) return PAYMENT;
+        if (transaction instanceof IncomingTransfer) return INCOMING_TRANSFER;
+        if (transaction instanceof OutgoingTransfer) return OUTGOING_TRANSFER;
+        return TRANSFER;
+    }
+
+    /**
+     * Berechnet den Betrag aus den kodierten Feldern, gleiche Regeln wie in den calculate()-Methoden.
+     */
+    static double calculate(byte type, double amount, double incomingInterest, double outgoingInterest) {
+        switch (type) {
+            case PAYMENT:
+                return amount > 0 ? amount * (1 - incomingInterest) : amount * (1 + outgoingInterest);
+            case OUTGOING_TRANSFER:
+                return -amount;
+            default:
+                return amount;
+        }
+    }
+
+    /**
+     * Erzeugt aus den dekodierten Feldern wieder das passende Transaction-Objekt.
+     */
+    static Transaction materialize(byte type, String date, double amount, String description,
+                                   double incomingInterest, double outgoingInterest, String sender, String recipient) {
+        switch (type) {
+            case PAYMENT:
+                return new Payment(date, amount, description, incomingInterest, outgoingInterest);
+            case INCOMING_TRANSFER:
+                return new IncomingTransfer(date, amount, description, sender, recipient);
+            case OUTGOING_TRANSFER:
+                return new OutgoingTransfer(date, amount, description, sender, recipient);
+            default:
+                return new Transfer(date, amount, description, sender, recipient);
+        }
+    }
+}
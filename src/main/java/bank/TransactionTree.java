@@ -0,0 +1,470 @@
+package bank;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Balancierter Suchbaum (Treap) über die Transaktionen eines Kontos, sortiert nach einem Schlüssel
+ * (z.B. berechneter Betrag oder Datum). Die Knoten liegen nicht als eigene Objekte auf dem Heap, sondern in
+ * parallelen Arrays, die wie bei {@code ArrayList} nur gelegentlich vergrößert werden. Einfügen und Entfernen
+ * kosten O(log n) und erzeugen (amortisiert) keine neuen Objekte, gelöschte Knoten werden über eine Freiliste
+ * wiederverwendet.
+ * <p>
+ * Gleiche Schlüssel werden nach einer vom Aufrufer vergebenen, aufsteigenden Sequenznummer sortiert, damit sich
+ * der Baum wie eine stabile Sortierung verhält. Über (Schlüssel, Sequenznummer) ist jeder Knoten eindeutig
+ * adressierbar, das nutzen Entfernen und das seitenweise Lesen ab einem Cursor.
+ * Jeder Knoten kennt außerdem Anzahl und Summe der berechneten Beträge seines Teilbaums, damit sind
+ * Präfixsummen (z.B. Kontostand bis zu einem Datum) in O(log n) möglich.
+ */
+class TransactionTree {
+
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ToDoubleFunction<Transaction> keyFunction;
+
+    private double[] keys = new double[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private int[] priorities = new int[INITIAL_CAPACITY];
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private Transaction[] values = new Transaction[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private double[] sums = new double[INITIAL_CAPACITY];
+
+    private int root = NIL;
+    private int used;
+    private int freeList = NIL;
+    private int size;
+    private int random = 0x9E3779B9;
+    private boolean removed;
+    private int lastCollected;
+
+    /**
+     * @param keyFunction liefert den Sortierschlüssel einer Transaktion, muss für eingefrorene Transaktionen stabil sein
+     */
+    TransactionTree(ToDoubleFunction<Transaction> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * @return Anzahl der Transaktionen im Baum
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vergrößert die Arrays so, dass weitere Transaktionen ohne erneutes Vergrößern eingefügt werden können.
+     *
+     * @param additional Anzahl der erwarteten zusätzlichen Transaktionen
+     */
+    void ensureCapacity(int additional) {
+        int needed = size + additional;
+        if (needed > keys.length) resize(needed);
+    }
+
+    /**
+     * Fügt eine Transaktion ein.
+     *
+     * @param sequence Sequenznummer, größer als alle bisher vergebenen
+     */
+    void add(Transaction transaction, long sequence) {
+        int node = allocate();
+        keys[node] = keyFunction.applyAsDouble(transaction);
+        sequences[node] = sequence;
+        priorities[node] = nextRandom();
+        left[node] = NIL;
+        right[node] = NIL;
+        values[node] = transaction;
+        counts[node] = 1;
+        sums[node] = transaction.calculate();
+
+        root = insert(root, node);
+        size++;
+    }
+
+    /**
+     * Entfernt eine Transaktion, gefunden über Schlüssel und Sequenznummer in O(log n).
+     *
+     * @param sequence die beim Einfügen vergebene Sequenznummer
+     * @return true wenn sie enthalten war
+     */
+    boolean remove(Transaction transaction, long sequence) {
+        removed = false;
+        root = delete(root, keyFunction.applyAsDouble(transaction), sequence);
+        if (removed) size--;
+        return removed;
+    }
+
+    /**
+     * Hängt die Transaktionen in sortierter Reihenfolge an die Liste an, ohne zu sortieren.
+     * Gleiche Schlüssel bleiben auch absteigend in Einfügereihenfolge.
+     *
+     * @param asc    aufsteigend oder absteigend
+     * @param limit  maximale Anzahl, negativ für alle
+     * @param result Liste, an die angehängt wird
+     */
+    void collect(boolean asc, int limit, List<Transaction> result) {
+        int count = limit < 0 ? size : Math.min(limit, size);
+        if (count == 0) return;
+        int start = result.size();
+
+        if (asc) {
+            ascending(root, start + count, result);
+            return;
+        }
+
+        // rückwärts in-order liefert gleiche Schlüssel in umgekehrter Einfügereihenfolge, daher wird
+        // jeder Lauf gleicher Schlüssel vollständig gesammelt und danach umgedreht
+        descending(root, start + count, result);
+        int runStart = start;
+        for (int i = start + 1; i <= result.size(); i++) {
+            if (i == result.size() || Double.compare(keyOf(result.get(i)), keyOf(result.get(runStart))) != 0) {
+                reverse(result, runStart, i - 1);
+                runStart = i;
+            }
+        }
+        while (result.size() > start + count) result.remove(result.size() - 1);
+    }
+
+    private boolean ascending(int node, int end, List<Transaction> result) {
+        if (node == NIL) return true;
+        if (!ascending(left[node], end, result)) return false;
+        if (result.size() == end) return false;
+        result.add(values[node]);
+        return ascending(right[node], end, result);
+    }
+
+    private boolean descending(int node, int end, List<Transaction> result) {
+        if (node == NIL) return true;
+        if (!descending(right[node], end, result)) return false;
+        if (result.size() >= end && Double.compare(keyOf(result.get(result.size() - 1)), keys[node]) != 0) {
+            return false;
+        }
+        result.add(values[node]);
+        return descending(left[node], end, result);
+    }
+
+    /**
+     * Hängt bis zu limit Transaktionen an, die in Baumreihenfolge nach dem Cursor (key, sequence) kommen.
+     * Absteigend wird die Reihenfolge komplett umgedreht, bei gleichem Schlüssel kommt also die zuletzt
+     * eingefügte zuerst. Da der Cursor kein Index ist, verschiebt er sich nicht, wenn zwischen zwei Aufrufen
+     * Transaktionen eingefügt oder entfernt werden.
+     *
+     * @param asc       aufsteigend oder absteigend
+     * @param fromStart true um am Anfang zu beginnen, key und sequence werden dann ignoriert
+     * @param key       Schlüssel des zuletzt gelesenen Elements
+     * @param sequence  Sequenznummer des zuletzt gelesenen Elements
+     * @param limit     maximale Anzahl
+     * @param result    Liste, an die angehängt wird
+     * @return Knoten des zuletzt angehängten Elements (für {@link #keyAt}/{@link #sequenceAt}), oder -1
+     */
+    int collectAfter(boolean asc, boolean fromStart, double key, long sequence, int limit, List<Transaction> result) {
+        lastCollected = NIL;
+        after(root, asc, fromStart, key, sequence, result.size() + limit, result);
+        return lastCollected;
+    }
+
+    private void after(int node, boolean asc, boolean all, double key, long sequence, int end, List<Transaction> result) {
+        if (node == NIL || result.size() >= end) return;
+        int cmp = compareTo(node, key, sequence);
+        if (all || (asc ? cmp > 0 : cmp < 0)) {
+            after(asc ? left[node] : right[node], asc, all, key, sequence, end, result);
+            if (result.size() >= end) return;
+            result.add(values[node]);
+            lastCollected = node;
+        }
+        after(asc ? right[node] : left[node], asc, all, key, sequence, end, result);
+    }
+
+    /**
+     * @return true wenn in Baumreihenfolge nach dem Cursor (key, sequence) noch ein Element kommt, in O(log n)
+     */
+    boolean hasAfter(boolean asc, double key, long sequence) {
+        int node = root;
+        while (node != NIL) {
+            int cmp = compareTo(node, key, sequence);
+            if (asc ? cmp > 0 : cmp < 0) return true;
+            node = asc ? right[node] : left[node];
+        }
+        return false;
+    }
+
+    double keyAt(int node) {
+        return keys[node];
+    }
+
+    long sequenceAt(int node) {
+        return sequences[node];
+    }
+
+    /**
+     * Hängt alle Transaktionen mit from <= Schlüssel <= to in Schlüsselreihenfolge an die Liste an.
+     */
+    void collectRange(double from, double to, List<Transaction> result) {
+        range(root, from, to, result);
+    }
+
+    private void range(int node, double from, double to, List<Transaction> result) {
+        if (node == NIL) return;
+        boolean aboveFrom = Double.compare(keys[node], from) >= 0;
+        boolean belowTo = Double.compare(keys[node], to) <= 0;
+        if (aboveFrom) range(left[node], from, to, result);
+        if (aboveFrom && belowTo) result.add(values[node]);
+        if (belowTo) range(right[node], from, to, result);
+    }
+
+    /**
+     * Callback für {@link #visitRange}.
+     */
+    interface Visitor {
+        /**
+         * @return false um den Durchlauf abzubrechen
+         */
+        boolean visit(Transaction transaction, long sequence);
+    }
+
+    /**
+     * Durchläuft alle Transaktionen mit from <= Schlüssel <= to in Baumreihenfolge (absteigend komplett umgedreht),
+     * ohne eine Liste aufzubauen. Der Durchlauf endet, sobald der Visitor false liefert.
+     *
+     * @return false wenn abgebrochen wurde
+     */
+    boolean visitRange(double from, double to, boolean asc, Visitor visitor) {
+        return visit(root, from, to, asc, visitor);
+    }
+
+    private boolean visit(int node, double from, double to, boolean asc, Visitor visitor) {
+        if (node == NIL) return true;
+        boolean aboveFrom = Double.compare(keys[node], from) >= 0;
+        boolean belowTo = Double.compare(keys[node], to) <= 0;
+        if (asc ? aboveFrom : belowTo) {
+            if (!visit(asc ? left[node] : right[node], from, to, asc, visitor)) return false;
+        }
+        if (aboveFrom && belowTo && !visitor.visit(values[node], sequences[node])) return false;
+        if (asc ? belowTo : aboveFrom) {
+            return visit(asc ? right[node] : left[node], from, to, asc, visitor);
+        }
+        return true;
+    }
+
+    /**
+     * Anzahl der Transaktionen mit from <= Schlüssel <= to, in O(log n).
+     */
+    int countBetween(double from, double to) {
+        if (Double.compare(from, to) > 0) return 0;
+        return countUpTo(to) - countBelow(from);
+    }
+
+    /**
+     * Anzahl der Transaktionen mit Schlüssel < key, in O(log n).
+     */
+    int countBelow(double key) {
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (Double.compare(keys[node], key) < 0) {
+                count += countOf(left[node]) + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Summe der berechneten Beträge aller Transaktionen mit Schlüssel <= key, in O(log n).
+     */
+    double sumUpTo(double key) {
+        double sum = 0.0;
+        int node = root;
+        while (node != NIL) {
+            if (Double.compare(keys[node], key) <= 0) {
+                sum += sumOf(left[node]) + values[node].calculate();
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Anzahl der Transaktionen mit Schlüssel <= key, in O(log n).
+     */
+    int countUpTo(double key) {
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (Double.compare(keys[node], key) <= 0) {
+                count += countOf(left[node]) + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Summe der berechneten Beträge aller Transaktionen im Baum
+     */
+    double sum() {
+        return sumOf(root);
+    }
+
+    /**
+     * @return der kleinste (min) oder größte (!min) Schlüssel in O(log n), NaN wenn der Baum leer ist
+     */
+    double extremeKey(boolean min) {
+        if (root == NIL) return Double.NaN;
+        int node = root;
+        while ((min ? left[node] : right[node]) != NIL) node = min ? left[node] : right[node];
+        return keys[node];
+    }
+
+    private double keyOf(Transaction transaction) {
+        return keyFunction.applyAsDouble(transaction);
+    }
+
+    private int countOf(int node) {
+        return node == NIL ? 0 : counts[node];
+    }
+
+    private double sumOf(int node) {
+        return node == NIL ? 0.0 : sums[node];
+    }
+
+    /**
+     * Berechnet Anzahl und Summe eines Knotens neu, nachdem sich seine Kinder geändert haben.
+     */
+    private void update(int node) {
+        counts[node] = 1 + countOf(left[node]) + countOf(right[node]);
+        sums[node] = values[node].calculate() + sumOf(left[node]) + sumOf(right[node]);
+    }
+
+    private static void reverse(List<Transaction> list, int from, int to) {
+        while (from < to) {
+            Transaction tmp = list.get(from);
+            list.set(from++, list.get(to));
+            list.set(to--, tmp);
+        }
+    }
+
+    private int compare(int a, int b) {
+        return compareTo(a, keys[b], sequences[b]);
+    }
+
+    private int compareTo(int node, double key, long sequence) {
+        int cmp = Double.compare(keys[node], key);
+        return cmp != 0 ? cmp : Long.compare(sequences[node], sequence);
+    }
+
+    private int insert(int subtree, int node) {
+        if (subtree == NIL) return node;
+        if (compare(node, subtree) < 0) {
+            left[subtree] = insert(left[subtree], node);
+            if (priorities[left[subtree]] > priorities[subtree]) subtree = rotateRight(subtree);
+        } else {
+            right[subtree] = insert(right[subtree], node);
+            if (priorities[right[subtree]] > priorities[subtree]) subtree = rotateLeft(subtree);
+        }
+        update(subtree);
+        return subtree;
+    }
+
+    private int delete(int subtree, double key, long sequence) {
+        if (subtree == NIL) return NIL;
+        int cmp = compareTo(subtree, key, sequence);
+        if (cmp > 0) {
+            left[subtree] = delete(left[subtree], key, sequence);
+        } else if (cmp < 0) {
+            right[subtree] = delete(right[subtree], key, sequence);
+        } else {
+            removed = true;
+            return unlink(subtree);
+        }
+        update(subtree);
+        return subtree;
+    }
+
+    /**
+     * Entfernt den Knoten aus seinem Teilbaum, indem er nach unten rotiert wird.
+     */
+    private int unlink(int node) {
+        if (left[node] == NIL || right[node] == NIL) {
+            int child = left[node] == NIL ? right[node] : left[node];
+            release(node);
+            return child;
+        }
+        int top;
+        if (priorities[left[node]] > priorities[right[node]]) {
+            top = rotateRight(node);
+            right[top] = unlink(node);
+        } else {
+            top = rotateLeft(node);
+            left[top] = unlink(node);
+        }
+        update(top);
+        return top;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private int allocate() {
+        if (freeList != NIL) {
+            int node = freeList;
+            freeList = right[node];
+            return node;
+        }
+        if (used == keys.length) grow();
+        return used++;
+    }
+
+    private void release(int node) {
+        values[node] = null;
+        right[node] = freeList;
+        freeList = node;
+    }
+
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    private void grow() {
+        resize(keys.length * 2);
+    }
+
+    private void resize(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        values = Arrays.copyOf(values, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+    }
+}
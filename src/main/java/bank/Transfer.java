@@ -80,6 +80,7 @@ public class Transfer extends Transaction {
      * @param sender Der neue Sender.
      */
     public void setSender(String sender) {
+        checkMutable();
         this.sender = sender;
     }
 
@@ -98,6 +99,7 @@ public class Transfer extends Transaction {
      * @param recipient Der neue Empfänger.
      */
     public void setRecipient(String recipient) {
+        checkMutable();
         this.recipient = recipient;
     }
 
@@ -108,7 +110,7 @@ public class Transfer extends Transaction {
      * @return Der Betrag der Überweisung.
      */
     @Override
-    public double calculate() {
+    protected double computeCalculation() {
         return this.getAmount();
     }
 
@@ -159,14 +161,16 @@ public class Transfer extends Transaction {
 
 
     /**
-     * Erzeugt einen Hashcode für das Objekt.
-     * Notwendig für die korrekte Funktion in HashMaps und HashSets.
+     * Erweitert den Hashcode um Sender und Empfänger (gleicher Wert wie
+     * {@code Objects.hash(super.hashCode(), sender, recipient)}, aber ohne Varargs-Array).
      *
      * @return Ein Hashcode-Wert für dieses Objekt.
      */
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), sender, recipient);
+    protected int computeHashCode() {
+        int result = 31 + super.computeHashCode();
+        result = 31 * result + Objects.hashCode(sender);
+        return 31 * result + Objects.hashCode(recipient);
     }
 
 
@@ -0,0 +1,62 @@
+package bank;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logische Versionen einer {@link PrivateBank}. Jede Änderung (Buchung, Überweisung, Entfernen, Anlegen,
+ * Löschen) bekommt beim Veröffentlichen die nächste Nummer; ein {@link BankSnapshot} sieht genau die
+ * Änderungen bis zu seiner Version.
+ * <p>
+ * Offene Snapshots werden hier schwach registriert, damit Schreiber wissen, welche alten Stände
+ * (entfernte Transaktionen, gelöschte Konten) noch gebraucht werden. Ein Snapshot meldet sich ab,
+ * sobald er seine Daten festgehalten hat; vergessene Snapshots räumt der Garbage Collector ab.
+ */
+final class VersionClock {
+
+    private final AtomicLong current = new AtomicLong();
+    private final Map<Object, Long> open = new WeakHashMap<>();
+
+    /**
+     * @return die zuletzt vergebene Version
+     */
+    long current() {
+        return current.get();
+    }
+
+    /**
+     * Vergibt die nächste Version. Der Aufrufer hält dabei die Veröffentlichungssperre der betroffenen Konten.
+     */
+    long next() {
+        return current.incrementAndGet();
+    }
+
+    /**
+     * Registriert einen Snapshot und liest seine Version in einem Schritt, siehe {@link #oldestOpen()}.
+     *
+     * @return die Version des Snapshots
+     */
+    synchronized long open(Object snapshot) {
+        long version = current.get();
+        open.put(snapshot, version);
+        return version;
+    }
+
+    synchronized void close(Object snapshot) {
+        open.remove(snapshot);
+    }
+
+    /**
+     * Ein alter Stand, der mit Version r ersetzt wurde, wird nur gebraucht, wenn ein Snapshot eine Version
+     * kleiner r hat. Da Registrieren und diese Abfrage unter derselben Sperre laufen, bekommt jeder später
+     * registrierte Snapshot mindestens die hier zurückgegebene Version.
+     *
+     * @return die kleinste Version aller offenen Snapshots, ohne offene Snapshots die aktuelle Version
+     */
+    synchronized long oldestOpen() {
+        long oldest = current.get();
+        for (long version : open.values()) oldest = Math.min(oldest, version);
+        return oldest;
+    }
+}
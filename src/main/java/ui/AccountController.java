@@ -2,12 +2,15 @@ package ui;
 
 import bank.PrivateBank;
 import bank.Transaction;
+import bank.TransactionOrder;
+import bank.TransactionPage;
 import bank.Payment;
 import bank.Transfer;
 import bank.exceptions.*;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -22,6 +25,11 @@ import java.util.Optional;
 
 public class AccountController {
 
+    /**
+     * Wie viele Transaktionen auf einmal in die ListView geladen werden.
+     */
+    private static final int PAGE_SIZE = 500;
+
     @FXML
     private ListView<Transaction> transactionListView;
 
@@ -30,6 +38,28 @@ public class AccountController {
 
     private PrivateBank bank;
     private String selectedAccount;
+
+    private TransactionOrder pageOrder = TransactionOrder.INSERTION;
+    private boolean pageAsc = true;
+    private String nextCursor;
+
+    /**
+     * Lädt die nächste Seite nach, sobald die ListView bis ganz unten gescrollt wurde.
+     * Die ScrollBar gibt es erst, wenn die ListView ihren Skin hat.
+     */
+    @FXML
+    public void initialize() {
+        transactionListView.skinProperty().addListener((observable, oldSkin, skin) -> {
+            for (Node node : transactionListView.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                    bar.valueProperty().addListener((o, oldValue, value) -> {
+                        if (value.doubleValue() >= bar.getMax() && nextCursor != null) loadNextPage();
+                    });
+                }
+            }
+        });
+    }
+
     /**
      * Setzt das Bankmodell und den aktuell ausgewählten Account.
      * Muss gemacht werden bevor man irgendwas mit Transaktionen macht,
@@ -51,9 +81,7 @@ public class AccountController {
      */
     private void updateView() {
         try {
-            List<Transaction> daten = bank.getTransactions(selectedAccount);
-            transactionListView.getItems().clear();
-            transactionListView.getItems().addAll(daten);
+            showFirstPage(TransactionOrder.INSERTION, true);
             double balance = bank.getAccountBalance(selectedAccount);
             balanceText.setText("Kontostand: " + balance + " €");
         } catch (AccountDoesNotExistException e) {
@@ -61,6 +89,27 @@ public class AccountController {
         }
     }
 
+    /**
+     * Leert die ListView und lädt die erste Seite in der gewünschten Reihenfolge,
+     * der Rest wird beim Scrollen seitenweise nachgeladen.
+     */
+    private void showFirstPage(TransactionOrder order, boolean asc) {
+        pageOrder = order;
+        pageAsc = asc;
+        nextCursor = null;
+        transactionListView.getItems().clear();
+        loadNextPage();
+    }
+
+    /**
+     * Hängt die nächste Seite an die ListView an.
+     */
+    private void loadNextPage() {
+        TransactionPage page = bank.getTransactionsPage(selectedAccount, pageOrder, pageAsc, nextCursor, PAGE_SIZE);
+        transactionListView.getItems().addAll(page.getTransactions());
+        nextCursor = page.getNextCursor();
+    }
+
     /**
      * Wechselt zurück zur MainView.
      * Lädt die MainView FXML und setzt die Bank im MainController.
@@ -106,9 +155,7 @@ public class AccountController {
      */
     @FXML
     public void getAscendingTransactions() {
-        List<Transaction> sorted = bank.getTransactionsSorted(selectedAccount, true);
-        transactionListView.getItems().clear();
-        transactionListView.getItems().addAll(sorted);
+        showFirstPage(TransactionOrder.AMOUNT, true);
     }
 
     /**
@@ -116,9 +163,7 @@ public class AccountController {
      */
     @FXML
     public void getDescendingTransactions() {
-        List<Transaction> sorted = bank.getTransactionsSorted(selectedAccount, false);
-        transactionListView.getItems().clear();
-        transactionListView.getItems().addAll(sorted);
+        showFirstPage(TransactionOrder.AMOUNT, false);
     }
 
     /**
@@ -129,6 +174,7 @@ public class AccountController {
     public void getPositiveTransactions() {
         try {
             List<Transaction> filtered = bank.getTransactionsByType(selectedAccount, true);
+            nextCursor = null; // gefilterte Liste wird komplett angezeigt
             transactionListView.getItems().clear();
             transactionListView.getItems().addAll(filtered);
         } catch (Exception e) { showError("Fehler", e.getMessage()); }
@@ -142,6 +188,7 @@ public class AccountController {
     public void getNegativeTransactions() {
         try {
             List<Transaction> filtered = bank.getTransactionsByType(selectedAccount, false);
+            nextCursor = null; // gefilterte Liste wird komplett angezeigt
             transactionListView.getItems().clear();
             transactionListView.getItems().addAll(filtered);
         } catch (Exception e) { showError("Fehler", e.getMessage()); }
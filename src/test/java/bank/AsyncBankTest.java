@@ -0,0 +1,82 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die AsyncBank (asynchrone Fassade über eine Bank).
+ */
+public class AsyncBankTest {
+
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet die AsyncBank: Reihenfolge pro Konto, Exceptions in den Futures und einen ablehnenden Executor.
+     */
+    @Test
+    public void testAsyncBank() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (AsyncBank async = new AsyncBank(bank, executor)) {
+            // ohne zu warten eingereicht, pro Konto in Aufrufreihenfolge ausgeführt
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            for (String account : List.of("KontoA", "KontoB", "KontoC")) {
+                pending.add(async.createAccount(account));
+                for (int i = 0; i < 20; i++) {
+                    pending.add(async.addTransaction(account, new Payment("01.01.2025", 100, "Einzahlung " + i, 0, 0)));
+                }
+            }
+            pending.add(async.transfer("KontoA", "KontoB", 50, "02.01.2025", "Miete"));
+            pending.add(async.removeTransaction("KontoC", new Payment("01.01.2025", 100, "Einzahlung 0", 0, 0)));
+            CompletableFuture<Double> balance = async.getAccountBalance("KontoB");
+            CompletableFuture<Void> duplicate = async.createAccount("KontoA");
+            CompletableFuture<Double> unknown = async.getAccountBalance("Unbekannt");
+
+            assertEquals(20 * 95 + 50, balance.get(10, TimeUnit.SECONDS), 1e-9);
+            for (CompletableFuture<?> future : pending) future.get(10, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> duplicate.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof AccountAlreadyExistsException);
+            e = assertThrows(ExecutionException.class, () -> unknown.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof AccountDoesNotExistException);
+
+            assertEquals(19, async.getTransactions("KontoC").get().size());
+            assertEquals(21, async.list(bank.query("KontoA")).get().size());
+            assertEquals(3, async.getAllAccounts().get().size());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(20 * 95 - 50, bank.getAccountBalance("KontoA"), 1e-9);
+
+        // ein beendeter Executor lehnt ab, die Futures werden trotzdem abgeschlossen
+        AsyncBank rejected = new AsyncBank(bank, executor);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> rejected.getAllAccounts().get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        e = assertThrows(ExecutionException.class,
+                () -> rejected.getAccountBalance("KontoA").get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+}
@@ -0,0 +1,295 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die Default-Methoden von {@link Bank}: eine Bank, die nur die abstrakten Methoden umsetzt,
+ * muss dasselbe liefern wie die indizierten Versionen der PrivateBank.
+ */
+public class BankDefaultsTest {
+
+    private PrivateBank bank;
+
+    /**
+     * Reicht nur die abstrakten Methoden an {@link #bank} weiter, alles andere kommt aus den Default-Methoden.
+     */
+    private Bank basic;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+        basic = new BasicBank(bank);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Zwei Konten mit Einzahlungen, Auszahlungen und Überweisungen in beide Richtungen.
+     */
+    private void book() throws Exception {
+        basic.createAccount("KontoA");
+        basic.createAccount("KontoB");
+        basic.addTransaction("KontoA", new Payment("01.03.2025", 2000, "Gehalt März", 0, 0));
+        basic.addTransaction("KontoA", new Payment("05.03.2025", -800, "Miete März", 0, 0));
+        basic.addTransaction("KontoB", new Payment("2025-04-01", 300, "Bonus", 0, 0));
+        basic.transfer("KontoA", "KontoB", 150, "10.03.2025", "Miete Anteil");
+        basic.transfer("KontoB", "KontoA", 20, "11.04.2025", "Rückzahlung");
+    }
+
+    /**
+     * Testet die auf {@code limit} Transaktionen gekürzte Sortierung.
+     */
+    @Test
+    public void testTransactionsSortedWithLimit() throws Exception {
+        book();
+        for (int limit : new int[]{-1, 0, 2, 10}) {
+            assertEquals(bank.getTransactionsSorted("KontoA", false, limit), basic.getTransactionsSorted("KontoA", false, limit));
+            assertEquals(bank.getTransactionsSorted("KontoB", true, limit), basic.getTransactionsSorted("KontoB", true, limit));
+        }
+    }
+
+    /**
+     * Testet die Volltextsuche ohne invertierten Index.
+     */
+    @Test
+    public void testSearchTransactions() throws Exception {
+        book();
+        assertEquals(bank.searchTransactions("miete"), basic.searchTransactions("miete"));
+        assertEquals(bank.searchTransactions("KontoA", "mär*"), basic.searchTransactions("KontoA", "mär*"));
+        assertEquals(bank.searchTransactions("KontoA", "miete mär*"), basic.searchTransactions("KontoA", "miete mär*"));
+        assertTrue(basic.searchTransactions("").isEmpty());
+    }
+
+    /**
+     * Testet Überweisungen zwischen zwei Konten und die Gegenseiten ohne Gegenseiten-Index.
+     */
+    @Test
+    public void testTransfersAndCounterparties() throws Exception {
+        book();
+        assertEquals(bank.getTransfersBetween("KontoA", "KontoB"), basic.getTransfersBetween("KontoA", "KontoB"));
+        assertEquals(bank.getTopCounterparties("KontoA", -1).toString(), basic.getTopCounterparties("KontoA", -1).toString());
+        assertEquals(bank.getTopCounterparties("KontoB", 1).toString(), basic.getTopCounterparties("KontoB", 1).toString());
+    }
+
+    /**
+     * Testet die Query, die ohne Indizes über alle Transaktionen des Kontos filtert.
+     */
+    @Test
+    public void testQuery() throws Exception {
+        book();
+        for (TransactionOrder order : TransactionOrder.values()) {
+            assertEquals(bank.query("KontoA").positive(false).orderBy(order, true).list(),
+                    basic.query("KontoA").positive(false).orderBy(order, true).list());
+            assertEquals(bank.query("KontoA").dateBetween("01.03.2025", "31.03.2025").orderBy(order, false).limit(2).list(),
+                    basic.query("KontoA").dateBetween("01.03.2025", "31.03.2025").orderBy(order, false).limit(2).list());
+        }
+    }
+
+    /**
+     * Testet die Streams über die Listen der abstrakten Methoden.
+     */
+    @Test
+    public void testStreams() throws Exception {
+        book();
+        assertEquals(bank.getTransactions("KontoB"), basic.streamTransactions("KontoB").toList());
+        assertEquals(7, basic.streamTransactions().parallel().count());
+        assertEquals(bank.streamTransactions().mapToDouble(Transaction::calculate).sum(),
+                basic.streamTransactions().parallel().mapToDouble(Transaction::calculate).sum(), 1e-9);
+    }
+
+    /**
+     * Testet die Kennzahlen pro Konto, Tag und Monat ohne mitgeführte Rollups.
+     */
+    @Test
+    public void testStatistics() throws Exception {
+        book();
+        assertEquals(bank.getStatistics("KontoA"), basic.getStatistics("KontoA"));
+        assertEquals(bank.getDailyStatistics("KontoA", "05.03.2025"), basic.getDailyStatistics("KontoA", "05.03.2025"));
+        SortedMap<Integer, AccountStatistics> monthly = basic.getMonthlyStatistics("KontoB");
+        assertEquals(bank.getMonthlyStatistics("KontoB"), monthly);
+        assertEquals(List.of(202503, 202504), new ArrayList<>(monthly.keySet()));
+    }
+
+    /**
+     * Testet die bankweiten Auswertungen über alle Konten.
+     */
+    @Test
+    public void testBankWideAggregates() throws Exception {
+        book();
+        assertEquals(new ArrayList<>(bank.getTopAccounts(-1).keySet()), new ArrayList<>(basic.getTopAccounts(-1).keySet()));
+        assertEquals(bank.getLargestTransactions(3), basic.getLargestTransactions(3));
+        assertEquals(bank.getBankStatistics().getCount(), basic.getBankStatistics().getCount());
+        assertEquals(Arrays.toString(bank.getAmountHistogram(0, 500)), Arrays.toString(basic.getAmountHistogram(0, 500)));
+    }
+
+    /**
+     * Testet den Snapshot, der die Transaktionen aller Konten kopiert.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        book();
+        Bank snapshot = basic.snapshot();
+        basic.transfer("KontoA", "KontoB", 10, "12.04.2025", "Nachzahlung");
+        assertEquals(bank.getAccountBalance("KontoA") + 10, snapshot.getAccountBalance("KontoA"), 1e-9);
+        assertEquals(3, snapshot.getTransactions("KontoB").size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.createAccount("KontoC"));
+    }
+
+    /**
+     * Testet, dass der Default für Stapel bei einem Fehler die schon hinzugefügten Transaktionen wieder entfernt.
+     */
+    @Test
+    public void testAddTransactionsRollsBack() throws Exception {
+        basic.createAccount("KontoA");
+        basic.createAccount("KontoB");
+        Payment bonus = new Payment("03.01.2025", 10, "Bonus", 0, 0);
+
+        assertThrows(TransactionAlreadyExistException.class, () -> basic.addTransactions(Map.of(
+                "KontoA", List.of(new Payment("01.01.2025", 100, "Gehalt", 0, 0)),
+                "KontoB", List.of(bonus, bonus))));
+        assertTrue(bank.getTransactions("KontoA").isEmpty());
+        assertTrue(bank.getTransactions("KontoB").isEmpty());
+        assertThrows(AccountDoesNotExistException.class, () -> basic.addTransactions("Unbekannt", List.of(bonus)));
+
+        basic.addTransactions("KontoA", List.of(bonus, new Payment("04.01.2025", -5, "Gebühr", 0, 0)));
+        assertEquals(2, bank.getTransactions("KontoA").size());
+    }
+
+    /**
+     * Testet, dass jede Exception zurückrollt und fehlgeschlagene Rücknahmen an der ursprünglichen Exception hängen.
+     */
+    @Test
+    public void testAddTransactionsRollbackFailures() throws Exception {
+        bank.createAccount("KontoA");
+        List<Transaction> batch = List.of(new Payment("01.01.2025", 100, "Gehalt", 0, 0),
+                new Payment("02.01.2025", -10, "Gebühr", 0, 0), new Payment("03.01.2025", 5, "Zinsen", 0, 0));
+
+        Bank unstable = new BasicBank(bank) {
+            @Override
+            public void addTransaction(String account, Transaction transaction)
+                    throws TransactionAlreadyExistException, TransactionAttributeException, IOException {
+                if (transaction.getDescription().equals("Zinsen")) throw new IllegalStateException("Platte voll");
+                super.addTransaction(account, transaction);
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> unstable.addTransactions("KontoA", batch));
+        assertTrue(bank.getTransactions("KontoA").isEmpty());
+
+        Bank stuck = new BasicBank(bank) {
+            @Override
+            public void removeTransaction(String account, Transaction transaction) throws IOException {
+                throw new IOException("nicht entfernbar");
+            }
+        };
+        TransactionAlreadyExistException e = assertThrows(TransactionAlreadyExistException.class,
+                () -> stuck.addTransactions("KontoA", List.of(batch.get(0), batch.get(1), batch.get(0))));
+        assertEquals(2, e.getSuppressed().length);
+        assertEquals("nicht entfernbar", e.getSuppressed()[0].getMessage());
+    }
+
+    /**
+     * Setzt nur die abstrakten Methoden von {@link Bank} um und reicht sie an eine PrivateBank weiter.
+     */
+    private static class BasicBank implements Bank {
+
+        private final PrivateBank bank;
+
+        BasicBank(PrivateBank bank) {
+            this.bank = bank;
+        }
+
+        @Override
+        public void createAccount(String account) throws AccountAlreadyExistsException, IOException {
+            bank.createAccount(account);
+        }
+
+        @Override
+        public void createAccount(String account, List<Transaction> transactions)
+                throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+            bank.createAccount(account, transactions);
+        }
+
+        @Override
+        public void addTransaction(String account, Transaction transaction)
+                throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+            bank.addTransaction(account, transaction);
+        }
+
+        @Override
+        public void transfer(String sender, String recipient, double amount, String date, String description)
+                throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+            bank.transfer(sender, recipient, amount, date, description);
+        }
+
+        @Override
+        public void removeTransaction(String account, Transaction transaction)
+                throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
+            bank.removeTransaction(account, transaction);
+        }
+
+        @Override
+        public boolean containsTransaction(String account, Transaction transaction) {
+            return bank.containsTransaction(account, transaction);
+        }
+
+        @Override
+        public double getAccountBalance(String account) {
+            return bank.getAccountBalance(account);
+        }
+
+        @Override
+        public List<Transaction> getTransactions(String account) {
+            return bank.getTransactions(account);
+        }
+
+        @Override
+        public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+            return bank.getTransactionsSorted(account, asc);
+        }
+
+        @Override
+        public TransactionPage getTransactionsPage(String account, TransactionOrder order, boolean asc, String cursor, int pageSize)
+                 {
+            return bank.getTransactionsPage(account, order, asc, cursor, pageSize);
+        }
+
+        @Override
+        public List<Transaction> getTransactionsBetween(String account, String from, String to) {
+            return bank.getTransactionsBetween(account, from, to);
+        }
+
+        @Override
+        public double getAccountBalance(String account, String date) {
+            return bank.getAccountBalance(account, date);
+        }
+
+        @Override
+        public List<Transaction> getTransactionsByType(String account, boolean positive) {
+            return bank.getTransactionsByType(account, positive);
+        }
+
+        @Override
+        public List<String> getAllAccounts() {
+            return bank.getAllAccounts();
+        }
+
+        @Override
+        public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+            bank.deleteAccount(account);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die Abfragen der Bank.
+ * Jede Abfrage wird auch gegen die neu eingelesene PrivateBank und CompactBank geprüft.
+ */
+public class BankQueryTest {
+
+    private PrivateBank bank;
+
+    private Transaction paymentIn, paymentOut, transferOut;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+        paymentIn = new Payment("01.01.2025", 1000, "Gehalt", 0, 0);
+        paymentOut = new Payment("02.01.2025", -100, "Miete", 0, 0);
+        transferOut = new Transfer("03.01.2025", 50, "Strom", "KontoA", "KontoB");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet Zeitraumabfragen und Kontostand zu einem Stichtag, inkl. gemischter Datumsformate und Entfernen.
+     */
+    @Test
+    public void testDateRangeAndBalanceAsOf() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", transferOut);
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        bank.addTransaction("KontoA", new Payment("2025-02-01", 200, "Bonus", 0, 0));
+        bank.addTransaction("KontoA", new Payment("irgendwann", 10, "Ohne Datum", 0, 0));
+
+        List<Transaction> january = bank.getTransactionsBetween("KontoA", "2025-01-02", "31.01.2025");
+        assertEquals(2, january.size());
+        assertEquals("02.01.2025", january.get(0).getDate());
+        assertEquals("03.01.2025", january.get(1).getDate());
+
+        assertEquals(0.0, bank.getAccountBalance("KontoA", "31.12.2024"));
+        assertEquals(950.0, bank.getAccountBalance("KontoA", "1.1.2025"), 1e-9);
+        assertEquals(797.0, bank.getAccountBalance("KontoA", "31.01.2025"), 1e-9);
+        assertEquals(987.0, bank.getAccountBalance("KontoA", "2025-12-31"), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> bank.getAccountBalance("KontoA", "morgen"));
+
+        bank.removeTransaction("KontoA", paymentIn);
+        assertEquals(-153.0, bank.getAccountBalance("KontoA", "31.01.2025"), 1e-9);
+        assertEquals(1, bank.getTransactionsBetween("KontoA", "01.01.2025", "02.01.2025").size());
+
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransactionsBetween("KontoA", "01.01.2025", "28.02.2025"));
+        for (Bank reloaded : reload(TEST_DIRECTORY)) {
+            assertEquals(37.0, reloaded.getAccountBalance("KontoA", "2025-02-01"), 1e-9);
+        }
+    }
+
+    /**
+     * Liest alle Seiten und hängt sie aneinander.
+     */
+    private static List<Transaction> readAllPages(Bank bank, TransactionOrder order, boolean asc, int pageSize) {
+        List<Transaction> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPage page = bank.getTransactionsPage("KontoA", order, asc, cursor, pageSize);
+            assertTrue(page.getTransactions().size() <= pageSize);
+            all.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    /**
+     * Testet seitenweises Lesen in allen Reihenfolgen und dass der Cursor Änderungen zwischen zwei Seiten übersteht.
+     */
+    @Test
+    public void testPaging() throws Exception {
+        bank.createAccount("KontoA");
+        for (int i = 1; i <= 25; i++) {
+            bank.addTransaction("KontoA", new Payment((26 - i) + ".03.2025", i * 10, "Zahlung " + i, 0, 0));
+        }
+
+        assertEquals(bank.getTransactions("KontoA"), readAllPages(bank, TransactionOrder.INSERTION, true, 10));
+        assertEquals(bank.getTransactionsSorted("KontoA", false), readAllPages(bank, TransactionOrder.AMOUNT, false, 7));
+        List<Transaction> byDate = readAllPages(bank, TransactionOrder.DATE, true, 4);
+        assertEquals("1.03.2025", byDate.get(0).getDate());
+        assertEquals("25.03.2025", byDate.get(24).getDate());
+        List<Transaction> newestFirst = readAllPages(bank, TransactionOrder.INSERTION, false, 6);
+        assertEquals("Zahlung 25", newestFirst.get(0).getDescription());
+        assertEquals(25, newestFirst.size());
+
+        TransactionPage first = bank.getTransactionsPage("KontoA", TransactionOrder.INSERTION, true, null, 10);
+        assertTrue(first.hasNext());
+        bank.removeTransaction("KontoA", first.getTransactions().get(9));
+        bank.removeTransaction("KontoA", new Payment("15.03.2025", 110, "Zahlung 11", 0, 0));
+        bank.addTransaction("KontoA", new Payment("26.03.2025", 1, "Neu", 0, 0));
+
+        TransactionPage second = bank.getTransactionsPage("KontoA", TransactionOrder.INSERTION, true, first.getNextCursor(), 10);
+        assertEquals("Zahlung 12", second.getTransactions().get(0).getDescription());
+        TransactionPage third = bank.getTransactionsPage("KontoA", TransactionOrder.INSERTION, true, second.getNextCursor(), 10);
+        assertEquals(5, third.getTransactions().size());
+        assertEquals("Neu", third.getTransactions().get(4).getDescription());
+        assertFalse(third.hasNext());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bank.getTransactionsPage("KontoA", TransactionOrder.DATE, true, first.getNextCursor(), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> bank.getTransactionsPage("KontoA", TransactionOrder.DATE, true, null, 0));
+
+        for (Bank reloaded : reload(TEST_DIRECTORY)) {
+            for (TransactionOrder order : TransactionOrder.values()) {
+                assertEquals(readAllPages(bank, order, true, 3), readAllPages(reloaded, order, true, 8));
+                assertEquals(readAllPages(bank, order, false, 9), readAllPages(reloaded, order, false, 2));
+            }
+        }
+    }
+
+    /**
+     * Testet die Volltextsuche über die Beschreibungen (Wort, Präfix, mehrere Wörter, pro Konto, nach Entfernen und Laden).
+     */
+    @Test
+    public void testSearchTransactions() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        bank.addTransaction("KontoA", new Payment("01.05.2025", -80, "Strom Mai", 0, 0));
+        bank.addTransaction("KontoA", new Payment("02.05.2025", -30, "Amazon Bestellung", 0, 0));
+        bank.addTransaction("KontoA", new Payment("03.05.2025", -9, "amazon prime", 0, 0));
+        bank.addTransaction("KontoB", new Payment("04.05.2025", -95, "Stromrechnung", 0, 0));
+        bank.addTransaction("KontoB", new Transfer("05.05.2025", 20, "Amazon-Gutschein", "KontoA", "KontoB"));
+
+        assertEquals(1, bank.searchTransactions("STROM").get("KontoA").size());
+        assertFalse(bank.searchTransactions("strom").containsKey("KontoB"));
+        Map<String, List<Transaction>> prefix = bank.searchTransactions("strom*");
+        assertEquals(2, prefix.size());
+        assertEquals("Stromrechnung", prefix.get("KontoB").get(0).getDescription());
+
+        List<Transaction> amazon = bank.searchTransactions("KontoA", "amazon");
+        assertEquals(2, amazon.size());
+        assertEquals("Amazon Bestellung", amazon.get(0).getDescription());
+        assertEquals("Amazon-Gutschein", bank.searchTransactions("amazon").get("KontoB").get(0).getDescription());
+        assertEquals("amazon prime", bank.searchTransactions("KontoA", "prim* amaz*").get(0).getDescription());
+        assertTrue(bank.searchTransactions("KontoA", "amazon miete").isEmpty());
+        assertTrue(bank.searchTransactions("  ").isEmpty());
+
+        bank.removeTransaction("KontoA", new Payment("02.05.2025", -30, "Amazon Bestellung", 0, 0));
+        assertEquals(1, bank.searchTransactions("KontoA", "amazon").size());
+        assertTrue(bank.searchTransactions("bestellung").isEmpty());
+
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.searchTransactions("amazon"), b -> b.searchTransactions("strom* mai"));
+
+        bank.deleteAccount("KontoB");
+        assertEquals(1, bank.searchTransactions("amazon").size());
+    }
+
+    /**
+     * Testet den Gegenseiten-Index: Überweisungen zwischen zwei Namen und die wichtigsten Gegenseiten.
+     */
+    @Test
+    public void testCounterparties() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        bank.addTransaction("KontoA", new Transfer("01.06.2025", 100, "Miete", "KontoA", "KontoB"));
+        bank.addTransaction("KontoA", new Transfer("02.06.2025", 30, "Essen", "KontoA", "KontoC"));
+        bank.addTransaction("KontoA", new Transfer("03.06.2025", 50, "Rückzahlung", "KontoB", "KontoA"));
+        bank.addTransaction("KontoB", new Transfer("01.06.2025", 100, "Miete", "KontoA", "KontoB"));
+        bank.addTransaction("KontoA", paymentIn);
+
+        List<Transaction> between = bank.getTransfersBetween("KontoB", "KontoA");
+        assertEquals(3, between.size());
+        assertTrue(between.get(0) instanceof OutgoingTransfer);
+        assertTrue(between.get(1) instanceof IncomingTransfer);
+        assertTrue(between.get(2) instanceof IncomingTransfer);
+        assertTrue(bank.getTransfersBetween("KontoB", "KontoC").isEmpty());
+
+        List<Counterparty> top = bank.getTopCounterparties("KontoA", -1);
+        assertEquals(2, top.size());
+        assertEquals("KontoB", top.get(0).getName());
+        assertEquals(2, top.get(0).getTransferCount());
+        assertEquals(150.0, top.get(0).getVolume());
+        assertEquals(1, bank.getTopCounterparties("KontoA", 1).size());
+        assertEquals("KontoA", bank.getTopCounterparties("KontoC", 5).get(0).getName());
+
+        bank.removeTransaction("KontoA", new Transfer("02.06.2025", 30, "Essen", "KontoA", "KontoC"));
+        assertTrue(bank.getTopCounterparties("KontoC", 5).isEmpty());
+
+        assertEquals(between, bank.getTransfersBetween("KontoA", "KontoB"));
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransfersBetween("KontoA", "KontoB"),
+                b -> b.getTopCounterparties("KontoB", -1).toString());
+
+        bank.deleteAccount("KontoB");
+        assertEquals(2, bank.getTransfersBetween("KontoA", "KontoB").size());
+        assertEquals(150.0, bank.getTopCounterparties("KontoB", -1).get(0).getVolume());
+    }
+
+    /**
+     * Testet, dass eine Überweisung zwischen zwei Konten, die in beiden gebucht ist, als eine zählt.
+     */
+    @Test
+    public void testCounterpartiesCountTransferOnce() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.transfer("KontoA", "KontoB", 100, "01.06.2025", "Miete");
+
+        for (String account : List.of("KontoA", "KontoB")) {
+            Counterparty counterparty = bank.getTopCounterparties(account, -1).get(0);
+            assertEquals(1, counterparty.getTransferCount());
+            assertEquals(100.0, counterparty.getVolume());
+        }
+        assertEquals(bank.getTopCounterparties("KontoA", -1).toString(),
+                bank.snapshot().getTopCounterparties("KontoA", -1).toString());
+    }
+
+    /**
+     * Testet die zusammensetzbare Abfrage gegen einen einfachen Durchlauf der CompactBank.
+     */
+    @Test
+    public void testQueryBuilder() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", new Payment("28.02.2025", -900, "Miete Februar", 0, 0));
+        bank.addTransaction("KontoA", new Payment("01.03.2025", -900, "Miete März", 0, 0));
+        bank.addTransaction("KontoA", new Payment("05.03.2025", -40, "Strom März", 0, 0));
+        bank.addTransaction("KontoA", new Payment("10.03.2025", -600, "Amazon Bestellung", 0, 0));
+        bank.addTransaction("KontoA", new Payment("15.03.2025", 2000, "Gehalt", 0, 0));
+        bank.addTransaction("KontoA", new Transfer("20.03.2025", 700, "Urlaub", "KontoA", "KontoB"));
+        bank.addTransaction("KontoA", new Transfer("21.03.2025", 50, "Essen", "KontoB", "KontoA"));
+
+        List<Transaction> large = bank.query("KontoA")
+                .type(Payment.class)
+                .amountBetween(Double.NEGATIVE_INFINITY, -500)
+                .dateBetween("01.03.2025", "31.03.2025")
+                .orderBy(TransactionOrder.AMOUNT, true)
+                .list();
+        assertEquals(2, large.size());
+        assertEquals("Miete März", large.get(0).getDescription());
+        assertEquals("Amazon Bestellung", large.get(1).getDescription());
+
+        List<Transaction> negative = bank.query("KontoA").positive(false).orderBy(TransactionOrder.DATE, false).limit(2).list();
+        assertEquals(2, negative.size());
+        assertEquals("Urlaub", negative.get(0).getDescription());
+        assertEquals("Amazon Bestellung", negative.get(1).getDescription());
+
+        assertEquals(2, bank.query("KontoA").counterparty("KontoB").list().size());
+        assertEquals("Essen", bank.query("KontoA").counterparty("KontoB").positive(true).list().get(0).getDescription());
+        assertEquals(2, bank.query("KontoA").description("miete").list().size());
+        assertEquals("Miete März", bank.query("KontoA").description("miete").dateBetween("2025-03-01", "2025-03-31").list().get(0).getDescription());
+        assertTrue(bank.query("KontoA").description("miete").counterparty("KontoB").list().isEmpty());
+        assertTrue(bank.query("KontoA").description("  ").list().isEmpty());
+        assertThrows(AccountDoesNotExistException.class, () -> bank.query("Unbekannt").list());
+
+        for (TransactionOrder order : TransactionOrder.values()) {
+            for (boolean asc : new boolean[]{true, false}) {
+                assertSameAfterReload(bank, TEST_DIRECTORY,
+                        b -> b.query("KontoA").amountBetween(-1000, 1000).orderBy(order, asc).limit(4).list(),
+                        b -> b.query("KontoA").description("m*").dateBetween("01.03.2025", "31.03.2025").orderBy(order, asc).list());
+            }
+        }
+    }
+
+    /**
+     * Testet die Streams: parallele Auswertung über mehrere Konten liefert dasselbe wie die Listen.
+     */
+    @Test
+    public void testStreams() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        bank.createAccount("KontoLeer");
+        for (int i = 0; i < 3000; i++) {
+            bank.addTransaction(i % 3 == 0 ? "KontoB" : "KontoA", new Payment("01.01.2025", i % 2 == 0 ? i + 1 : -i, "Buchung " + i, 0, 0));
+        }
+
+        double expected = bank.getAccountBalance("KontoA") + bank.getAccountBalance("KontoB");
+        assertEquals(expected, bank.streamTransactions().parallel().mapToDouble(Transaction::calculate).sum(), 1e-6);
+        assertEquals(3000, bank.streamTransactions().parallel().count());
+        assertEquals(bank.getTransactions("KontoA"), bank.streamTransactions("KontoA").parallel().toList());
+        assertEquals(0, bank.streamTransactions("KontoLeer").count());
+        assertThrows(AccountDoesNotExistException.class, () -> bank.streamTransactions("Unbekannt"));
+
+        Spliterator<Transaction> all = bank.streamTransactions().spliterator();
+        assertTrue(all.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<Transaction> half = all.trySplit();
+        assertEquals(1500, half.estimateSize());
+        assertEquals(1500, all.estimateSize());
+
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.streamTransactions("KontoB").parallel().toList());
+        for (Bank reloaded : reload(TEST_DIRECTORY)) {
+            assertEquals(expected, reloaded.streamTransactions().parallel().mapToDouble(Transaction::calculate).sum(), 1e-6);
+        }
+    }
+}
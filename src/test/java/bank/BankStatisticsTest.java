@@ -0,0 +1,110 @@
+package bank;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die mitgeführten Kennzahlen pro Konto und die bankweiten Auswertungen.
+ */
+public class BankStatisticsTest {
+
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet die mitgeführten Kennzahlen pro Konto, Tag und Monat beim Hinzufügen, Entfernen und Laden.
+     */
+    @Test
+    public void testStatistics() throws Exception {
+        bank.createAccount("KontoA");
+        assertEquals(0, bank.getStatistics("KontoA").getCount());
+        bank.addTransaction("KontoA", new Payment("01.03.2025", 2000, "Gehalt", 0, 0));
+        bank.addTransaction("KontoA", new Payment("01.03.2025", -800, "Miete", 0, 0));
+        bank.addTransaction("KontoA", new Payment("15.03.2025", -100, "Strom", 0, 0));
+        bank.addTransaction("KontoA", new Transfer("02.04.2025", 300, "Urlaub", "KontoA", "KontoB"));
+        bank.addTransaction("KontoA", new Transfer("2025-04-20", 50, "Essen", "KontoB", "KontoA"));
+
+        AccountStatistics all = bank.getStatistics("KontoA");
+        assertEquals(5, all.getCount());
+        assertEquals(1900 + 50, all.getTotalIn(), 1e-9);
+        assertEquals(-824 - 103 - 300, all.getTotalOut(), 1e-9);
+        assertEquals(-824, all.getMin(), 1e-9);
+        assertEquals(1900, all.getMax(), 1e-9);
+        assertEquals(bank.getAccountBalance("KontoA"), all.getBalance(), 1e-9);
+
+        assertEquals(2, bank.getDailyStatistics("KontoA", "2025-03-01").getCount());
+        assertEquals(0, bank.getDailyStatistics("KontoA", "02.03.2025").getCount());
+        assertThrows(IllegalArgumentException.class, () -> bank.getDailyStatistics("KontoA", "März"));
+
+        SortedMap<Integer, AccountStatistics> months = bank.getMonthlyStatistics("KontoA");
+        assertEquals(List.of(202503, 202504), new ArrayList<>(months.keySet()));
+        assertEquals(3, months.get(202503).getCount());
+        assertEquals(-250, months.get(202504).getBalance(), 1e-9);
+
+        bank.removeTransaction("KontoA", new Payment("01.03.2025", -800, "Miete", 0, 0));
+        AccountStatistics march = bank.getMonthlyStatistics("KontoA").get(202503);
+        assertEquals(2, march.getCount());
+        assertEquals(-103, march.getMin(), 1e-9);
+        assertEquals(-103, bank.getStatistics("KontoA").getTotalOut() + 300, 1e-9);
+
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getStatistics("KontoA"), b -> b.getMonthlyStatistics("KontoA"),
+                b -> b.getDailyStatistics("KontoA", "01.03.2025"));
+    }
+
+    /**
+     * Testet die bankweiten Auswertungen: reichste Konten, größte Transaktionen, Summen und Histogramm.
+     */
+    @Test
+    public void testBankWideAggregates() throws Exception {
+        for (int a = 0; a < 20; a++) {
+            String account = "Konto" + a;
+            bank.createAccount(account);
+            for (int i = 1; i <= 50; i++) {
+                bank.addTransaction(account, new Payment("01.01.2025", i % 5 == 0 ? -i : a * 100 + i, "Buchung " + i, 0, 0));
+            }
+        }
+
+        Map<String, Double> top = bank.getTopAccounts(3);
+        assertEquals(List.of("Konto19", "Konto18", "Konto17"), new ArrayList<>(top.keySet()));
+        assertEquals(bank.getAccountBalance("Konto19"), top.get("Konto19"), 1e-6);
+        assertEquals(20, bank.getTopAccounts(-1).size());
+
+        List<Transaction> largest = bank.getLargestTransactions(5);
+        assertEquals(5, largest.size());
+        assertEquals(1949 * 0.95, largest.get(0).calculate(), 1e-6);
+        for (int i = 1; i < largest.size(); i++) assertTrue(largest.get(i - 1).calculate() >= largest.get(i).calculate());
+
+        AccountStatistics total = bank.getBankStatistics();
+        assertEquals(1000, total.getCount());
+        double balances = 0;
+        for (String account : bank.getAllAccounts()) balances += bank.getAccountBalance(account);
+        assertEquals(balances, total.getBalance(), 1e-6);
+
+        int[] histogram = bank.getAmountHistogram(0, 1000);
+        assertEquals(200, histogram[0]);
+        assertEquals(1000, histogram[0] + histogram[1] + histogram[2]);
+        assertThrows(IllegalArgumentException.class, () -> bank.getAmountHistogram(10, 5));
+
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> new ArrayList<>(b.getTopAccounts(3).keySet()),
+                b -> b.getLargestTransactions(1), b -> b.getBankStatistics().getCount(),
+                b -> Arrays.toString(b.getAmountHistogram(0, 1000)));
+    }
+}
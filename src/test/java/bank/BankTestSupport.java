@@ -0,0 +1,56 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gemeinsame Hilfen der Bank-Tests: das Testverzeichnis, das Aufräumen danach und der Vergleich einer Bank mit
+ * den Banken, die dieselben Dateien neu einlesen.
+ */
+final class BankTestSupport {
+
+    static final String TEST_DIRECTORY = "/Users/pawel/Desktop/UNI/3semesteer/oos/p2/JSON";
+
+    private BankTestSupport() {
+    }
+
+    /**
+     * Löscht die Kontodateien und die Idempotenzschlüssel einer Bank.
+     *
+     * @param directory das Verzeichnis der Bank, muss nicht existieren
+     */
+    static void deleteBankFiles(String directory) {
+        File[] files = new File(directory).listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().endsWith(".json") || file.getName().equals(IdempotencyWindow.FILE_NAME)) file.delete();
+        }
+    }
+
+    /**
+     * Liest das Verzeichnis neu ein, einmal als {@link PrivateBank} und einmal als {@link CompactBank}.
+     *
+     * @return beide Banken, mit denselben Zinsen wie die Testbanken
+     */
+    static List<Bank> reload(String directory) throws IOException {
+        return List.of(new PrivateBank("ZweiteBank", 0.05, 0.03, directory),
+                new CompactBank("Kompakt", 0.05, 0.03, directory));
+    }
+
+    /**
+     * Prüft, dass jede Abfrage auf den neu eingelesenen Banken (siehe {@link #reload}) dasselbe liefert wie auf der
+     * Bank selbst.
+     */
+    @SafeVarargs
+    static void assertSameAfterReload(Bank bank, String directory, Function<Bank, ?>... queries) throws IOException {
+        for (Bank reloaded : reload(directory)) {
+            for (Function<Bank, ?> query : queries) {
+                assertEquals(query.apply(bank), query.apply(reloaded), reloaded.getClass().getSimpleName());
+            }
+        }
+    }
+}
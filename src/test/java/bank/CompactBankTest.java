@@ -0,0 +1,157 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die CompactBank (spaltenweise und Off-Heap-Speicherung).
+ */
+public class CompactBankTest {
+
+    private CompactBank bank;
+
+    private Transaction paymentIn, paymentOut, transferOut;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new CompactBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+        paymentIn = new Payment("01.01.2025", 1000, "Gehalt", 0, 0);
+        paymentOut = new Payment("02.01.2025", -100, "Miete", 0, 0);
+        transferOut = new Transfer("03.01.2025", 50, "Strom", "KontoA", "KontoB");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet Kontostand, Transferumwandlung und Duplikaterkennung.
+     */
+    @Test
+    public void testBalanceAndTransfer() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        bank.addTransaction("KontoA", transferOut);
+
+        List<Transaction> txs = bank.getTransactions("KontoA");
+        assertEquals(3, txs.size());
+        assertTrue(txs.get(2) instanceof OutgoingTransfer);
+        assertEquals(797.0, bank.getAccountBalance("KontoA"));
+
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("KontoA", paymentIn));
+        assertTrue(bank.containsTransaction("KontoA", paymentIn));
+        assertTrue(bank.containsTransaction("KontoA", transferOut));
+    }
+
+    /**
+     * Testet das Entfernen und die Exceptions.
+     */
+    @Test
+    public void testRemoveAndExceptions() throws Exception {
+        bank.createAccount("KontoA");
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("KontoA"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("QuatschKonto", paymentIn));
+
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("KontoA", transferOut));
+
+        bank.removeTransaction("KontoA", paymentIn);
+        assertEquals(1, bank.getTransactions("KontoA").size());
+        assertEquals(-103.0, bank.getAccountBalance("KontoA"));
+    }
+
+    /**
+     * Testet Sortierung und Filter, die gespeicherte Reihenfolge darf sich nicht ändern.
+     */
+    @Test
+    public void testSortedAndByType() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        bank.addTransaction("KontoA", transferOut);
+
+        List<Transaction> sortedAsc = bank.getTransactionsSorted("KontoA", true);
+        assertEquals(-103.0, sortedAsc.get(0).calculate());
+        assertEquals(-50.0, sortedAsc.get(1).calculate());
+        assertEquals(950.0, sortedAsc.get(2).calculate());
+        assertEquals(950.0, bank.getTransactions("KontoA").get(0).calculate());
+
+        assertEquals(1, bank.getTransactionsByType("KontoA", true).size());
+        assertEquals(2, bank.getTransactionsByType("KontoA", false).size());
+    }
+
+    /**
+     * Testet, dass die Dateien mit PrivateBank kompatibel sind.
+     */
+    @Test
+    public void testPersistenceCompatibleWithPrivateBank() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", transferOut);
+
+        PrivateBank privateBank = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(2, privateBank.getTransactions("KontoA").size());
+        assertEquals(bank.getAccountBalance("KontoA"), privateBank.getAccountBalance("KontoA"));
+
+        CompactBank bank2 = new CompactBank("DritteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(bank.getTransactions("KontoA"), bank2.getTransactions("KontoA"));
+    }
+
+    /**
+     * Testet die Off-Heap-Speicherung, inkl. Entfernen aus der Mitte und Wachsen des Puffers.
+     */
+    @Test
+    public void testOffHeapStorage() throws Exception {
+        CompactBank offHeap = new CompactBank("OffHeapBank", 0.05, 0.03, TEST_DIRECTORY, StorageMode.OFF_HEAP);
+        offHeap.createAccount("KontoA");
+        for (int i = 1; i <= 40; i++) {
+            offHeap.addTransaction("KontoA", new Payment("01.01.2025", i, "Gehalt " + i, 0, 0));
+        }
+        offHeap.addTransaction("KontoA", transferOut);
+        assertEquals(41, offHeap.getTransactions("KontoA").size());
+
+        offHeap.removeTransaction("KontoA", new Payment("01.01.2025", 20, "Gehalt 20", 0, 0));
+        assertEquals(40, offHeap.getTransactions("KontoA").size());
+        assertEquals("Gehalt 21", offHeap.getTransactions("KontoA").get(19).getDescription());
+        assertTrue(offHeap.getTransactions("KontoA").get(39) instanceof OutgoingTransfer);
+        assertEquals((820 - 20) * 0.95 - 50, offHeap.getAccountBalance("KontoA"), 1e-9);
+
+        CompactBank columnar = new CompactBank("Spalten", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(offHeap.getTransactions("KontoA"), columnar.getTransactions("KontoA"));
+    }
+
+    /**
+     * Testet, dass im Off-Heap-Modus nur die Datumsstrings ins Wörterbuch kommen und der Text entfernter
+     * Transaktionen beim Kompaktieren erhalten bleibt, soweit er noch gebraucht wird.
+     */
+    @Test
+    public void testOffHeapTextOutsideDictionary() throws Exception {
+        CompactBank offHeap = new CompactBank("OffHeapBank", 0.05, 0.03, TEST_DIRECTORY, StorageMode.OFF_HEAP);
+        offHeap.createAccount("KontoA");
+        for (int i = 0; i < 200; i++) {
+            offHeap.addTransaction("KontoA", new Transfer("01.01.2025", 1 + i, "Einkauf Nr. " + i + " für 5 €",
+                    "KontoA", "Händler " + i));
+        }
+        assertEquals(1, offHeap.getDictionary().size());
+
+        for (int i = 0; i < 150; i++) {
+            offHeap.removeTransaction("KontoA", new OutgoingTransfer("01.01.2025", 1 + i,
+                    "Einkauf Nr. " + i + " für 5 €", "KontoA", "Händler " + i));
+        }
+        List<Transaction> rest = offHeap.getTransactions("KontoA");
+        assertEquals(50, rest.size());
+        assertEquals("Einkauf Nr. 150 für 5 €", rest.get(0).getDescription());
+        assertEquals("Händler 199", ((Transfer) rest.get(49)).getRecipient());
+        assertTrue(offHeap.containsTransaction("KontoA", rest.get(10)));
+        assertEquals(1, offHeap.getDictionary().size());
+    }
+}
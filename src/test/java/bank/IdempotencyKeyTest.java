@@ -0,0 +1,100 @@
+package bank;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die Idempotenzschlüssel beim Hinzufügen von Transaktionen.
+ */
+public class IdempotencyKeyTest {
+
+    private PrivateBank bank;
+
+    private Transaction paymentIn, paymentOut;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+        paymentIn = new Payment("01.01.2025", 1000, "Gehalt", 0, 0);
+        paymentOut = new Payment("02.01.2025", -100, "Miete", 0, 0);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet Idempotenzschlüssel: Wiederholungen werden erkannt, auch nach einem Neustart, und fallen nach dem
+     * Zeitfenster heraus.
+     */
+    @Test
+    public void testIdempotencyKeys() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn, "auftrag-1");
+        bank.addTransaction("KontoA", paymentIn, "auftrag-1"); // Wiederholung, keine Exception
+        assertEquals(TransactionResult.REPLAYED, bank.tryAddTransaction("KontoA", paymentIn, "auftrag-1"));
+        assertEquals(1, bank.getTransactions("KontoA").size());
+
+        // gleiche Transaktion mit anderem Schlüssel ist eine neue Einreichung
+        assertEquals(TransactionResult.OK, bank.tryAddTransaction("KontoA", paymentIn, "auftrag-2"));
+        assertEquals(2, bank.getTransactions("KontoA").size());
+
+        // abgelehnte Einreichungen verbrauchen den Schlüssel nicht
+        assertEquals(TransactionResult.ZERO_AMOUNT, bank.tryAddTransaction("KontoA", new Payment("01.01.2025", 0, "Null", 0, 0), "auftrag-3"));
+        assertEquals(TransactionResult.UNKNOWN_ACCOUNT, bank.tryAddTransaction("Unbekannt", paymentOut, "auftrag-3"));
+        assertEquals(TransactionResult.OK, bank.tryAddTransaction("KontoA", paymentOut, "auftrag-3"));
+        assertThrows(IllegalArgumentException.class, () -> bank.addTransaction("KontoA", paymentOut, ""));
+
+        PrivateBank reloaded = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(3, reloaded.getTransactions("KontoA").size());
+        assertEquals(TransactionResult.REPLAYED, reloaded.tryAddTransaction("KontoA", paymentIn, "auftrag-2"));
+        assertEquals(3, reloaded.idempotencyKeys().size());
+
+        // nach dem Zeitfenster bzw. über der Höchstzahl wird ein Schlüssel vergessen
+        long[] now = {System.currentTimeMillis()};
+        reloaded.idempotencyKeys().setClock(() -> now[0]);
+        reloaded.setIdempotencyWindow(60_000, 2);
+        assertEquals(2, reloaded.idempotencyKeys().size());
+        assertEquals(TransactionResult.OK, reloaded.tryAddTransaction("KontoA", new Payment("04.01.2025", 10, "Bonus", 0, 0), "auftrag-1"));
+        now[0] += 61_000;
+        assertEquals(0, reloaded.idempotencyKeys().size());
+        assertEquals(TransactionResult.OK, reloaded.tryAddTransaction("KontoA", paymentOut, "auftrag-3"));
+        assertEquals(5, reloaded.getTransactions("KontoA").size());
+    }
+
+    /**
+     * Testet, dass ein Idempotenzschlüssel erst nach dem Speichern des Kontos in die Datei kommt und eine
+     * Wiederholung nach einem gescheiterten Schreiben nicht doppelt bucht.
+     */
+    @Test
+    public void testIdempotencyKeyAfterFailedWrite() throws Exception {
+        bank.createAccount("KontoA");
+        Path blocker = Paths.get(TEST_DIRECTORY, "KontoA.json.tmp");
+        Path keyFile = Paths.get(TEST_DIRECTORY, IdempotencyWindow.FILE_NAME);
+        Files.createDirectory(blocker); // die temporäre Datei kann nicht angelegt werden
+        try {
+            assertThrows(IOException.class, () -> bank.tryAddTransaction("KontoA", paymentIn, "auftrag-1"));
+            assertTrue(bank.hasUnsavedChanges());
+            assertFalse(Files.exists(keyFile) && Files.readString(keyFile).contains("auftrag-1"));
+            assertEquals(TransactionResult.REPLAYED, bank.tryAddTransaction("KontoA", paymentIn, "auftrag-1"));
+            assertEquals(1, bank.getTransactions("KontoA").size());
+        } finally {
+            Files.delete(blocker);
+        }
+
+        bank.flush();
+        assertFalse(bank.hasUnsavedChanges());
+        assertTrue(Files.readString(keyFile).contains("auftrag-1"));
+        PrivateBank reloaded = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(1, reloaded.getTransactions("KontoA").size());
+        assertEquals(TransactionResult.REPLAYED, reloaded.tryAddTransaction("KontoA", paymentIn, "auftrag-1"));
+    }
+}
@@ -0,0 +1,99 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Vergleicht das Einspielen über die {@link IngestPipeline} mit direkten Aufrufen von
+ * {@link PrivateBank#addTransaction}: Durchsatz und Latenz (Median, 99. Perzentil, Maximum) bei mehreren
+ * Produzenten, die auf wenige Konten buchen. Beide Varianten sind dauerhaft gespeichert, wenn der Aufruf
+ * bzw. das Future fertig ist.
+ * <p>
+ * Kein JUnit-Test, Aufruf z.B. mit {@code java bank.IngestBenchmark [Produzenten] [Transaktionen pro Produzent]}.
+ */
+public class IngestBenchmark {
+
+    private static final int ACCOUNTS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        for (int round = 0; round < 2; round++) { // erste Runde zum Aufwärmen
+            System.out.println(round == 0 ? "Aufwärmen" : "Messung");
+            report("direkt", run(producers, perProducer, false));
+            report("pipeline", run(producers, perProducer, true));
+        }
+    }
+
+    /**
+     * @return Latenzen aller Aufrufe in Nanosekunden, das letzte Element ist die Gesamtdauer
+     */
+    private static long[] run(int producers, int perProducer, boolean pipelined) throws Exception {
+        File directory = Files.createTempDirectory("ingest-benchmark").toFile();
+        PrivateBank bank = new PrivateBank("Benchmark", 0.05, 0.03, directory.getPath());
+        for (int a = 0; a < ACCOUNTS; a++) bank.createAccount("Konto" + a);
+        IngestPipeline pipeline = pipelined ? new IngestPipeline(bank, 4096, 512) : null;
+
+        long[] latencies = new long[producers * perProducer + 1];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    CompletableFuture<?>[] futures = new CompletableFuture<?>[perProducer];
+                    long[] started = new long[perProducer];
+                    for (int i = 0; i < perProducer; i++) {
+                        String account = "Konto" + (i % ACCOUNTS);
+                        Payment payment = new Payment("01.01.2025", 1 + i, "Buchung " + thread + "-" + i, 0, 0);
+                        started[i] = System.nanoTime();
+                        if (pipelined) {
+                            int slot = thread * perProducer + i;
+                            long begin = started[i];
+                            futures[i] = pipeline.addTransaction(account, payment)
+                                    .whenComplete((ignored, error) -> latencies[slot] = System.nanoTime() - begin);
+                        } else {
+                            bank.addTransaction(account, payment);
+                            latencies[thread * perProducer + i] = System.nanoTime() - started[i];
+                        }
+                    }
+                    if (pipelined) CompletableFuture.allOf(futures).join();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        latencies[latencies.length - 1] = System.nanoTime() - begin;
+
+        if (pipeline != null) pipeline.close();
+        delete(directory);
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long total = latencies[latencies.length - 1];
+        long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+        Arrays.sort(sorted);
+        System.out.printf("%-9s %,10.0f Transaktionen/s   Median %,8d µs   p99 %,8d µs   max %,8d µs%n",
+                name, sorted.length / (total / 1e9),
+                sorted[sorted.length / 2] / 1000, sorted[(int) (sorted.length * 0.99)] / 1000,
+                sorted[sorted.length - 1] / 1000);
+    }
+
+    private static void delete(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) for (File file : files) Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(directory.toPath());
+    }
+}
@@ -0,0 +1,102 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die IngestPipeline (Einspielen über einen Schreib-Thread).
+ */
+public class IngestPipelineTest {
+
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Testet das Einspielen über die IngestPipeline mit mehreren Produzenten und vollem Puffer.
+     */
+    @Test
+    public void testIngestPipeline() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (IngestPipeline pipeline = new IngestPipeline(bank, 64, 16)) {
+            pipeline.createAccount("KontoA").get(5, TimeUnit.SECONDS);
+            ExecutionException duplicate = assertThrows(ExecutionException.class,
+                    () -> pipeline.createAccount("KontoA").get(5, TimeUnit.SECONDS));
+            assertTrue(duplicate.getCause() instanceof AccountAlreadyExistsException);
+
+            // mehr Befehle als Plätze, von mehreren Produzenten
+            Thread[] producers = new Thread[4];
+            for (int t = 0; t < producers.length; t++) {
+                int thread = t;
+                producers[t] = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        CompletableFuture<Void> future = pipeline.addTransaction("KontoA",
+                                new Payment("01.01.2025", 1 + i, "Buchung " + thread + "-" + i, 0, 0));
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                });
+                producers[t].start();
+            }
+            for (Thread producer : producers) producer.join();
+            for (CompletableFuture<Void> future : futures) future.get(5, TimeUnit.SECONDS);
+            assertEquals(1000, bank.getTransactions("KontoA").size());
+            assertFalse(bank.hasUnsavedChanges()); // abgeschlossen erst nach dem Speichern
+
+            Transaction first = bank.getTransactions("KontoA").get(0);
+            pipeline.removeTransaction("KontoA", first).get(5, TimeUnit.SECONDS);
+            ExecutionException missing = assertThrows(ExecutionException.class,
+                    () -> pipeline.removeTransaction("KontoA", first).get(5, TimeUnit.SECONDS));
+            assertTrue(missing.getCause() instanceof TransactionDoesNotExistException);
+            futures.clear();
+            futures.add(pipeline.addTransaction("Unbekannt", new Payment("01.01.2025", 1000, "Gehalt", 0, 0)));
+        }
+        assertTrue(futures.get(0).isCompletedExceptionally());
+
+        assertEquals(999, bank.getTransactions("KontoA").size());
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransactions("KontoA"));
+    }
+
+    /**
+     * Testet close() aus einer Folgeaktion, die auf dem Schreib-Thread läuft: die Pipeline wird geschlossen,
+     * ohne dass der Schreib-Thread auf sich selbst wartet, und schon angenommene Befehle werden noch gespeichert.
+     */
+    @Test
+    public void testCloseFromCallback() throws Exception {
+        IngestPipeline pipeline = new IngestPipeline(bank, 8, 1);
+        pipeline.createAccount("KontoA").get(5, TimeUnit.SECONDS);
+        CompletableFuture<CompletableFuture<Void>> accepted = new CompletableFuture<>();
+        CompletableFuture<Void> closed = pipeline.addTransaction("KontoA", new Payment("01.01.2025", 10, "Erste", 0, 0))
+                .thenRun(() -> {
+                    accepted.complete(pipeline.addTransaction("KontoA", new Payment("02.01.2025", 20, "Zweite", 0, 0)));
+                    pipeline.close();
+                });
+
+        closed.get(5, TimeUnit.SECONDS);
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> pipeline.addTransaction("KontoA",
+                new Payment("03.01.2025", 30, "Dritte", 0, 0)).get(5, TimeUnit.SECONDS));
+        assertTrue(rejected.getCause() instanceof IllegalStateException);
+        pipeline.close();
+        accepted.get().get(5, TimeUnit.SECONDS);
+        assertEquals(2, bank.getTransactions("KontoA").size());
+    }
+}
@@ -52,4 +52,27 @@ class PaymentTest {
         assertEquals(payment1, payment2);
         assertTrue(payment1.toString().contains("Miete"));
     }
+
+    /**
+     * Testet das Einfrieren: Setter gesperrt, Hashcode und Berechnung bleiben gleich.
+     */
+    @Test
+    void testFreeze() {
+        int hash = payment1.hashCode();
+        double calculated = payment1.calculate();
+
+        payment1.freeze();
+        assertTrue(payment1.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> payment1.setAmount(5));
+        assertThrows(UnsupportedOperationException.class, () -> payment1.setIncomingInterest(0.5));
+        assertEquals(hash, payment1.hashCode());
+        assertEquals(calculated, payment1.calculate());
+        assertEquals(payment1, payment2);
+        assertEquals(payment2.hashCode(), payment1.hashCode());
+
+        Payment copy = new Payment(payment1);
+        assertFalse(copy.isFrozen());
+        copy.setAmount(5);
+        assertEquals(5, copy.getAmount());
+    }
 }
@@ -0,0 +1,287 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für den gleichzeitigen Zugriff auf die PrivateBank.
+ */
+public class PrivateBankConcurrencyTest {
+
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new PrivateBank("TestBank", 0.05, 0.03, TEST_DIRECTORY);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteBankFiles(TEST_DIRECTORY);
+    }
+
+    /**
+     * Stresstest: mehrere Threads buchen gleichzeitig auf gemeinsame und eigene Konten (über den Ingest-Pfad,
+     * addTransaction und Überweisungen auf ein gemeinsames Konto), während gelesen und Konten angelegt und
+     * gelöscht werden. Kein Update darf verloren gehen, der beobachtete Kontostand
+     * darf (da nur eingezahlt wird) nie sinken, und alle Indizes müssen am Ende übereinstimmen.
+     */
+    @Test
+    public void testConcurrentIngest() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        bank.createAccount("Hot0");
+        bank.createAccount("Hot1");
+        for (int t = 0; t < threads; t++) bank.createAccount("Eigen" + t);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    String account = i % 2 == 0 ? "Hot" + (i / 2 % 2) : "Eigen" + thread;
+                    bank.ingestTransaction(account, new Payment("01.01.2025", 1, "Buchung " + thread + "-" + i, 0, 0));
+                    if (i % 10 == 0) {
+                        bank.addTransaction("Eigen" + thread, new Payment("02.01.2025", 2, "Direkt " + thread + "-" + i, 0, 0));
+                        bank.transfer("Eigen" + thread, "Hot1", 1, "03.01.2025", "Umbuchung " + thread + "-" + i);
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            double last = 0;
+            int lastSize = 0;
+            while (writing.get()) {
+                double balance = bank.getAccountBalance("Hot0");
+                int size = bank.getTransactions("Hot0").size();
+                assertTrue(balance >= last, "Kontostand gesunken");
+                assertTrue(size >= lastSize, "Transaktionen verschwunden");
+                last = balance;
+                lastSize = size;
+            }
+            return null;
+        }));
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; writing.get(); i++) {
+                bank.createAccount("Temp" + i);
+                bank.ingestTransaction("Temp" + i, new Payment("01.01.2025", 5, "Temp", 0, 0));
+                bank.deleteAccount("Temp" + i);
+            }
+            return null;
+        }));
+
+        start.countDown();
+        for (int t = 0; t < threads; t++) futures.get(t).get();
+        writing.set(false);
+        for (Future<?> future : futures) future.get();
+        pool.shutdown();
+
+        int hot = threads * perThread / 4, transfers = perThread / 10;
+        assertEquals(hot, bank.getTransactions("Hot0").size());
+        assertEquals(hot + threads * transfers, bank.getTransactions("Hot1").size());
+        assertEquals(hot * 0.95, bank.getAccountBalance("Hot0"), 1e-6);
+        assertEquals(hot + threads * transfers, bank.getStatistics("Hot1").getCount());
+        assertEquals(perThread / 2 + 2 * transfers, bank.getTransactions("Eigen3").size());
+        assertEquals(2 + threads, bank.searchTransactions("buchung").size());
+        assertEquals(1 + threads, bank.searchTransactions("umbuchung").size());
+        assertEquals(2 * transfers, bank.getTransfersBetween("Eigen3", "Hot1").size());
+        List<Counterparty> counterparties = bank.getTopCounterparties("Hot1", -1);
+        assertEquals(threads, counterparties.size());
+        assertEquals(transfers, counterparties.get(0).getTransferCount());
+        assertEquals(transfers, counterparties.get(threads - 1).getVolume(), 1e-9);
+        assertEquals(threads * perThread + 3 * threads * transfers, bank.getBankStatistics().getCount());
+        assertEquals(2 + threads, bank.getAllAccounts().size());
+        assertTrue(bank.searchTransactions("temp").isEmpty());
+    }
+
+    /**
+     * Testet Überweisungen, die beide Seiten gleichzeitig buchen: gegenläufig zwischen wenigen Konten aus
+     * vielen Threads (darf nicht verklemmen), ohne dass Geld entsteht oder verschwindet.
+     */
+    @Test
+    public void testAtomicTransfers() throws Exception {
+        String[] accounts = {"KontoA", "KontoB", "KontoC"};
+        for (String account : accounts) bank.createAccount(account);
+        bank.addTransaction("KontoA", new Payment("01.01.2025", 1000, "Startguthaben", 0, 0));
+
+        bank.transfer("KontoA", "KontoB", 100, "02.01.2025", "Miete");
+        assertTrue(bank.getTransactions("KontoA").get(1) instanceof OutgoingTransfer);
+        assertTrue(bank.getTransactions("KontoB").get(0) instanceof IncomingTransfer);
+        assertEquals(100, bank.getAccountBalance("KontoB"), 1e-9);
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("KontoA", "KontoB", 100, "02.01.2025", "Miete"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("KontoA", "Unbekannt", 5, "02.01.2025", "x"));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("KontoA", "KontoA", 5, "02.01.2025", "x"));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("KontoA", "KontoB", -5, "02.01.2025", "x"));
+        assertEquals(1, bank.getTransactions("KontoB").size());
+
+        assertEquals(2, bank.getTransactions("KontoA").size());
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransactions("KontoA"), b -> b.getTransactions("KontoB"));
+
+        double total = 0;
+        for (String account : accounts) total += bank.getAccountBalance(account);
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String from = accounts[(thread + i) % 3];
+                    String to = accounts[(thread + i + 1 + i % 2) % 3];
+                    bank.ingestTransfer(from, to, 1 + i % 7, "03.01.2025", "Umbuchung " + thread + "-" + i);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        double after = 0;
+        for (String account : accounts) after += bank.getAccountBalance(account);
+        assertEquals(total, after, 1e-6);
+        assertEquals(2 * (threads * perThread + 1) + 1, bank.getBankStatistics().getCount());
+        // jede Überweisung steht auf beiden Seiten
+        assertEquals(2 * (threads * perThread + 1), bank.getTransfersBetween("KontoA", "KontoB").size()
+                + bank.getTransfersBetween("KontoB", "KontoC").size() + bank.getTransfersBetween("KontoA", "KontoC").size());
+    }
+
+    /**
+     * Testet, dass gelieferte Listen (auch aus getAccountsToTransactions) ein schreibgeschützter, fester Stand sind,
+     * der sich durch spätere Änderungen nicht ändert.
+     */
+    @Test
+    public void testLockFreeReads() throws Exception {
+        bank.createAccount("KontoA");
+        Payment first = new Payment("01.01.2025", 100, "Erste", 0, 0);
+        bank.addTransaction("KontoA", first);
+        List<Transaction> before = bank.getTransactions("KontoA");
+        assertThrows(UnsupportedOperationException.class, () -> before.add(first));
+        List<Transaction> exposed = bank.getAccountsToTransactions().get("KontoA");
+        assertThrows(UnsupportedOperationException.class, () -> exposed.add(first));
+        assertThrows(UnsupportedOperationException.class, () -> exposed.remove(0));
+
+        // ein fester Stand ändert sich durch spätere Änderungen nicht
+        bank.addTransaction("KontoA", new Payment("02.01.2025", 50, "Zweite", 0, 0));
+        bank.removeTransaction("KontoA", first);
+        assertEquals(1, before.size());
+        assertEquals("Erste", before.get(0).getDescription());
+        assertEquals(before, exposed);
+        assertEquals(1, bank.getTransactions("KontoA").size());
+        assertFalse(bank.containsTransaction("KontoA", first));
+        assertEquals(47.5, bank.getAccountBalance("KontoA"), 1e-9); // 5 % Einzahlungszins der Bank
+
+        int writes = 5000;
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < writes; i++) {
+                bank.ingestTransaction("KontoA", new Payment("03.01.2025", 1, "Einzahlung " + i, 0, 0));
+            }
+            return null;
+        });
+        int lastSize = 0;
+        double lastBalance = 0;
+        while (!writer.isDone()) {
+            List<Transaction> snapshot = bank.getTransactions("KontoA");
+            int size = snapshot.size();
+            assertTrue(size >= lastSize);
+            assertTrue(bank.containsTransaction("KontoA", snapshot.get(size - 1)));
+            double balance = bank.getAccountBalance("KontoA");
+            assertTrue(balance >= lastBalance);
+            assertTrue(balance >= 47.5 + 0.95 * (size - 1) - 1e-6);
+            assertEquals(size, snapshot.stream().count());
+            lastSize = size;
+            lastBalance = balance;
+        }
+        writer.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        assertEquals(writes + 1, bank.getTransactions("KontoA").size());
+        assertEquals(47.5 + 0.95 * writes, bank.getAccountBalance("KontoA"), 1e-6);
+
+        PrivateBank reloaded = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(List.of(bank.getTransactions("KontoA").get(0)), reloaded.getTransactions("KontoA"));
+    }
+
+    /**
+     * Testet, dass ein Snapshot den Stand zum Zeitpunkt seiner Erstellung über alle Konten zeigt.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        bank.createAccount("KontoC");
+        Payment deposit = new Payment("01.01.2025", 1000, "Startguthaben", 0, 0);
+        bank.addTransaction("KontoA", deposit);
+        bank.transfer("KontoA", "KontoB", 100, "02.01.2025", "Miete");
+
+        Bank snapshot = bank.snapshot();
+        bank.transfer("KontoA", "KontoB", 50, "03.01.2025", "Strom");
+        bank.removeTransaction("KontoA", deposit);
+        bank.deleteAccount("KontoC");
+        bank.createAccount("KontoD");
+
+        assertEquals(List.of("KontoA", "KontoB", "KontoC"), snapshot.getAllAccounts().stream().sorted().toList());
+        assertEquals(2, snapshot.getTransactions("KontoA").size());
+        assertTrue(snapshot.containsTransaction("KontoA", deposit));
+        assertEquals(950 - 100, snapshot.getAccountBalance("KontoA"), 1e-9);
+        assertEquals(100, snapshot.getAccountBalance("KontoB"), 1e-9);
+        assertEquals(3, snapshot.getBankStatistics().getCount());
+        assertEquals(1, snapshot.searchTransactions("KontoB", "miete").size());
+        assertThrows(AccountDoesNotExistException.class, () -> snapshot.getTransactions("KontoD"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.createAccount("KontoE"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.transfer("KontoA", "KontoB", 1, "04.01.2025", "x"));
+        assertEquals(-150, bank.getAccountBalance("KontoA"), 1e-9);
+
+        // Snapshots während laufender Überweisungen sehen immer die ganze Summe
+        double total = bank.getAccountBalance("KontoA") + bank.getAccountBalance("KontoB");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    boolean forward = (thread + i) % 2 == 0;
+                    bank.ingestTransfer(forward ? "KontoA" : "KontoB", forward ? "KontoB" : "KontoA",
+                            1 + i % 5, "05.01.2025", "Umbuchung " + thread + "-" + i);
+                    if (i % 500 == 0) bank.ingestTransaction("KontoD", new Payment("05.01.2025", 0.5, "Zins " + thread + "-" + i, 0, 0));
+                }
+                return null;
+            }));
+        }
+        int snapshots = 0;
+        try {
+            while (futures.stream().anyMatch(future -> !future.isDone()) || snapshots == 0) {
+                Bank consistent = bank.snapshot();
+                double sum = consistent.getAccountBalance("KontoA") + consistent.getAccountBalance("KontoB");
+                assertEquals(total, sum, 1e-6);
+                // jede Überweisung steht auf beiden Seiten oder auf keiner
+                assertEquals(consistent.getTransactions("KontoA").size(), consistent.getTransactions("KontoB").size());
+                snapshots++;
+            }
+            for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(8002, bank.getTransactions("KontoA").size());
+    }
+}
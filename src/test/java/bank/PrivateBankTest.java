@@ -5,19 +5,22 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static bank.BankTestSupport.*;
 import static org.junit.jupiter.api.Assertions.*;
 /**
  * Testklasse für die PrivateBank.
- * Enthält grundlegende Funktionstests.
+ * Enthält grundlegende Funktionstests; größere Funktionen haben eigene Testklassen.
  */
 public class PrivateBankTest {
 
-    private static final String TEST_DIRECTORY = "/Users/pawel/Desktop/UNI/3semesteer/oos/p2/JSON";
-
     private PrivateBank bank;
 
     private Transaction paymentIn, paymentOut, transferOut;
@@ -32,13 +35,7 @@ public class PrivateBankTest {
 
     @AfterEach
     public void cleanup() {
-        File dir = new File(TEST_DIRECTORY);
-        if (!dir.exists()) return;
-        File[] files = dir.listFiles();
-        if (files == null) return;
-        for (File file : files) {
-            if (file.getName().endsWith(".json")) file.delete();
-        }
+        deleteBankFiles(TEST_DIRECTORY);
     }
 
     /**
@@ -184,4 +181,240 @@ public class PrivateBankTest {
         List<Transaction> negative = bank.getTransactionsByType("KontoA", false);
         assertEquals(2, negative.size());
     }
+
+    /**
+     * Testet, dass die Aufteilung nach Vorzeichen beim Entfernen und Laden mitgeführt wird
+     * und die Einfügereihenfolge erhalten bleibt.
+     */
+    @Test
+    public void testTransactionsByTypeAfterRemoveAndReload() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        bank.addTransaction("KontoA", transferOut);
+        bank.addTransaction("KontoA", new Payment("04.01.2025", 20, "Erstattung", 0, 0));
+
+        bank.removeTransaction("KontoA", paymentOut);
+        List<Transaction> negative = bank.getTransactionsByType("KontoA", false);
+        assertEquals(1, negative.size());
+        assertEquals("Strom", negative.get(0).getDescription());
+        assertEquals("Erstattung", bank.getTransactionsByType("KontoA", true).get(1).getDescription());
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransactionsByType("KontoA", true));
+    }
+
+    /**
+     * Testet, dass gleiche Strings beim Hinzufügen und Laden auf eine Instanz abgebildet werden.
+     */
+    @Test
+    public void testStringDeduplication() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", new Transfer("03.01.2025", 50, new String("Strom"), new String("KontoA"), new String("KontoB")));
+        bank.addTransaction("KontoA", new Transfer("04.01.2025", 60, new String("Strom"), new String("KontoA"), new String("KontoB")));
+
+        List<Transaction> txs = bank.getTransactions("KontoA");
+        Transfer first = (Transfer) txs.get(0);
+        Transfer second = (Transfer) txs.get(1);
+        assertSame(first.getDescription(), second.getDescription());
+        assertSame(first.getRecipient(), second.getRecipient());
+        assertSame(bank.getAllAccounts().get(0), second.getSender());
+        assertTrue(bank.getStringPool().getHits() >= 3);
+        assertTrue(bank.getStringPool().getSavedBytes() > 0);
+
+        PrivateBank bank2 = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        List<Transaction> loaded = bank2.getTransactions("KontoA");
+        assertSame(loaded.get(0).getDescription(), loaded.get(1).getDescription());
+        assertSame(((Transfer) loaded.get(0)).getSender(), ((Transfer) loaded.get(1)).getSender());
+    }
+
+    /**
+     * Testet, dass die Bank eingefrorene Kopien speichert und Objekte des Aufrufers nicht verändert.
+     */
+    @Test
+    public void testStoredTransactionsAreFrozen() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+
+        assertFalse(paymentIn.isFrozen());
+        assertEquals(0, ((Payment) paymentIn).getIncomingInterest());
+
+        Transaction stored = bank.getTransactions("KontoA").get(0);
+        assertTrue(stored.isFrozen());
+        assertEquals(0.05, ((Payment) stored).getIncomingInterest());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setAmount(1));
+        assertTrue(bank.containsTransaction("KontoA", paymentIn));
+        assertTrue(bank.containsTransaction("KontoA", stored));
+
+        Transaction shared = new OutgoingTransfer("05.01.2025", 10, "Strom", "KontoA", "KontoB").freeze();
+        bank.addTransaction("KontoA", shared);
+        assertSame(shared, bank.getTransactions("KontoA").get(1));
+    }
+
+    /**
+     * Testet den Ingest-Pfad: eingefrorene Transaktionen in Bank-Form werden ohne Kopie übernommen,
+     * nach ensureCapacity wird pro Transaktion praktisch kein Speicher mehr allokiert.
+     * Der Pfad wird vorher auf einem anderen Konto aufgewärmt; die Toleranz liegt unter der Größe einer
+     * kopierten Transaktion. Gespeichert wird erst beim flush().
+     */
+    @Test
+    public void testIngestAllocationFree() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        int count = 5_000, warmup = 20_000;
+        bank.createAccount("KontoA");
+        bank.createAccount("Warmup");
+        Transaction[] prepared = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            prepared[i] = new OutgoingTransfer("03.01.2025", i + 1, "Strom", "KontoA", "KontoB").freeze();
+        }
+        bank.ensureCapacity("Warmup", warmup);
+        for (int i = 0; i < warmup; i++) {
+            bank.ingestTransaction("Warmup", new OutgoingTransfer("03.01.2025", i + 1, "Strom", "Warmup", "KontoB").freeze());
+        }
+
+        bank.ensureCapacity("KontoA", count);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (Transaction t : prepared) {
+            bank.ingestTransaction("KontoA", t);
+        }
+        long bytesPerTransaction = (threads.getCurrentThreadAllocatedBytes() - before) / count;
+
+        assertTrue(bytesPerTransaction < 16, "allokiert pro Transaktion: " + bytesPerTransaction);
+        assertSame(prepared[0], bank.getTransactions("KontoA").get(0));
+        assertTrue(bank.hasUnsavedChanges());
+
+        bank.flush();
+        assertFalse(bank.hasUnsavedChanges());
+        PrivateBank bank2 = new PrivateBank("ZweiteBank", 0.05, 0.03, TEST_DIRECTORY);
+        assertEquals(count, bank2.getTransactions("KontoA").size());
+    }
+
+    /**
+     * Testet, dass sortierte Abfragen die gespeicherte Reihenfolge nicht verändern
+     * und der Betrags-Index beim Entfernen mitgeführt wird.
+     */
+    @Test
+    public void testSortedViewsDoNotMutate() throws Exception {
+        bank.createAccount("KontoA");
+        bank.addTransaction("KontoA", paymentIn);
+        bank.addTransaction("KontoA", paymentOut);
+        bank.addTransaction("KontoA", transferOut);
+
+        List<Transaction> top = bank.getTransactionsSorted("KontoA", false, 2);
+        assertEquals(2, top.size());
+        assertEquals(950.0, top.get(0).calculate());
+        assertEquals(-50.0, top.get(1).calculate());
+        assertEquals(-103.0, bank.getTransactionsSorted("KontoA", true, 1).get(0).calculate());
+
+        List<Transaction> stored = bank.getTransactions("KontoA");
+        assertEquals(950.0, stored.get(0).calculate());
+        assertEquals(-103.0, stored.get(1).calculate());
+        assertThrows(UnsupportedOperationException.class, () -> stored.remove(0));
+
+        bank.removeTransaction("KontoA", paymentIn);
+        assertEquals(-50.0, bank.getTransactionsSorted("KontoA", false).get(0).calculate());
+        assertEquals(2, bank.getTransactionsSorted("KontoA", true).size());
+    }
+
+    /**
+     * Testet das Hinzufügen mehrerer Transaktionen auf einmal: entweder alle oder keine.
+     */
+    @Test
+    public void testAddTransactionsBatch() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) batch.add(new Payment("01.01.2025", 100, "Einzahlung " + i, 0, 0));
+
+        bank.addTransactions("KontoA", batch);
+        assertEquals(10 * 95, bank.getAccountBalance("KontoA"), 1e-9);
+
+        // ein Duplikat, auch innerhalb des Stapels, verhindert den ganzen Stapel über alle Konten
+        List<Transaction> twice = List.of(new Payment("02.01.2025", 100, "Doppelt", 0, 0),
+                new Payment("02.01.2025", 100, "Doppelt", 0, 0));
+        assertThrows(TransactionAlreadyExistException.class,
+                () -> bank.addTransactions(Map.of("KontoA", List.of(new Payment("02.01.2025", 100, "Neu", 0, 0)), "KontoB", twice)));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransactions("KontoA", List.of(batch.get(3))));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransactions(Map.of("KontoA", batch, "Unbekannt", batch)));
+        assertEquals(10, bank.getTransactions("KontoA").size());
+        assertEquals(0, bank.getTransactions("KontoB").size());
+
+        bank.addTransactions(Map.of("KontoA", List.of(new Payment("02.01.2025", -100, "Miete", 0, 0)),
+                "KontoB", List.of(new Payment("02.01.2025", 100, "Einzahlung", 0, 0))));
+        assertEquals(95, bank.getAccountBalance("KontoB"), 1e-9);
+        assertSameAfterReload(bank, TEST_DIRECTORY, b -> b.getTransactions("KontoA"), b -> b.getTransactions("KontoB"));
+
+        // einzeln: gültige werden gebucht, für die anderen gibt es den Grund
+        List<TransactionResult> results = bank.addTransactionsIndividually("KontoB", List.of(
+                new Payment("03.01.2025", 100, "Bonus", 0, 0), batch.get(0), new Payment("03.01.2025", 0, "Null", 0, 0)));
+        assertEquals(List.of(TransactionResult.OK, TransactionResult.OK, TransactionResult.ZERO_AMOUNT), results);
+        assertEquals(3, bank.getTransactions("KontoB").size());
+    }
+
+    /**
+     * Testet die nicht werfenden Varianten und dass die werfenden die gleichen Exceptions wie bisher liefern.
+     */
+    @Test
+    public void testTryAddTransaction() throws Exception {
+        bank.createAccount("KontoA");
+        bank.createAccount("KontoB");
+
+        assertEquals(TransactionResult.OK, bank.tryAddTransaction("KontoA", paymentIn));
+        assertEquals(TransactionResult.DUPLICATE, bank.tryAddTransaction("KontoA", paymentIn));
+        assertEquals(TransactionResult.UNKNOWN_ACCOUNT, bank.tryAddTransaction("Unbekannt", paymentIn));
+        assertEquals(TransactionResult.ZERO_AMOUNT, bank.tryIngestTransaction("KontoA", new Payment("01.01.2025", 0, "Null", 0, 0)));
+        assertEquals(TransactionResult.INTEREST_OUT_OF_RANGE, bank.tryIngestTransaction("KontoA", new Payment("01.01.2025", 10, "Zins", 2, 0)));
+        assertTrue(TransactionResult.INTEREST_OUT_OF_RANGE.isInvalid());
+        assertFalse(TransactionResult.DUPLICATE.isInvalid());
+
+        assertEquals(TransactionResult.SAME_ACCOUNT, bank.tryTransfer("KontoA", "KontoA", 10, "02.01.2025", "Selbst"));
+        assertEquals(TransactionResult.NON_POSITIVE_TRANSFER, bank.tryTransfer("KontoA", "KontoB", -10, "02.01.2025", "Negativ"));
+        assertEquals(TransactionResult.UNKNOWN_ACCOUNT, bank.tryIngestTransfer("KontoA", "Unbekannt", 10, "02.01.2025", "Weg"));
+        assertEquals(TransactionResult.OK, bank.tryTransfer("KontoA", "KontoB", 10, "02.01.2025", "Miete"));
+        assertEquals(TransactionResult.DUPLICATE, bank.tryTransfer("KontoA", "KontoB", 10, "02.01.2025", "Miete"));
+        assertEquals(TransactionResult.UNKNOWN_TRANSACTION, bank.tryRemoveTransaction("KontoA", paymentOut));
+        assertEquals(2, bank.getTransactions("KontoA").size());
+        assertEquals(1, bank.getTransactions("KontoB").size());
+
+        // die werfenden Methoden sind Hüllen um die nicht werfenden
+        TransactionAttributeException invalid = assertThrows(TransactionAttributeException.class,
+                () -> bank.addTransaction("KontoA", new Payment("01.01.2025", 0, "Null", 0, 0)));
+        assertEquals("Payment Amount darf nicht 0 sein!", invalid.getMessage());
+        AccountDoesNotExistException missing = assertThrows(AccountDoesNotExistException.class,
+                () -> bank.transfer("KontoA", "Unbekannt", 10, "02.01.2025", "Weg"));
+        assertEquals("Konto 'Unbekannt' existiert nicht!", missing.getMessage());
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("KontoA", "KontoB", 10, "02.01.2025", "Miete"));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("KontoA", paymentOut));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.ingestRemoval("Unbekannt", paymentOut));
+    }
+
+    /**
+     * Testet, dass null statt einer Transaktion mit einem Ergebnis bzw. einer TransactionAttributeException abgelehnt
+     * wird, ohne dass unter der Kontosperre eine NullPointerException entsteht.
+     */
+    @Test
+    public void testNullTransactionRejected() throws Exception {
+        bank.createAccount("KontoA");
+        assertEquals(TransactionResult.NULL_TRANSACTION, bank.tryAddTransaction("KontoA", null));
+        assertEquals(TransactionResult.NULL_TRANSACTION, bank.tryIngestTransaction("KontoA", null));
+        assertEquals(TransactionResult.NULL_TRANSACTION, bank.tryAddTransaction("KontoA", null, "Einreichung-1"));
+        assertTrue(TransactionResult.NULL_TRANSACTION.isInvalid());
+        assertThrows(TransactionAttributeException.class, () -> bank.addTransaction("KontoA", null));
+        assertThrows(TransactionAttributeException.class, () -> bank.ingestTransaction("KontoA", null));
+
+        List<Transaction> withNull = Arrays.asList(paymentIn, null);
+        assertThrows(TransactionAttributeException.class, () -> bank.addTransactions("KontoA", withNull));
+        assertTrue(bank.getTransactions("KontoA").isEmpty());
+        assertEquals(List.of(TransactionResult.OK, TransactionResult.NULL_TRANSACTION),
+                bank.addTransactionsIndividually("KontoA", withNull));
+
+        try (IngestPipeline pipeline = new IngestPipeline(bank, 8, 4)) {
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> pipeline.addTransaction("KontoA", null).get(5, TimeUnit.SECONDS));
+            assertTrue(rejected.getCause() instanceof TransactionAttributeException);
+        }
+        bank.addTransaction("KontoA", paymentOut); // keine Sperre ist hängen geblieben
+        assertEquals(2, bank.getTransactions("KontoA").size());
+    }
 }
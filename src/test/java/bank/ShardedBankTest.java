@@ -0,0 +1,177 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static bank.BankTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testklasse für die ShardedBank (Konten auf mehrere PrivateBanks verteilt).
+ */
+public class ShardedBankTest {
+
+    private static final List<String> SHARDS = List.of(TEST_DIRECTORY + "/shard0", TEST_DIRECTORY + "/shard1",
+            TEST_DIRECTORY + "/shard2");
+
+    private ShardedBank bank;
+
+    /**
+     * Zwei Konten in verschiedenen Shards.
+     */
+    private String first, second;
+
+    @BeforeEach
+    public void init() throws IOException {
+        bank = new ShardedBank("TestBank", 0.05, 0.03, SHARDS);
+        first = "KontoA";
+        second = null;
+        for (int i = 0; second == null; i++) {
+            if (bank.shardOf("Konto" + i) != bank.shardOf(first)) second = "Konto" + i;
+        }
+    }
+
+    @AfterEach
+    public void cleanup() {
+        bank.close();
+        for (String directory : SHARDS) deleteBankFiles(directory);
+    }
+
+    /**
+     * Testet, dass Konten im Verzeichnis ihres Shards landen und nach einem Neustart wieder gefunden werden.
+     */
+    @Test
+    public void testRoutingAndReload() throws Exception {
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            accounts.add("Kunde" + i);
+            bank.createAccount("Kunde" + i);
+            bank.addTransaction("Kunde" + i, new Payment("01.01.2025", 100 * (i + 1), "Einzahlung", 0, 0));
+        }
+        for (String account : accounts) {
+            assertTrue(Files.exists(Paths.get(bank.shardOf(account).getDirectoryName(), account + ".json")));
+        }
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("Kunde3"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.getAccountBalance("Unbekannt"));
+
+        assertEquals(12, bank.getAllAccounts().size());
+        assertEquals(List.of("Kunde11", "Kunde10"), new ArrayList<>(bank.getTopAccounts(2).keySet()));
+        assertEquals(12, bank.getBankStatistics().getCount());
+        assertEquals(12, bank.streamTransactions().count());
+        assertEquals(12, bank.searchTransactions("einzahlung").size());
+
+        bank.close();
+        bank = new ShardedBank("TestBank", 0.05, 0.03, SHARDS);
+        assertEquals(12, bank.getAllAccounts().size());
+        assertEquals(95, bank.getAccountBalance("Kunde0"), 1e-9);
+
+        // mit anderer Anzahl Shards liegen Konten im falschen Verzeichnis
+        assertThrows(IOException.class, () -> new ShardedBank("TestBank", 0.05, 0.03, SHARDS.subList(0, 2)));
+    }
+
+    /**
+     * Testet Überweisungen und Stapel über Shard-Grenzen.
+     */
+    @Test
+    public void testCrossShard() throws Exception {
+        bank.createAccount(first);
+        bank.createAccount(second);
+        bank.addTransaction(first, new Payment("01.01.2025", 1000, "Gehalt", 0, 0));
+
+        bank.transfer(first, second, 100, "02.01.2025", "Miete");
+        assertEquals(950 - 100, bank.getAccountBalance(first), 1e-9);
+        assertEquals(100, bank.getAccountBalance(second), 1e-9);
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer(first, second, 100, "02.01.2025", "Miete"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer(first, "Unbekannt", 10, "02.01.2025", "Test"));
+        assertEquals(2, bank.getTransfersBetween(first, second).size());
+        Counterparty counterparty = bank.getTopCounterparties(first, 1).get(0);
+        assertEquals(second, counterparty.getName());
+        assertEquals(1, counterparty.getTransferCount());
+        assertEquals(100.0, counterparty.getVolume());
+
+        // ein Duplikat im zweiten Shard verhindert auch die Buchung im ersten
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransactions(Map.of(
+                first, List.of(new Payment("03.01.2025", 10, "Bonus", 0, 0)),
+                second, List.of(new Payment("03.01.2025", 10, "Bonus", 0, 0), new Payment("03.01.2025", 10, "Bonus", 0, 0)))));
+        assertEquals(2, bank.getTransactions(first).size());
+        bank.addTransactions(Map.of(first, List.of(new Payment("03.01.2025", 10, "Bonus", 0, 0)),
+                second, List.of(new Payment("03.01.2025", 10, "Bonus", 0, 0))));
+
+        Bank snapshot = bank.snapshot();
+        bank.transfer(second, first, 50, "04.01.2025", "Rückzahlung");
+        assertEquals(bank.getAccountBalance(first) - 50, snapshot.getAccountBalance(first), 1e-9);
+
+        bank.close();
+        bank = new ShardedBank("TestBank", 0.05, 0.03, SHARDS);
+        assertEquals(950 - 100 + 9.5 + 50, bank.getAccountBalance(first), 1e-9);
+        assertEquals(100 + 9.5 - 50, bank.getAccountBalance(second), 1e-9);
+    }
+
+    /**
+     * Testet, dass ein Idempotenzschlüssel für alle Shards gilt, auch nach einem Neustart.
+     */
+    @Test
+    public void testIdempotencyKeysAcrossShards() throws Exception {
+        bank.createAccount(first);
+        bank.createAccount(second);
+        Payment payment = new Payment("01.01.2025", 100, "Einzahlung", 0, 0);
+        assertEquals(TransactionResult.OK, bank.tryAddTransaction(first, payment, "auftrag-1"));
+        assertEquals(TransactionResult.REPLAYED, bank.tryAddTransaction(second, payment, "auftrag-1"));
+        assertTrue(bank.getTransactions(second).isEmpty());
+
+        bank.close();
+        bank = new ShardedBank("TestBank", 0.05, 0.03, SHARDS);
+        assertEquals(TransactionResult.REPLAYED, bank.tryAddTransaction(second, payment, "auftrag-1"));
+        assertEquals(TransactionResult.OK, bank.tryAddTransaction(second, payment, "auftrag-2"));
+        assertEquals(1, bank.getTransactions(first).size());
+        assertEquals(1, bank.getTransactions(second).size());
+    }
+
+    /**
+     * Testet, dass gleichzeitige Überweisungen über Shard-Grenzen und {@link ShardedBank#flush()} vollständige
+     * Dateien hinterlassen, die nach einem Neustart denselben Stand ergeben.
+     */
+    @Test
+    public void testConcurrentCrossShardWrites() throws Exception {
+        bank.createAccount(first);
+        bank.createAccount(second);
+        bank.addTransaction(first, new Payment("01.01.2025", 10_000, "Gehalt", 0, 0));
+        bank.addTransaction(second, new Payment("01.01.2025", 10_000, "Gehalt", 0, 0));
+
+        Thread[] threads = new Thread[4];
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        if (thread % 2 == 0) bank.tryTransfer(first, second, 1, "02.01.2025", "Hin " + thread + "-" + i);
+                        else bank.tryTransfer(second, first, 1, "02.01.2025", "Zurück " + thread + "-" + i);
+                        bank.flush();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertTrue(errors.isEmpty(), errors.toString());
+
+        double firstBalance = bank.getAccountBalance(first), secondBalance = bank.getAccountBalance(second);
+        assertEquals(2 * 9_500, firstBalance + secondBalance, 1e-9);
+        bank.close();
+        bank = new ShardedBank("TestBank", 0.05, 0.03, SHARDS);
+        assertEquals(firstBalance, bank.getAccountBalance(first), 1e-9);
+        assertEquals(secondBalance, bank.getAccountBalance(second), 1e-9);
+        assertEquals(1 + 400, bank.getTransactions(first).size());
+    }
+}